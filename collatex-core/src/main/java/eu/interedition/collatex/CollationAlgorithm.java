@@ -29,6 +29,7 @@ import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
@@ -127,19 +128,29 @@ public interface CollationAlgorithm {
 
             Arrays.sort(matchesTokenOrder, Comparator.comparing(m -> m.first().token));
 
-            final Set<SortedSet<VertexMatch.WithTokenIndex>> alignedMatches = NeedlemanWunschAlgorithm.align(
-                    matchesVertexOrder,
-                    matchesTokenOrder,
-                    new MatchPhraseAlignmentScorer(Math.max(tokens.length, vertices.length))
-            ).keySet();
+            // both arrays hold the same phrase instances, so look them up by identity instead of hashing whole phrases
+            final Map<SortedSet<VertexMatch.WithTokenIndex>, Integer> matchIds = new IdentityHashMap<>(matchesVertexOrder.length);
+            for (int mc = 0; mc < matchesVertexOrder.length; mc++) {
+                matchIds.put(matchesVertexOrder[mc], mc);
+            }
+            final int[] vertexOrderIds = IntStream.range(0, matchesVertexOrder.length).toArray();
+            final int[] tokenOrderIds = Arrays.stream(matchesTokenOrder).mapToInt(matchIds::get).toArray();
+
+            final MatchPhraseAlignmentScorer scorer = new MatchPhraseAlignmentScorer(Math.max(tokens.length, vertices.length));
+            final boolean[] aligned = new boolean[matchesVertexOrder.length];
+            for (int alignedId : NeedlemanWunschAlgorithm.align(vertexOrderIds, tokenOrderIds, scorer, scorer.gap())[0]) {
+                aligned[alignedId] = true;
+            }
 
-            final Map<Token, VariantGraph.Vertex> alignments = matches.stream()
-                    .filter(alignedMatches::contains)
+            final Map<Token, VariantGraph.Vertex> alignments = IntStream.range(0, matchesVertexOrder.length)
+                    .filter(mc -> aligned[mc])
+                    .mapToObj(mc -> matchesVertexOrder[mc])
                     .flatMap(Set::stream)
                     .collect(Collectors.toMap(m -> tokens[m.token], m -> m.vertex));
 
-            final List<SortedSet<VertexMatch.WithToken>> transpositions = matches.stream()
-                    .filter(m -> !alignedMatches.contains(m))
+            final List<SortedSet<VertexMatch.WithToken>> transpositions = IntStream.range(0, matchesVertexOrder.length)
+                    .filter(mc -> !aligned[mc])
+                    .mapToObj(mc -> matchesVertexOrder[mc])
                     .map(t -> t.stream().map(m -> new VertexMatch.WithToken(m.vertex, m.vertexRank, tokens[m.token])).collect(Collectors.toCollection(TreeSet::new)))
                     .collect(Collectors.toList());
 
@@ -148,7 +159,13 @@ public interface CollationAlgorithm {
         }
     }
 
-    class MatchPhraseAlignmentScorer implements NeedlemanWunschScorer<SortedSet<VertexMatch.WithTokenIndex>, SortedSet<VertexMatch.WithTokenIndex>> {
+    /**
+     * Scores the alignment of match phrases by their identity.
+     * <p>
+     * Phrases are compared via integer identifiers, e. g. their position in a sorted array of phrases, as
+     * equal phrases are equal by identifier.
+     */
+    class MatchPhraseAlignmentScorer implements NeedlemanWunschScorer.OfInt {
 
         private final int maxWitnessLength;
 
@@ -157,11 +174,10 @@ public interface CollationAlgorithm {
         }
 
         @Override
-        public float score(SortedSet<VertexMatch.WithTokenIndex> a, SortedSet<VertexMatch.WithTokenIndex> b) {
-            return (a.equals(b) ? 1 : -maxWitnessLength);
+        public float score(int a, int b) {
+            return (a == b ? 1 : -maxWitnessLength);
         }
 
-        @Override
         public float gap() {
             return -(1 / (maxWitnessLength * 1.0f));
         }
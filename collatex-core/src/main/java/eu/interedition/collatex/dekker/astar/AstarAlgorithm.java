@@ -1,5 +1,7 @@
 package eu.interedition.collatex.dekker.astar;
 
+import eu.interedition.collatex.util.IndexedPriorityQueue;
+
 import java.util.*;
 
 
@@ -7,54 +9,166 @@ import java.util.*;
  * Implementation of the a* algorithm to find the optimal
  * solution in a decision tree.
  *
+ * Nodes are assigned dense ids via hashing when first generated;
+ * open nodes are kept in an indexed heap of ids which supports
+ * decrease-key when a cheaper path to an open node is found.
+ *
+ * Memory can be bounded either by limiting the open set to a beam
+ * width, giving up optimality, or by searching via IDA*, which only
+ * keeps the current path. In beam searches, a node is only kept as
+ * long as it is open or an ancestor of an open node, so at most the
+ * beam width times the search depth nodes are retained; the ids and
+ * scores of evicted nodes are recycled. Both searches can be given
+ * a budget of node expansions and count expanded and generated nodes.
+ *
  * @author: Ronald Haentjens Dekker
  */
 public abstract class AstarAlgorithm<N, C extends Cost<C>> {
-  // The map of navigated nodes.
+  // The map of navigated nodes, along the path found by the last search.
   protected Map<N, N> cameFrom;
 
+  // Maximum number of open nodes; 0 for an unbounded open set.
+  private int beamWidth = 0;
+  private long expansionBudget = Long.MAX_VALUE;
+
+  private long expandedNodes;
+  private long generatedNodes;
+  private int retainedNodes;
+
   protected List<N> aStar(N startNode, C startCost) {
-    // The set of nodes already evaluated.
-    Set<N> closed = new HashSet<>();
     cameFrom = new HashMap<>();
+    expandedNodes = 0;
+    generatedNodes = 0;
+    retainedNodes = 0;
 
-    // Cost from start along best known path.
-    Map<N, C> gScore = new HashMap<>();
-    gScore.put(startNode, startCost);
-
-    // Estimated total cost from start to goal through y.
-    final Map<N, C> fScore = new HashMap<>();
-    fScore.put(startNode, gScore.get(startNode).plus(heuristicCostEstimate(startNode)));
+    final boolean beam = (beamWidth > 0);
+    final Nodes nodes = new Nodes();
 
     // The set of tentative nodes to be evaluated, initially containing the start node
-    Comparator<N> comp = Comparator.comparing(fScore::get);
-    PriorityQueue<N> open = new PriorityQueue<>(10, comp);
-    open.add(startNode);
-
-    while(!open.isEmpty()) {
-      N current = open.poll();
-      if (isGoal(current)) {
-        return reconstructPath(cameFrom, current);
+    final IndexedPriorityQueue open = new IndexedPriorityQueue(16, (a, b) -> nodes.fScore.get(a).compareTo(nodes.fScore.get(b)));
+    final IndexedPriorityQueue worstOpen = (beam ? new IndexedPriorityQueue(16, (a, b) -> nodes.fScore.get(b).compareTo(nodes.fScore.get(a))) : null);
+
+    final int start = nodes.id(startNode);
+    nodes.gScore.set(start, startCost);
+    nodes.fScore.set(start, startCost.plus(heuristicCostEstimate(startNode)));
+    nodes.refs[start]++;
+    open.offer(start);
+
+    while (!open.isEmpty()) {
+      final int current = open.poll();
+      if (beam) {
+        worstOpen.remove(current);
       }
-      closed.add(current);
-      for (N neighbor : neighborNodes(current)) {
-        if (closed.contains(neighbor)) {
+      final N currentNode = nodes.nodes.get(current);
+      if (isGoal(currentNode)) {
+        return nodes.path(current);
+      }
+      expand();
+      nodes.closed.set(current);
+      for (N neighborNode : neighborNodes(currentNode)) {
+        generatedNodes++;
+        final int neighbor = nodes.id(neighborNode);
+        retainedNodes = Math.max(retainedNodes, nodes.ids.size());
+        if (nodes.closed.get(neighbor)) {
+          continue;
+        }
+        C tentativeGScore = nodes.gScore.get(current).plus(distBetween(currentNode, neighborNode));
+        if (open.contains(neighbor) && tentativeGScore.compareTo(nodes.gScore.get(neighbor)) >= 0) {
           continue;
         }
-        C tentativeGScore = gScore.get(current).plus(distBetween(current, neighbor));
-        if (!open.contains(neighbor)||tentativeGScore.compareTo(gScore.get(neighbor))<0) {
-          cameFrom.put(neighbor, current);
-          gScore.put(neighbor, tentativeGScore);
-          fScore.put(neighbor, gScore.get(neighbor).plus(heuristicCostEstimate(neighbor)));
-          if (!open.contains(neighbor)) {
-            open.add(neighbor);
+        if (!open.contains(neighbor)) {
+          nodes.refs[neighbor]++;
+        }
+        nodes.setParent(neighbor, current, beam);
+        nodes.gScore.set(neighbor, tentativeGScore);
+        nodes.fScore.set(neighbor, tentativeGScore.plus(heuristicCostEstimate(neighborNode)));
+        open.offer(neighbor);
+        if (beam) {
+          worstOpen.offer(neighbor);
+          if (worstOpen.size() > beamWidth) {
+            final int evicted = worstOpen.poll();
+            open.remove(evicted);
+            nodes.release(evicted);
           }
         }
       }
+      if (beam) {
+        // the expanded node is only kept as an ancestor of open nodes
+        nodes.release(current);
+      }
     }
     throw new IllegalStateException("No node found that suits goal condition!");
   }
 
+  /**
+   * Iterative deepening a*: repeated depth-first searches, bounded by the
+   * estimated total cost, which is raised to the least estimate exceeding
+   * it after each unsuccessful search. Memory is linear in the path length.
+   */
+  protected List<N> idaStar(N startNode, C startCost) {
+    cameFrom = new HashMap<>();
+    expandedNodes = 0;
+    generatedNodes = 0;
+
+    C bound = startCost.plus(heuristicCostEstimate(startNode));
+    while (true) {
+      final List<N> path = new ArrayList<>();
+      final List<C> pathCosts = new ArrayList<>();
+      final Set<N> onPath = new HashSet<>();
+      final Deque<Iterator<N>> neighbors = new ArrayDeque<>();
+
+      path.add(startNode);
+      pathCosts.add(startCost);
+      onPath.add(startNode);
+      if (isGoal(startNode)) {
+        return path;
+      }
+      expand();
+      neighbors.push(neighborNodes(startNode).iterator());
+
+      C nextBound = null;
+      while (!neighbors.isEmpty()) {
+        final Iterator<N> currentNeighbors = neighbors.peek();
+        final int last = path.size() - 1;
+        if (!currentNeighbors.hasNext()) {
+          neighbors.pop();
+          onPath.remove(path.remove(last));
+          pathCosts.remove(last);
+          continue;
+        }
+        final N currentNode = path.get(last);
+        final N neighborNode = currentNeighbors.next();
+        generatedNodes++;
+        if (onPath.contains(neighborNode)) {
+          continue;
+        }
+        final C neighborGScore = pathCosts.get(last).plus(distBetween(currentNode, neighborNode));
+        final C neighborFScore = neighborGScore.plus(heuristicCostEstimate(neighborNode));
+        if (neighborFScore.compareTo(bound) > 0) {
+          if (nextBound == null || neighborFScore.compareTo(nextBound) < 0) {
+            nextBound = neighborFScore;
+          }
+          continue;
+        }
+        path.add(neighborNode);
+        pathCosts.add(neighborGScore);
+        onPath.add(neighborNode);
+        if (isGoal(neighborNode)) {
+          for (int pc = 1; pc < path.size(); pc++) {
+            cameFrom.put(path.get(pc), path.get(pc - 1));
+          }
+          return path;
+        }
+        expand();
+        neighbors.push(neighborNodes(neighborNode).iterator());
+      }
+      if (nextBound == null) {
+        throw new IllegalStateException("No node found that suits goal condition!");
+      }
+      bound = nextBound;
+    }
+  }
+
   protected List<N> reconstructPath(Map<N, N> cameFrom, N current) {
     ArrayList<N> path = new ArrayList<>();
     do {
@@ -64,6 +178,148 @@ public abstract class AstarAlgorithm<N, C extends Cost<C>> {
     return path;
   }
 
+  /**
+   * Bounds the open set of a* searches to the given number of nodes, evicting
+   * the nodes with the highest estimated total cost; 0 for no bound.
+   */
+  public void setBeamWidth(int beamWidth) {
+    this.beamWidth = beamWidth;
+  }
+
+  /**
+   * Limits the number of nodes expanded per search; searches exceeding it
+   * fail with an IllegalStateException.
+   */
+  public void setExpansionBudget(long expansionBudget) {
+    this.expansionBudget = expansionBudget;
+  }
+
+  /**
+   * The number of nodes expanded by the last search.
+   */
+  public long getExpandedNodes() {
+    return expandedNodes;
+  }
+
+  /**
+   * The number of neighbor nodes generated by the last search.
+   */
+  public long getGeneratedNodes() {
+    return generatedNodes;
+  }
+
+  /**
+   * The greatest number of nodes retained at once by the last a* search.
+   */
+  public int getRetainedNodes() {
+    return retainedNodes;
+  }
+
+  private void expand() {
+    if (expandedNodes == expansionBudget) {
+      throw new IllegalStateException("Node expansion budget of " + expansionBudget + " exhausted!");
+    }
+    expandedNodes++;
+  }
+
+  /**
+   * The nodes generated by an a* search, by dense id, with their scores and the id of their parent
+   * along the best known path.
+   * <p>
+   * Each node counts references from its open entry or its expansion, and from its children. In beam
+   * searches, a node without references is {@link #release(int) released}: It is removed from the
+   * table, so it can be generated anew, and its id is recycled.
+   */
+  private class Nodes {
+    // Node ids by node, and nodes by id.
+    final Map<N, Integer> ids = new HashMap<>();
+    final List<N> nodes = new ArrayList<>();
+
+    // Cost from start along best known path, by node id.
+    final List<C> gScore = new ArrayList<>();
+
+    // Estimated total cost from start to goal through y, by node id.
+    final List<C> fScore = new ArrayList<>();
+
+    // The set of nodes already evaluated.
+    final BitSet closed = new BitSet();
+
+    int[] parents = new int[16];
+    int[] refs = new int[16];
+
+    int[] free = new int[16];
+    int freeCount = 0;
+
+    int id(N node) {
+      return ids.computeIfAbsent(node, n -> {
+        if (freeCount > 0) {
+          final int id = free[--freeCount];
+          nodes.set(id, n);
+          return id;
+        }
+        final int id = nodes.size();
+        nodes.add(n);
+        gScore.add(null);
+        fScore.add(null);
+        if (id == parents.length) {
+          parents = Arrays.copyOf(parents, id * 2);
+          refs = Arrays.copyOf(refs, id * 2);
+        }
+        parents[id] = -1;
+        return id;
+      });
+    }
+
+    void setParent(int child, int parent, boolean release) {
+      final int previous = parents[child];
+      parents[child] = parent;
+      refs[parent]++;
+      if (previous >= 0) {
+        if (release) {
+          release(previous);
+        } else {
+          refs[previous]--;
+        }
+      }
+    }
+
+    /**
+     * Drops a reference to the given node, removing it and, transitively, its ancestors once unreferenced.
+     */
+    void release(int id) {
+      refs[id]--;
+      while (id >= 0 && refs[id] == 0) {
+        final int parent = parents[id];
+        ids.remove(nodes.get(id));
+        nodes.set(id, null);
+        gScore.set(id, null);
+        fScore.set(id, null);
+        closed.clear(id);
+        parents[id] = -1;
+        if (freeCount == free.length) {
+          free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = id;
+
+        id = parent;
+        if (id >= 0) {
+          refs[id]--;
+        }
+      }
+    }
+
+    List<N> path(int id) {
+      final List<N> path = new ArrayList<>();
+      for (; id >= 0; id = parents[id]) {
+        path.add(0, nodes.get(id));
+      }
+      for (int pc = 1; pc < path.size(); pc++) {
+        cameFrom.put(path.get(pc), path.get(pc - 1));
+      }
+      return path;
+    }
+  }
+
   protected abstract boolean isGoal(N node);
 
   protected abstract Iterable<N> neighborNodes(N current);
@@ -36,8 +36,9 @@ import java.util.stream.IntStream;
 /* @author: Ronald Haentjens Dekker
 *
 * This class represents a table of the matches.
-* Since this table is sparse a Hashmap based implementation
-* is used rather than a Arraylist based one.
+* Since this table is sparse, it is stored row-compressed:
+* the matches of all rows are kept in one pair of arrays of columns and vertices,
+* ordered by row and column, with the offset of each row's matches in a third array.
 * However the API of this class looks very much like an array based one
 * since you can use tokenAt(row, column) or vertexAt(row, column).
 * This class is read only.
@@ -45,9 +46,11 @@ import java.util.stream.IntStream;
 * IslandCollection class.
 */
 public class MatchTableImpl implements MatchTable {
-    private final MatchTableCell[][] table;
     private final Token[] witness;
     private final int[] ranks;
+    private final int[] rowOffsets;
+    private final int[] columns;
+    private final VariantGraph.Vertex[] vertices;
 
     // assumes default token comparator
     public static MatchTable create(VariantGraph graph, Iterable<Token> witness) {
@@ -57,25 +60,63 @@ public class MatchTableImpl implements MatchTable {
 
     public static MatchTableImpl create(VariantGraph graph, Iterable<Token> witness, Comparator<Token> comparator) {
         final VariantGraphRanking ranking = VariantGraphRanking.of(graph);
-        // step 1: build the MatchTable
-        MatchTableImpl table = createEmptyTable(ranking, graph, witness);
-        // step 2: do the matching and fill the table
-        table.fillTableWithMatches(ranking, graph, witness, comparator);
-        return table;
+        final Token[] tokens = StreamUtil.stream(witness).toArray(Token[]::new);
+        // -2 === ignore the start and the end vertex
+        final int[] ranks = IntStream.range(0, Math.max(0, ranking.apply(graph.getEnd()) - 1)).toArray();
+
+        final Matches matches = Matches.between(graph.vertices(), witness, comparator);
+        final Set<Token> unique = matches.uniqueInWitness;
+        final Set<Token> ambiguous = matches.ambiguousInWitness;
+
+        final int[] rowOffsets = new int[tokens.length + 1];
+        final List<VariantGraph.Vertex> vertices = new ArrayList<>();
+        int[] columns = new int[16];
+        for (int rowIndex = 0; rowIndex < tokens.length; rowIndex++) {
+            final Token t = tokens[rowIndex];
+            if (unique.contains(t) || ambiguous.contains(t)) {
+                // a column matched by several vertices holds the last one
+                final SortedMap<Integer, VariantGraph.Vertex> row = new TreeMap<>();
+                for (VariantGraph.Vertex vgv : matches.allMatches.getOrDefault(t, Collections.emptyList())) {
+                    row.put(ranking.apply(vgv) - 1, vgv);
+                }
+                for (Map.Entry<Integer, VariantGraph.Vertex> cell : row.entrySet()) {
+                    if (vertices.size() == columns.length) {
+                        columns = Arrays.copyOf(columns, columns.length * 2);
+                    }
+                    columns[vertices.size()] = cell.getKey();
+                    vertices.add(cell.getValue());
+                }
+            }
+            rowOffsets[rowIndex + 1] = vertices.size();
+        }
+        return new MatchTableImpl(tokens, ranks, rowOffsets, Arrays.copyOf(columns, vertices.size()), vertices.toArray(new VariantGraph.Vertex[0]));
     }
 
-    private Optional<MatchTableCell> cell(int rowIndex, int columnIndex) {
-        return Optional.ofNullable(table[rowIndex][columnIndex]);
+    private MatchTableImpl(Token[] witness, int[] ranks, int[] rowOffsets, int[] columns, VariantGraph.Vertex[] vertices) {
+        this.witness = witness;
+        this.ranks = ranks;
+        this.rowOffsets = rowOffsets;
+        this.columns = columns;
+        this.vertices = vertices;
+    }
+
+    // the index of the given cell's match, or a negative value if the cell is empty
+    private int cell(int rowIndex, int columnIndex) {
+        if (columnIndex < 0 || columnIndex >= ranks.length) {
+            throw new IndexOutOfBoundsException("Column " + columnIndex);
+        }
+        return Arrays.binarySearch(columns, rowOffsets[rowIndex], rowOffsets[rowIndex + 1], columnIndex);
     }
 
     @Override
     public VariantGraph.Vertex vertexAt(int rowIndex, int columnIndex) {
-        return cell(rowIndex, columnIndex).map(c -> c.vertex).orElse(null);
+        final int cell = cell(rowIndex, columnIndex);
+        return (cell < 0 ? null : vertices[cell]);
     }
 
     @Override
     public Token tokenAt(int rowIndex, int columnIndex) {
-        return cell(rowIndex, columnIndex).map(c -> c.token).orElse(null);
+        return (cell(rowIndex, columnIndex) < 0 ? null : witness[rowIndex]);
     }
 
     // Warning: this method reiterates the witness!
@@ -91,112 +132,53 @@ public class MatchTableImpl implements MatchTable {
         return Arrays.stream(ranks).boxed().collect(Collectors.toList());
     }
 
-    // Since the coordinates in allMatches are ordered from upper left to lower right,
-    // we don't need to check the lower right neighbor.
+    // Since the matches are ordered from upper left to lower right,
+    // islands are built in one pass by extending the island of each match's upper left neighbor.
+    // The matches of the previous row are walked alongside the current row's to find these neighbors.
     @Override
     public Set<Island> getIslands() {
-        Map<Coordinate, Island> coordinateMapper = new HashMap<>();
-        List<Coordinate> allMatches = allMatches();
-        for (Coordinate c : allMatches) {
-            //      LOG.debug("coordinate {}", c);
-            addToIslands(coordinateMapper, c);
-        }
-        Set<Coordinate> smallestIslandsCoordinates = new HashSet<>(allMatches);
-        smallestIslandsCoordinates.removeAll(coordinateMapper.keySet());
-        for (Coordinate coordinate : smallestIslandsCoordinates) {
-            Island island = new Island();
-            island.add(coordinate);
-            coordinateMapper.put(coordinate, island);
-        }
-        return new HashSet<>(coordinateMapper.values());
-    }
-
-
-    private MatchTableImpl(Token[] tokens, int[] ranks) {
-        this.table = new MatchTableCell[tokens.length][ranks.length];
-        this.witness = tokens;
-        this.ranks = ranks;
-    }
-
-    private static MatchTableImpl createEmptyTable(VariantGraphRanking ranking, VariantGraph graph, Iterable<Token> witness) {
-        // -2 === ignore the start and the end vertex
-        return new MatchTableImpl(
-                StreamUtil.stream(witness).toArray(Token[]::new),
-                IntStream.range(0, Math.max(0, ranking.apply(graph.getEnd()) - 1)).toArray()
-        );
-    }
-
-    // move parameters into fields?
-    private void fillTableWithMatches(VariantGraphRanking ranking, VariantGraph graph, Iterable<Token> witness, Comparator<Token> comparator) {
-        Matches matches = Matches.between(graph.vertices(), witness, comparator);
-        Set<Token> unique = matches.uniqueInWitness;
-        Set<Token> ambiguous = matches.ambiguousInWitness;
-        int rowIndex = 0;
-        for (Token t : witness) {
-            if (unique.contains(t) || ambiguous.contains(t)) {
-                List<VariantGraph.Vertex> matchingVertices = matches.allMatches.getOrDefault(t, Collections.emptyList());
-                for (VariantGraph.Vertex vgv : matchingVertices) {
-                    set(rowIndex, ranking.apply(vgv) - 1, t, vgv);
+        final Island[] islands = new Island[vertices.length];
+        for (int row = 1; row < witness.length; row++) {
+            int neighbor = rowOffsets[row - 1];
+            final int neighborEnd = rowOffsets[row];
+            for (int match = rowOffsets[row], end = rowOffsets[row + 1]; match < end; match++) {
+                while (neighbor < neighborEnd && columns[neighbor] < columns[match] - 1) {
+                    neighbor++;
+                }
+                if (neighbor < neighborEnd && columns[neighbor] == columns[match] - 1) {
+                    if (islands[neighbor] == null) {
+                        islands[neighbor] = new Island();
+                        islands[neighbor].add(coordinate(row - 1, neighbor));
+                    }
+                    islands[match] = islands[neighbor];
+                    islands[match].add(coordinate(row, match));
                 }
             }
-            rowIndex++;
         }
-    }
-
-    private void set(int rowIndex, int columnIndex, Token token, VariantGraph.Vertex vertex) {
-        //    LOG.debug("putting: {}<->{}<->{}", new Object[] { token, columnIndex, variantGraphVertex });
-        table[rowIndex][columnIndex] = new MatchTableCell(token, vertex);
-    }
-
-    private void addToIslands(Map<Coordinate, Island> coordinateMapper, Coordinate c) {
-        int diff = -1;
-        VariantGraph.Vertex neighbor = null;
-        try {
-            neighbor = vertexAt(c.row + diff, c.column + diff);
-        } catch (IndexOutOfBoundsException e) {
-            // ignored
-        }
-        if (neighbor != null) {
-            Coordinate neighborCoordinate = new Coordinate(c.row + diff, c.column + diff, new Match(neighbor, null));
-            Island island = coordinateMapper.get(neighborCoordinate);
-            if (island == null) {
-                //        LOG.debug("new island");
-                Island island0 = new Island();
-                island0.add(neighborCoordinate);
-                island0.add(c);
-                coordinateMapper.put(neighborCoordinate, island0);
-                coordinateMapper.put(c, island0);
-            } else {
-                //        LOG.debug("add to existing island");
-                island.add(c);
-                coordinateMapper.put(c, island);
+        final Set<Island> result = new HashSet<>();
+        for (int row = 0; row < witness.length; row++) {
+            for (int match = rowOffsets[row], end = rowOffsets[row + 1]; match < end; match++) {
+                if (islands[match] == null) {
+                    islands[match] = new Island();
+                    islands[match].add(coordinate(row, match));
+                }
+                result.add(islands[match]);
             }
         }
+        return result;
     }
 
-    // Note: code taken from MatchMatrix class
-    // TODO: might be simpler to work from the valueSet
-    // TODO: try remove the call to rowList / columnList
     List<Coordinate> allMatches() {
-        List<Coordinate> pairs = new ArrayList<>();
-        int rows = rowList().size();
-        int cols = columnList().size();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                VariantGraph.Vertex vertex = vertexAt(i, j);
-                if (vertex != null) pairs.add(new Coordinate(i, j, new Match(vertex, null)));
+        List<Coordinate> pairs = new ArrayList<>(vertices.length);
+        for (int row = 0; row < witness.length; row++) {
+            for (int match = rowOffsets[row], end = rowOffsets[row + 1]; match < end; match++) {
+                pairs.add(coordinate(row, match));
             }
         }
         return pairs;
     }
 
-    private class MatchTableCell {
-        public final Token token;
-        public final VariantGraph.Vertex vertex;
-
-        public MatchTableCell(Token token, VariantGraph.Vertex vertex) {
-            this.token = token;
-            this.vertex = vertex;
-        }
+    private Coordinate coordinate(int row, int match) {
+        return new Coordinate(row, columns[match], new Match(vertices[match], null));
     }
 }
@@ -2,6 +2,9 @@ package eu.interedition.collatex.dekker.token_index
 
 import eu.interedition.collatex.Token
 import eu.interedition.collatex.Witness
+import eu.interedition.collatex.matching.EqualityTokenComparator
+import eu.interedition.collatex.matching.TokenKey
+import eu.interedition.collatex.simple.ColumnarWitness
 import eu.interedition.collatex.suffixarray.SAIS
 import eu.interedition.collatex.suffixarray.SuffixArrays
 import eu.interedition.collatex.util.StreamUtil
@@ -13,6 +16,7 @@ import java.util.function.Function
  */
 class TokenIndex(comparator: Comparator<Token>, private val witnesses: List<Iterable<Token>>) {
     private val comparator: Comparator<Token>
+    private val byNormalizedForm: Boolean
 
     //TODO: not sure this functionality should be in this class or in a separate class
     private var witnessToStartToken: MutableMap<Witness, Int>? = null
@@ -41,13 +45,52 @@ class TokenIndex(comparator: Comparator<Token>, private val witnesses: List<Iter
     // TODO: we do not have to store witnesses!
     fun prepare() {
         token_array = prepareTokenArray()
-        val suffixData = SuffixArrays.createWithLCP(token_array, SAIS(), comparator)
+        val columnarInput = if (byNormalizedForm) prepareColumnarInput() else null
+        val suffixData = if (columnarInput != null) {
+            SuffixArrays.createWithLCP(columnarInput, 0, token_array!!.size, SAIS())
+        } else if (comparator is TokenKey) {
+            // assign token ids via hashing, numbering each class by its first position like GenericArrayAdapter does
+            val tokenIds = HashMap<Any, Int>()
+            val input = IntArray(token_array!!.size + SuffixArrays.MAX_EXTRA_TRAILING_SPACE)
+            for (i in token_array!!.indices) {
+                input[i] = tokenIds.getOrPut(comparator.key(token_array!![i])) { i }
+            }
+            SuffixArrays.createWithLCP(input, 0, token_array!!.size, SAIS())
+        } else {
+            SuffixArrays.createWithLCP(token_array, SAIS(), comparator)
+        }
         suffix_array = suffixData.suffixArray
         LCP_array = suffixData.lcp
         blocks = splitLCP_ArrayIntoIntervals()
         constructWitnessToBlockInstancesMap()
     }
 
+    // reads the normalized form ids of columnar witnesses sharing a pool, numbering each class by its first position
+    // just like the hashing variant; returns null if the witnesses are not columnar
+    private fun prepareColumnarInput(): IntArray? {
+        val columnar = witnesses.map { it as? ColumnarWitness ?: return null }
+        val forms = columnar.firstOrNull()?.forms ?: return null
+        if (columnar.any { it.forms !== forms }) {
+            return null
+        }
+        val firstPositions = IntArray(forms.size()) { -1 }
+        val input = IntArray(token_array!!.size + SuffixArrays.MAX_EXTRA_TRAILING_SPACE)
+        var i = 0
+        for (witness in columnar) {
+            for (id in witness.normalizedIds) {
+                if (firstPositions[id] < 0) {
+                    firstPositions[id] = i
+                }
+                input[i] = firstPositions[id]
+                i++
+            }
+            // the marker token terminating the witness
+            input[i] = i
+            i++
+        }
+        return input
+    }
+
     private fun prepareTokenArray(): Array<Token> {
         val tempTokenList: MutableList<Token> = ArrayList()
         var counter = 0
@@ -80,7 +123,7 @@ class TokenIndex(comparator: Comparator<Token>, private val witnesses: List<Iter
         }
     }
 
-    internal class MarkerTokenComparator(private val delegate: Comparator<Token>) : Comparator<Token> {
+    internal open class MarkerTokenComparator(private val delegate: Comparator<Token>) : Comparator<Token> {
         override fun compare(o1: Token, o2: Token): Int {
             val o1isMarker = o1 is MarkerToken
             val o2isMarker = o2 is MarkerToken
@@ -105,6 +148,15 @@ class TokenIndex(comparator: Comparator<Token>, private val witnesses: List<Iter
         }
     }
 
+    // marker tokens are keyed apart from each other and from all content tokens
+    internal class KeyedMarkerTokenComparator(private val delegate: TokenKey, comparator: Comparator<Token>) : MarkerTokenComparator(comparator), TokenKey {
+        override fun key(token: Token): Any {
+            return if (token is MarkerToken) MarkerKey(token.witnessIdentifier) else delegate.key(token)
+        }
+
+        private data class MarkerKey(val witnessIdentifier: Int)
+    }
+
     fun splitLCP_ArrayIntoIntervals(): List<Block> {
         val closedIntervals: MutableList<Block> = ArrayList()
         var previousLCP_value = 0
@@ -158,6 +210,7 @@ class TokenIndex(comparator: Comparator<Token>, private val witnesses: List<Iter
     }
 
     init {
-        this.comparator = MarkerTokenComparator(comparator)
+        this.byNormalizedForm = comparator.javaClass == EqualityTokenComparator::class.java
+        this.comparator = if (comparator is TokenKey) KeyedMarkerTokenComparator(comparator, comparator) else MarkerTokenComparator(comparator)
     }
 }
\ No newline at end of file
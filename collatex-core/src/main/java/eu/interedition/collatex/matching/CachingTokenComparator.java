@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.simple.NormalizedFormPool;
+import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Memoizes the results of an expensive token comparator, e.g. a script-defined one or one based on edit distances,
+ * for pairs of normalized forms.
+ * <p>
+ * Pairs of normalized forms are keyed by a single <code>long</code>, combining the {@link SimpleToken#getNormalizedId()
+ * identifiers} the forms have in their witnesses' {@link NormalizedFormPool pools}. As witnesses need not share a pool,
+ * identifiers are translated into a pool of this comparator via an array per pool, so only the first occurrence of a
+ * form in a pool has to be looked up by its string.
+ * Results are kept in an open-addressing table of fixed capacity; a pair which finds no free slot among the few slots
+ * it may occupy evicts the entry in its home slot. Tokens other than {@link SimpleToken simple tokens} are passed
+ * on to the decorated comparator unconditionally.
+ * <p>
+ * Instances are not thread-safe; they are meant to be used for one collation at a time.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class CachingTokenComparator implements Comparator<Token> {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final long EMPTY = -1L;
+    private static final int PROBES = 8;
+
+    private final Comparator<Token> delegate;
+    private final NormalizedFormPool forms = new NormalizedFormPool();
+    private final Map<NormalizedFormPool, int[]> formIds = new IdentityHashMap<>();
+    private NormalizedFormPool lastPool;
+    private int[] lastFormIds;
+
+    private final long[] keys;
+    private final int[] results;
+    private final int mask;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public CachingTokenComparator(Comparator<Token> delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of cached results, rounded up to the next power of two
+     */
+    public CachingTokenComparator(Comparator<Token> delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        final int tableSize = Integer.highestOneBit(Math.max(PROBES - 1, capacity - 1) << 1);
+        this.delegate = delegate;
+        this.keys = new long[tableSize];
+        this.results = new int[tableSize];
+        this.mask = tableSize - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Decorates the given comparator with a cache unless comparing tokens is cheap already, i.e. unless it is
+     * {@link TokenKey keyed} or caches results itself.
+     */
+    public static Comparator<Token> of(Comparator<Token> comparator) {
+        if (comparator instanceof TokenKey || comparator instanceof CachingTokenComparator) {
+            return comparator;
+        }
+        return new CachingTokenComparator(comparator);
+    }
+
+    /**
+     * @return the comparator decorated by the given one if the latter caches results, the given comparator otherwise
+     */
+    public static Comparator<Token> unwrap(Comparator<Token> comparator) {
+        return (comparator instanceof CachingTokenComparator ? ((CachingTokenComparator) comparator).delegate : comparator);
+    }
+
+    public Comparator<Token> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public int compare(Token o1, Token o2) {
+        if (!(o1 instanceof SimpleToken) || !(o2 instanceof SimpleToken)) {
+            return delegate.compare(o1, o2);
+        }
+        final long key = ((long) formId((SimpleToken) o1) << 32) | formId((SimpleToken) o2);
+        final int home = slot(key);
+        for (int probe = 0, slot = home; probe < PROBES; probe++, slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                hits++;
+                return results[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return miss(o1, o2, key, slot);
+            }
+        }
+        return miss(o1, o2, key, home);
+    }
+
+    private int miss(Token o1, Token o2, long key, int slot) {
+        misses++;
+        final int result = delegate.compare(o1, o2);
+        keys[slot] = key;
+        results[slot] = result;
+        return result;
+    }
+
+    /**
+     * @return the identifier of the given token's normalized form in this comparator's pool
+     */
+    private int formId(SimpleToken token) {
+        final NormalizedFormPool pool = ((SimpleWitness) token.getWitness()).getForms();
+        int[] ids = (pool == lastPool ? lastFormIds : formIds.computeIfAbsent(pool, p -> new int[Math.max(16, p.size())]));
+        final int id = token.getNormalizedId();
+        if (id >= ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(id + 1, ids.length * 2));
+            formIds.put(pool, ids);
+        }
+        lastPool = pool;
+        lastFormIds = ids;
+
+        // identifiers are stored incremented by one, so zero denotes a form not looked up yet
+        if (ids[id] == 0) {
+            ids[id] = forms.intern(token.getNormalized()) + 1;
+        }
+        return ids[id] - 1;
+    }
+
+    private int slot(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of comparisons answered from the cache, or <code>0</code> if none have been made yet
+     */
+    public double getHitRate() {
+        final long comparisons = hits + misses;
+        return (comparisons == 0 ? 0 : (double) hits / comparisons);
+    }
+}
@@ -19,70 +19,201 @@
 
 package eu.interedition.collatex.matching;
 
+import java.util.Arrays;
+
+/**
+ * Levenshtein distance of strings, computed bit-parallel after Myers ("A fast bit-vector algorithm for approximate
+ * string matching based on dynamic programming", 1999) in the global variant given by Hyyrö.
+ * <p>
+ * The shorter string is encoded in bit vectors of the vertical deltas of a dynamic programming column, so that each
+ * character of the longer string advances the column in a few word operations per 64 characters of the shorter one.
+ * Match masks are kept in per-thread scratch space, so comparisons do not allocate once it has grown large enough.
+ */
 public final class EditDistance {
-    private static final int MAX_DISTANCE_COMPARISON = 2500;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
 
     public static int compute(String str1, String str2) {
-        if ((str1.length() * str2.length() > MAX_DISTANCE_COMPARISON)) {
-            return MAX_DISTANCE_COMPARISON;
-        }
+        return compute(str1, str2, Integer.MAX_VALUE);
+    }
 
-        final char[] str1Chars = str1.toCharArray();
-        final int str1Length = str1Chars.length;
-        final char[] str2Chars = str2.toCharArray();
-        final int str2Length = str2Chars.length;
+    /**
+     * Computes the distance of two strings as long as it does not exceed a given threshold.
+     *
+     * @return the distance, if it is less than or equal to the threshold; otherwise some value greater than the
+     * threshold, as the computation stops as soon as the threshold cannot be met anymore
+     */
+    public static int compute(String str1, String str2, int threshold) {
+        final String pattern = (str1.length() <= str2.length() ? str1 : str2);
+        final String text = (pattern == str1 ? str2 : str1);
+        final int m = pattern.length();
+        final int n = text.length();
 
-        if (str1Length == 0) {
-            return str2Length;
+        if (m == 0) {
+            return n;
         }
-        if (str2Length == 0) {
-            return str1Length;
+        if (n - m > threshold) {
+            return n - m;
         }
 
-        int[][][] cache = new int[30][][];
-        int matrix[][];
-        if (str2Length >= cache.length) {
-            matrix = form(str1Length, str2Length);
-        } else if (cache[str2Length] != null) {
-            matrix = cache[str2Length];
-        } else {
-            matrix = cache[str2Length] = form(str1Length, str2Length);
+        final Scratch scratch = SCRATCH.get();
+        try {
+            return (m <= Long.SIZE
+                    ? computeWord(scratch.encode(pattern, 1), text, m, threshold)
+                    : computeBlocks(scratch.encode(pattern, (m + Long.SIZE - 1) / Long.SIZE), text, m, threshold));
+        } finally {
+            scratch.clear();
         }
+    }
+
+    private static int computeWord(Scratch scratch, String text, int m, int threshold) {
+        final long last = 1L << (m - 1);
+        final int n = text.length();
 
-        for (int i = 1; i <= str1Length; i++) {
-            final char str1Char = str1Chars[i - 1];
-            for (int j = 1; j <= str2Length; j++) {
-                final char str2Char = str2Chars[j - 1];
-                final int cost = (str1Char == str2Char ? 0 : 1);
-                matrix[i][j] = min3(matrix[i - 1][j] + 1, matrix[i][j - 1] + 1, matrix[i - 1][j - 1] + cost);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            final long eq = scratch.mask(text.charAt(j), 0);
+            final long xv = eq | mv;
+            final long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
             }
+            if (score - (n - j - 1) > threshold) {
+                // the distance decreases by at most one per remaining character
+                return score - (n - j - 1);
+            }
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
         }
+        return score;
+    }
+
+    private static int computeBlocks(Scratch scratch, String text, int m, int threshold) {
+        final int blocks = scratch.blocks;
+        final long last = 1L << ((m - 1) % Long.SIZE);
+        final long[] vectors = scratch.vectors();
+        final int n = text.length();
 
-        return matrix[str1Length][str2Length];
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            final char c = text.charAt(j);
+            int carry = 1;
+            for (int b = 0; b < blocks; b++) {
+                final long pv = vectors[b];
+                final long mv = vectors[blocks + b];
+                long eq = scratch.mask(c, b);
+                final long xv = eq | mv;
+                if (carry < 0) {
+                    eq |= 1L;
+                }
+                final long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                final long top = (b == blocks - 1 ? last : Long.MIN_VALUE);
+                final int carryOut = ((ph & top) != 0 ? 1 : ((mh & top) != 0 ? -1 : 0));
+
+                ph <<= 1;
+                mh <<= 1;
+                if (carry < 0) {
+                    mh |= 1L;
+                } else if (carry > 0) {
+                    ph |= 1L;
+                }
+                vectors[b] = mh | ~(xv | ph);
+                vectors[blocks + b] = ph & xv;
+                carry = carryOut;
+            }
+            score += carry;
+            if (score - (n - j - 1) > threshold) {
+                return score - (n - j - 1);
+            }
+        }
+        return score;
     }
 
-    private static int[][] form(int n, int m) {
-        int[][] d = new int[n + 1][m + 1];
+    /**
+     * Per-thread scratch space: an open-addressing table of the match masks of a pattern's characters, one mask per
+     * block of 64 pattern characters, and the bit vectors of the blocked computation.
+     */
+    private static final class Scratch {
 
-        for (int i = 0; i <= n; i++) {
-            d[i][0] = i;
+        private static final int EMPTY = -1;
 
+        private int[] keys = new int[0];
+        private int[] used = new int[0];
+        private int usedSlots;
+        private long[] masks = new long[0];
+        private long[] vectors = new long[0];
+        private int blocks;
+        private int slotMask;
+
+        Scratch encode(String pattern, int blocks) {
+            final int m = pattern.length();
+            final int slots = Integer.highestOneBit(Math.max(1, 2 * m - 1)) << 1;
+            if (keys.length < slots) {
+                keys = new int[slots];
+                used = new int[slots];
+                Arrays.fill(keys, EMPTY);
+            }
+            if (masks.length < keys.length * blocks) {
+                masks = new long[keys.length * blocks];
+            }
+            this.blocks = blocks;
+            this.slotMask = keys.length - 1;
+            for (int i = 0; i < m; i++) {
+                final char c = pattern.charAt(i);
+                int slot = c & slotMask;
+                while (keys[slot] != EMPTY && keys[slot] != c) {
+                    slot = (slot + 1) & slotMask;
+                }
+                if (keys[slot] == EMPTY) {
+                    keys[slot] = c;
+                    used[usedSlots++] = slot;
+                }
+                masks[slot * blocks + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+            return this;
         }
-        for (int j = 0; j <= m; j++) {
-            d[0][j] = j;
+
+        long mask(char c, int block) {
+            int slot = c & slotMask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == c) {
+                    return masks[slot * blocks + block];
+                }
+                slot = (slot + 1) & slotMask;
+            }
+            return 0L;
         }
-        return d;
-    }
 
-    private static int min3(int a, int b, int c) {
-        int mi = a;
-        if (b < mi) {
-            mi = b;
+        /**
+         * @return the positive vertical deltas of each block, followed by the negative ones, initialized for a first
+         * column of increasing distances
+         */
+        long[] vectors() {
+            if (vectors.length < 2 * blocks) {
+                vectors = new long[2 * blocks];
+            }
+            Arrays.fill(vectors, 0, blocks, -1L);
+            Arrays.fill(vectors, blocks, 2 * blocks, 0L);
+            return vectors;
         }
-        if (c < mi) {
-            mi = c;
+
+        void clear() {
+            while (usedSlots > 0) {
+                final int slot = used[--usedSlots];
+                keys[slot] = EMPTY;
+                Arrays.fill(masks, slot * blocks, (slot + 1) * blocks, 0L);
+            }
         }
-        return mi;
     }
-
 }
@@ -20,13 +20,28 @@
 package eu.interedition.collatex.matching;
 
 import eu.interedition.collatex.Token;
+import eu.interedition.collatex.simple.NormalizedFormPool;
 import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
 
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
+/**
+ * Deems tokens equal whose normalized forms are within a given edit distance.
+ * <p>
+ * The distinct normalized forms of a collation are indexed once per {@link NormalizedFormPool pool} shared by its
+ * witnesses, so that tokens of witnesses sharing a pool are compared by looking up the near matches of one form in
+ * the {@link #getIndex(NormalizedFormPool) index}, memoized per form, instead of computing edit distances pair by
+ * pair. Instances are not thread-safe; they are meant to be used for one collation at a time.
+ */
 public class EditDistanceTokenComparator implements Comparator<Token> {
 
     private final int threshold;
+    private final Map<NormalizedFormPool, NearMatchIndex> indices = new IdentityHashMap<>();
+    private NormalizedFormPool lastPool;
+    private NearMatchIndex lastIndex;
 
     public EditDistanceTokenComparator() {
         this(1);
@@ -36,11 +51,33 @@ public class EditDistanceTokenComparator implements Comparator<Token> {
         this.threshold = threshold;
     }
 
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return an index of the forms interned in the given pool, updated with the forms added to the pool since the
+     *         last call
+     */
+    public NearMatchIndex getIndex(NormalizedFormPool forms) {
+        if (forms != lastPool) {
+            lastIndex = indices.computeIfAbsent(forms, f -> new NearMatchIndex(Math.max(0, threshold)));
+            lastPool = forms;
+        }
+        for (int id = lastIndex.size(), size = forms.size(); id < size; id++) {
+            lastIndex.add(forms.form(id));
+        }
+        return lastIndex;
+    }
+
     @Override
     public int compare(Token base, Token witness) {
         final String baseContent = ((SimpleToken) base).getNormalized();
         final String witnessContent = ((SimpleToken) witness).getNormalized();
-        return (EditDistance.compute(baseContent, witnessContent) <= threshold) ?
-                0 : baseContent.compareTo(witnessContent);
+        final NormalizedFormPool forms = ((SimpleWitness) witness.getWitness()).getForms();
+        final boolean near = (threshold >= 0 && forms == ((SimpleWitness) base.getWitness()).getForms()
+                ? getIndex(forms).query(baseContent).contains(witnessContent)
+                : EditDistance.compute(baseContent, witnessContent, threshold) <= threshold);
+        return (near ? 0 : baseContent.compareTo(witnessContent));
     }
 }
@@ -24,13 +24,19 @@ import eu.interedition.collatex.simple.SimpleToken;
 
 import java.util.Comparator;
 
-public class EqualityTokenComparator implements Comparator<Token> {
+public class EqualityTokenComparator implements Comparator<Token>, TokenKey {
 
     @Override
     public int compare(Token base, Token witness) {
         final String baseContent = ((SimpleToken) base).getNormalized();
         final String witnessContent = ((SimpleToken) witness).getNormalized();
-        return baseContent.compareTo(witnessContent);
+        // interned forms are identical
+        return (baseContent == witnessContent ? 0 : baseContent.compareTo(witnessContent));
+    }
+
+    @Override
+    public Object key(Token token) {
+        return ((SimpleToken) token).getNormalized();
     }
 
 }
@@ -21,6 +21,8 @@ package eu.interedition.collatex.matching;
 
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
 import eu.interedition.collatex.util.StreamUtil;
 
 import java.util.*;
@@ -39,11 +41,41 @@ public class Matches {
 
         final Map<Token, List<VariantGraph.Vertex>> allMatches = new HashMap<>();
 
-        StreamUtil.stream(vertices).forEach(vertex ->
-                vertex.tokens().stream().findFirst().ifPresent(baseToken ->
-                        StreamUtil.stream(witnessTokens)
-                                .filter(witnessToken -> comparator.compare(baseToken, witnessToken) == 0)
-                                .forEach(matchingToken -> allMatches.computeIfAbsent(matchingToken, t -> new ArrayList<>()).add(vertex))));
+        if (comparator instanceof TokenKey) {
+            // join on hashed keys instead of comparing pairwise
+            final TokenKey tokenKey = (TokenKey) comparator;
+            final Map<Object, List<Token>> witnessKeys = new HashMap<>();
+            StreamUtil.stream(witnessTokens).forEach(witnessToken ->
+                    witnessKeys.computeIfAbsent(tokenKey.key(witnessToken), k -> new ArrayList<>()).add(witnessToken));
+
+            StreamUtil.stream(vertices).forEach(vertex ->
+                    vertex.tokens().stream().findFirst().ifPresent(baseToken ->
+                            witnessKeys.getOrDefault(tokenKey.key(baseToken), Collections.emptyList())
+                                    .forEach(matchingToken -> allMatches.computeIfAbsent(matchingToken, t -> new ArrayList<>()).add(vertex))));
+        } else if (CachingTokenComparator.unwrap(comparator).getClass() == EditDistanceTokenComparator.class) {
+            // look up near matches in the collation's index of distinct normalized forms instead of comparing pairwise
+            final Map<String, List<Token>> witnessForms = new HashMap<>();
+            StreamUtil.stream(witnessTokens).forEach(witnessToken ->
+                    witnessForms.computeIfAbsent(((SimpleToken) witnessToken).getNormalized(), n -> new ArrayList<>()).add(witnessToken));
+
+            if (!witnessForms.isEmpty()) {
+                final EditDistanceTokenComparator editDistance = (EditDistanceTokenComparator) CachingTokenComparator.unwrap(comparator);
+                final Token witnessToken = witnessForms.values().iterator().next().get(0);
+                final NearMatchIndex index = editDistance.getIndex(((SimpleWitness) witnessToken.getWitness()).getForms());
+
+                StreamUtil.stream(vertices).forEach(vertex ->
+                        vertex.tokens().stream().findFirst().ifPresent(baseToken ->
+                                index.query(((SimpleToken) baseToken).getNormalized()).stream()
+                                        .flatMap(form -> witnessForms.getOrDefault(form, Collections.emptyList()).stream())
+                                        .forEach(matchingToken -> allMatches.computeIfAbsent(matchingToken, t -> new ArrayList<>()).add(vertex))));
+            }
+        } else {
+            StreamUtil.stream(vertices).forEach(vertex ->
+                    vertex.tokens().stream().findFirst().ifPresent(baseToken ->
+                            StreamUtil.stream(witnessTokens)
+                                    .filter(witnessToken -> comparator.compare(baseToken, witnessToken) == 0)
+                                    .forEach(matchingToken -> allMatches.computeIfAbsent(matchingToken, t -> new ArrayList<>()).add(vertex))));
+        }
 
         final Set<Token> unmatchedInWitness = StreamUtil.stream(witnessTokens)
                 .filter(t -> !allMatches.containsKey(t))
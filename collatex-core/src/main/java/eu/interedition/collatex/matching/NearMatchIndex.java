@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import java.util.*;
+
+/**
+ * An index of strings, answering which of them are within a given edit distance of a queried string.
+ * <p>
+ * Candidates are found via deletions, as in SymSpell: Two strings are within distance <i>k</i> if deleting at most
+ * <i>k</i> characters from each makes them equal. Every string is indexed under all of its variants with up to
+ * <i>k</i> characters deleted; a query looks up its own variants and verifies the candidates found. The number of
+ * variants grows with the <i>k</i>th power of a string's length, so the index suits the small thresholds of
+ * near-matching tokens.
+ *
+ * @see EditDistanceTokenComparator
+ */
+public class NearMatchIndex {
+
+    private final int threshold;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Map<String, List<String>> strings = new HashMap<>();
+    private final Map<String, List<String>> queries = new HashMap<>();
+
+    public NearMatchIndex(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public NearMatchIndex(Iterable<String> strings, int threshold) {
+        this(threshold);
+        for (String str : strings) {
+            add(str);
+        }
+    }
+
+    /**
+     * Indexes the given string unless it has been indexed before, discarding memoized query results if it has not.
+     */
+    public void add(String str) {
+        if (threshold < 0 || positions.putIfAbsent(str, positions.size()) != null) {
+            return;
+        }
+        for (String deletion : deletions(str)) {
+            strings.computeIfAbsent(deletion, d -> new ArrayList<>(1)).add(str);
+        }
+        queries.clear();
+    }
+
+    /**
+     * @return the number of distinct strings indexed
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * @return the indexed strings within the threshold distance of the given one, in the order they were indexed in;
+     * results are memoized per queried string
+     */
+    public List<String> query(String str) {
+        return queries.computeIfAbsent(str, q -> {
+            final SortedMap<Integer, String> matches = new TreeMap<>();
+            final Set<String> candidates = new HashSet<>();
+            for (String deletion : deletions(q)) {
+                for (String candidate : strings.getOrDefault(deletion, Collections.emptyList())) {
+                    if (candidates.add(candidate) && EditDistance.compute(q, candidate, threshold) <= threshold) {
+                        matches.put(positions.get(candidate), candidate);
+                    }
+                }
+            }
+            return matches.isEmpty() ? Collections.emptyList() : new ArrayList<>(matches.values());
+        });
+    }
+
+    private Set<String> deletions(String str) {
+        final Set<String> deletions = new HashSet<>();
+        deletions.add(str);
+        Set<String> current = deletions;
+        for (int d = 0; d < threshold; d++) {
+            final Set<String> next = new HashSet<>();
+            for (String variant : current) {
+                for (int i = 0; i < variant.length(); i++) {
+                    final String deletion = variant.substring(0, i) + variant.substring(i + 1);
+                    if (deletions.add(deletion)) {
+                        next.add(deletion);
+                    }
+                }
+            }
+            current = next;
+        }
+        return deletions;
+    }
+}
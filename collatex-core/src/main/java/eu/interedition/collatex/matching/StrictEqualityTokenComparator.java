@@ -24,13 +24,18 @@ import eu.interedition.collatex.simple.SimpleToken;
 
 import java.util.Comparator;
 
-public class StrictEqualityTokenComparator implements Comparator<Token> {
+public class StrictEqualityTokenComparator implements Comparator<Token>, TokenKey {
 
     @Override
     public int compare(Token base, Token witness) {
         final String baseContent = ((SimpleToken) base).getContent();
         final String witnessContent = ((SimpleToken) witness).getContent();
-        return baseContent.compareTo(witnessContent);
+        return (baseContent == witnessContent ? 0 : baseContent.compareTo(witnessContent));
+    }
+
+    @Override
+    public Object key(Token token) {
+        return ((SimpleToken) token).getContent();
     }
 
 }
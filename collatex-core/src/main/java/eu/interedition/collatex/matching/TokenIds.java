@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import eu.interedition.collatex.Token;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Assigns dense integer identifiers to classes of tokens (or other symbols) a comparator deems equal, numbered in the
+ * order in which the classes are first seen.
+ * <p>
+ * Classes are looked up via hashing, so the comparator has to provide {@link TokenKey keys}. Other comparators, e.g.
+ * ones based on edit distances, need not be transitive: Which class a token would be assigned to then depends on the
+ * order in which tokens are interned, so tokens compared via them cannot be interned but have to be compared pairwise.
+ */
+public class TokenIds<T> {
+
+    private final Map<Object, Integer> ids;
+    private final Function<T, Object> key;
+
+    private TokenIds(Map<Object, Integer> ids, Function<T, Object> key) {
+        this.ids = ids;
+        this.key = key;
+    }
+
+    /**
+     * @return whether tokens compared via the given comparator can be interned via {@link #of(Comparator)}
+     */
+    public static boolean isKeyed(Comparator<?> comparator) {
+        return (comparator instanceof TokenKey);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the given comparator is not {@link #isKeyed(Comparator) keyed}
+     */
+    public static <T> TokenIds<T> of(Comparator<? super T> comparator) {
+        if (!isKeyed(comparator)) {
+            throw new IllegalArgumentException("Comparator provides no token keys: " + comparator);
+        }
+        // keyed comparators are token comparators
+        final TokenKey tokenKey = (TokenKey) comparator;
+        return new TokenIds<>(new HashMap<>(), t -> tokenKey.key((Token) t));
+    }
+
+    /**
+     * @return the identifier of the given token's class, assigning the next one if it has not been seen before
+     */
+    public int intern(T token) {
+        return ids.computeIfAbsent(key.apply(token), k -> ids.size());
+    }
+
+    /**
+     * @return the identifier of the given token's class, or <code>-1</code> if it has not been seen before
+     */
+    public int get(T token) {
+        return ids.getOrDefault(key.apply(token), -1);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import eu.interedition.collatex.Token;
+
+/**
+ * Implemented by {@link java.util.Comparator token comparators} deeming tokens equal exactly if they share some
+ * hashable key, for example their normalized content.
+ * <p>
+ * Matchers can then group tokens by hashing their keys instead of comparing them pairwise. Comparators which do not
+ * define an equivalence, like {@link EditDistanceTokenComparator}, do not implement it.
+ *
+ * @see TokenIds
+ */
+public interface TokenKey {
+
+    /**
+     * @return the key of the given token, equal to the key of all tokens the comparator deems equal to it and only to
+     * theirs
+     */
+    Object key(Token token);
+}
@@ -19,134 +19,193 @@
 
 package eu.interedition.collatex.medite;
 
+import eu.interedition.collatex.util.IndexedPriorityQueue;
 import eu.interedition.collatex.util.VertexMatch;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.function.Function;
 
 /**
+ * Searches for the optimal subset of matches to align, i. e. the subset of non-crossing matches which leaves the
+ * least value of matches unaligned.
+ * <p>
+ * Decisions are taken match by match, so a node of the decision graph is identified by the index of the match
+ * decided upon and whether it is aligned, giving two node states per match. Paths through the graph are recorded
+ * in primitive arrays; open nodes are kept in an {@link IndexedPriorityQueue} keyed by node state, which updates
+ * the priority of a node reached via a cheaper path in place.
+ *
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
 public class AlignmentDecisionGraph {
 
-    private final List<SortedSet<VertexMatch.WithTokenIndex>> matches;
-    private final Function<SortedSet<VertexMatch.WithTokenIndex>, Integer> matchEvaluator;
-    private final PriorityQueue<Node> bestPaths;
-    private final Map<Node, Integer> minCosts;
+    private final Matches matches;
+
+    private final int[] minCosts;
+    private final int[] estimatedCosts;
+    private final int[] bestPaths;
+    private final int[] heuristicCosts;
+    private final IndexedPriorityQueue open;
 
-    AlignmentDecisionGraph(List<SortedSet<VertexMatch.WithTokenIndex>> matches, Function<SortedSet<VertexMatch.WithTokenIndex>, Integer> matchEvaluator) {
+    private int[] pathStates;
+    private int[] pathPredecessors;
+    private int[] pathCosts;
+    private int paths = 0;
+
+    AlignmentDecisionGraph(Matches matches) {
         this.matches = matches;
-        this.matchEvaluator = matchEvaluator;
-        this.bestPaths = new PriorityQueue<>(matches.size(), Comparator.comparingInt(n -> n.cost));
-        this.minCosts = new HashMap<>();
+
+        final int states = state(matches.size(), false);
+        this.minCosts = new int[states];
+        this.estimatedCosts = new int[states];
+        this.bestPaths = new int[states];
+        this.heuristicCosts = heuristicCosts(matches);
+        this.open = new IndexedPriorityQueue(states, (a, b) -> Integer.compare(estimatedCosts[a], estimatedCosts[b]));
+
+        this.pathStates = new int[states];
+        this.pathPredecessors = new int[states];
+        this.pathCosts = new int[states];
     }
 
-    static SortedSet<SortedSet<VertexMatch.WithTokenIndex>> filter(SortedSet<SortedSet<VertexMatch.WithTokenIndex>> matches, Function<SortedSet<VertexMatch.WithTokenIndex>, Integer> matchEvaluator) {
+    /**
+     * @param matches the matches to decide upon, ordered by their first vertex rank and along with their values
+     */
+    static SortedSet<SortedSet<VertexMatch.WithTokenIndex>> filter(Matches matches) {
         final SortedSet<SortedSet<VertexMatch.WithTokenIndex>> alignments = new TreeSet<>(VertexMatch.<VertexMatch.WithTokenIndex>setComparator());
 
-        final List<SortedSet<VertexMatch.WithTokenIndex>> matchList = new ArrayList<>(matches);
-        Node optimal = new AlignmentDecisionGraph(matchList, matchEvaluator).findBestPath();
-        while (optimal.matchIndex >= 0) {
-            if (optimal.aligned) {
-                alignments.add(matchList.get(optimal.matchIndex));
+        final AlignmentDecisionGraph graph = new AlignmentDecisionGraph(matches);
+        for (int path = graph.findBestPath(); matchIndex(graph.pathStates[path]) >= 0; path = graph.pathPredecessors[path]) {
+            if (aligned(graph.pathStates[path])) {
+                alignments.add(matches.get(matchIndex(graph.pathStates[path])));
             }
-            optimal = optimal.previous;
         }
         return alignments;
     }
 
-    private Node findBestPath() {
-        bestPaths.add(new Node(-1, false));
-        while (!bestPaths.isEmpty()) {
-            final Node current = bestPaths.remove();
-            if (current.matchIndex == matches.size() - 1) {
-                return current;
+    private int findBestPath() {
+        final int start = state(-1, false);
+        bestPaths[start] = path(start, -1, 0);
+        open.offer(start);
+        while (!open.isEmpty()) {
+            final int current = open.poll();
+            final int currentPath = bestPaths[current];
+            final int matchIndex = matchIndex(current);
+            if (matchIndex == matches.size() - 1) {
+                return currentPath;
             }
-            for (Node successor : current.successors()) {
-                final int tentativeCost = cost(current) + cost(successor);
-                if (bestPaths.contains(successor) && tentativeCost >= minCosts.get(successor)) {
+            final int successorIndex = matchIndex + 1;
+            for (int successor : new int[] { state(successorIndex, true), state(successorIndex, false) }) {
+                final int tentativeCost = pathCosts[currentPath] + (aligned(successor) ? 0 : matches.value(successorIndex));
+                if (open.contains(successor) && tentativeCost >= minCosts[successor]) {
                     continue;
                 }
-                minCosts.put(successor, tentativeCost);
-
-                successor.cost = tentativeCost + heuristicCost(successor);
-                successor.previous = current;
-                bestPaths.remove(successor);
-                bestPaths.add(successor);
+                minCosts[successor] = tentativeCost;
+                estimatedCosts[successor] = tentativeCost + heuristicCosts[successorIndex];
+                bestPaths[successor] = path(successor, currentPath, tentativeCost);
+                open.offer(successor);
             }
         }
         throw new IllegalStateException("No optimal alignment found");
     }
 
-    private int heuristicCost(Node path) {
-        final SortedSet<VertexMatch.WithTokenIndex> evaluated = matches.get(path.matchIndex);
-        final VertexMatch.WithTokenIndex lastMatch = evaluated.last();
-
-        int cost = 0;
-        for (SortedSet<VertexMatch.WithTokenIndex> following : matches.subList(path.matchIndex + 1, matches.size())) {
-            final VertexMatch.WithTokenIndex followingFirstMatch = following.first();
-            if (lastMatch.vertexRank < followingFirstMatch.vertexRank && lastMatch.token < followingFirstMatch.token) {
-                // we still can align this following match as the matched components are to the right of this path's last match
-                continue;
-            }
-            // we cannot align this following match, so add it to the cost
-            cost += value(following);
+    private int path(int state, int predecessor, int cost) {
+        if (paths == pathStates.length) {
+            pathStates = Arrays.copyOf(pathStates, paths * 2);
+            pathPredecessors = Arrays.copyOf(pathPredecessors, paths * 2);
+            pathCosts = Arrays.copyOf(pathCosts, paths * 2);
         }
-        return cost;
+        pathStates[paths] = state;
+        pathPredecessors[paths] = predecessor;
+        pathCosts[paths] = cost;
+        return paths++;
     }
 
-    private int cost(Node current) {
-        int cost = 0;
-        while (current != null && current.matchIndex >= 0) {
-            if (!current.aligned) {
-                cost += value(matches.get(current.matchIndex));
-            }
-            current = current.previous;
+    /**
+     * Computes the value of the matches following each match, which cannot be aligned anymore once that match is, in
+     * one backward sweep.
+     * <p>
+     * A following match can still be aligned if it starts to the right of a match's last rank and last token. As
+     * matches are ordered by their first rank, those starting to the right of a given rank form a suffix of the list,
+     * found via binary search. Sweeping the list backwards, the values of the suffix' matches are summed up per first
+     * token in a Fenwick tree, which yields the value of those among them starting to the right of a given token as
+     * well. The cost of a match is the value of all following matches minus the value of the latter.
+     */
+    static int[] heuristicCosts(Matches matches) {
+        final int size = matches.size();
+        final int[] firstRanks = new int[size];
+        final int[] firstTokens = new int[size];
+        int tokens = 0;
+        for (int mc = 0; mc < size; mc++) {
+            final VertexMatch.WithTokenIndex first = matches.get(mc).first();
+            firstRanks[mc] = first.vertexRank;
+            firstTokens[mc] = first.token;
+            tokens = Math.max(tokens, first.token + 1);
         }
-        return cost;
-    }
-
-    private int value(SortedSet<VertexMatch.WithTokenIndex> match) {
-        return matchEvaluator.apply(match);
-    }
-
-    static class Node {
-        final int matchIndex;
-        final boolean aligned;
-        Node previous;
-        int cost;
 
-        Node(int matchIndex, boolean aligned) {
-            this.matchIndex = matchIndex;
-            this.aligned = aligned;
+        // the matches sorted by the start of the suffix of matches which may follow them
+        final int[] suffixStarts = new int[size];
+        final int[] bySuffixStart = new int[size + 1];
+        for (int mc = 0; mc < size; mc++) {
+            suffixStarts[mc] = upperBound(firstRanks, matches.get(mc).last().vertexRank);
+            bySuffixStart[suffixStarts[mc]]++;
+        }
+        for (int sc = size - 1; sc >= 0; sc--) {
+            bySuffixStart[sc] += bySuffixStart[sc + 1];
+        }
+        final int[] queries = new int[size];
+        for (int mc = 0; mc < size; mc++) {
+            queries[--bySuffixStart[suffixStarts[mc]]] = mc;
         }
 
-        Node[] successors() {
-            final int nextIndex = matchIndex + 1;
-            return new Node[]{new Node(nextIndex, true), new Node(nextIndex, false)};
+        final int[] suffixValues = new int[size + 1];
+        for (int mc = size - 1; mc >= 0; mc--) {
+            suffixValues[mc] = suffixValues[mc + 1] + matches.value(mc);
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj != null && obj instanceof Node) {
-                final Node other = (Node) obj;
-                return (matchIndex == other.matchIndex) && (aligned == other.aligned);
+        final int[] costs = new int[size];
+        final int[] tokenValues = new int[tokens + 1];
+        int query = 0;
+        for (int sc = size; sc >= 0; sc--) {
+            if (sc < size) {
+                for (int tc = firstTokens[sc] + 1; tc < tokenValues.length; tc += (tc & -tc)) {
+                    tokenValues[tc] += matches.value(sc);
+                }
+            }
+            for (; query < size && suffixStarts[queries[query]] == sc; query++) {
+                final int mc = queries[query];
+                int alignable = suffixValues[sc];
+                for (int tc = Math.min(matches.get(mc).last().token + 1, tokens); tc > 0; tc -= (tc & -tc)) {
+                    alignable -= tokenValues[tc];
+                }
+                costs[mc] = suffixValues[mc + 1] - alignable;
             }
-            return super.equals(obj);
         }
+        return costs;
+    }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(matchIndex, aligned);
+    private static int upperBound(int[] values, int value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+        return low;
+    }
+
+    private static int state(int matchIndex, boolean aligned) {
+        return ((matchIndex + 1) << 1) | (aligned ? 1 : 0);
     }
 
+    private static int matchIndex(int state) {
+        return (state >> 1) - 1;
+    }
+
+    private static boolean aligned(int state) {
+        return (state & 1) != 0;
+    }
 }
@@ -21,11 +21,13 @@ package eu.interedition.collatex.medite;
 
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.util.IntervalIndex;
 import eu.interedition.collatex.util.VertexMatch;
 
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -33,8 +35,30 @@ import java.util.stream.Stream;
  */
 public class Matches extends ArrayList<SortedSet<VertexMatch.WithTokenIndex>> {
 
+    private int[] values;
+
+    private BitSet retained;
+    private IntervalIndex rankIndex;
+    private IntervalIndex tokenIndex;
+
     public Matches(int initialCapacity) {
         super(initialCapacity);
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * @return the value of the match at the given index, as computed once by the match evaluator
+     */
+    public int value(int index) {
+        return values[index];
+    }
+
+    private void add(SortedSet<VertexMatch.WithTokenIndex> match, int value) {
+        if (size() == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size()] = value;
+        add(match);
     }
 
     public static Matches between(VariantGraph.Vertex[][] vertices, SuffixTree<Token> suffixTree, Function<SortedSet<VertexMatch.WithTokenIndex>, Integer> matchEvaluator) {
@@ -57,7 +81,7 @@ public class Matches extends ArrayList<SortedSet<VertexMatch.WithTokenIndex>> {
             }
         }
 
-        final Matches matches = new Matches(matchThreads.size());
+        final List<SortedSet<VertexMatch.WithTokenIndex>> candidates = new ArrayList<>();
         matchThreads.values().stream().flatMap(List::stream).forEach(matchThreadElement -> {
             final List<SortedSet<VertexMatch.WithTokenIndex>> threadPhrases = new ArrayList<>();
             boolean firstElement = true;
@@ -79,23 +103,32 @@ public class Matches extends ArrayList<SortedSet<VertexMatch.WithTokenIndex>> {
                 }
                 firstElement = false;
             }
-            matches.addAll(threadPhrases);
+            candidates.addAll(threadPhrases);
         });
-        matches.sort(maximalUniqueMatchOrdering(matchEvaluator));
+
+        final int[] values = new int[candidates.size()];
+        for (int cc = 0; cc < values.length; cc++) {
+            values[cc] = matchEvaluator.apply(candidates.get(cc));
+        }
+
+        final Matches matches = new Matches(candidates.size());
+        IntStream.range(0, values.length).boxed()
+                .sorted(maximalUniqueMatchOrdering(candidates, values))
+                .forEach(cc -> matches.add(candidates.get(cc), values[cc]));
 
         return matches;
     }
 
-    private static Comparator<SortedSet<VertexMatch.WithTokenIndex>> maximalUniqueMatchOrdering(final Function<SortedSet<VertexMatch.WithTokenIndex>, Integer> matchEvaluator) {
-        return (o1, o2) -> {
+    private static Comparator<Integer> maximalUniqueMatchOrdering(final List<SortedSet<VertexMatch.WithTokenIndex>> matches, final int[] values) {
+        return (i1, i2) -> {
             // 1. reverse ordering by match value
-            int result = matchEvaluator.apply(o2) - matchEvaluator.apply(o1);
+            int result = values[i2] - values[i1];
             if (result != 0) {
                 return result;
             }
 
-            final VertexMatch.WithTokenIndex firstMatch1 = o1.first();
-            final VertexMatch.WithTokenIndex firstMatch2 = o2.first();
+            final VertexMatch.WithTokenIndex firstMatch1 = matches.get(i1).first();
+            final VertexMatch.WithTokenIndex firstMatch2 = matches.get(i2).first();
 
             // 2. ordering by match distance
             result = (Math.abs(firstMatch1.token - firstMatch1.vertexRank) - Math.abs(firstMatch2.token - firstMatch2.vertexRank));
@@ -116,42 +149,81 @@ public class Matches extends ArrayList<SortedSet<VertexMatch.WithTokenIndex>> {
         };
     }
 
-    public SortedSet<SortedSet<VertexMatch.WithTokenIndex>> findMaximalUniqueMatches() {
-        final List<SortedSet<VertexMatch.WithTokenIndex>> allMatches = new ArrayList<>(this);
-        final SortedSet<SortedSet<VertexMatch.WithTokenIndex>> maximalUniqueMatches = new TreeSet<>(VertexMatch.<VertexMatch.WithTokenIndex>setComparator());
+    /**
+     * Picks maximal unique matches greedily in the order of this list among the matches not yet removed, each time
+     * dropping all remaining matches overlapping the picked one in terms of ranks or tokens.
+     *
+     * @return the picked matches along with their values, ordered by their first vertex rank
+     */
+    public Matches findMaximalUniqueMatches() {
+        index();
+        final BitSet candidates = (BitSet) retained.clone();
+        final IntervalIndex candidateRanks = new IntervalIndex(rankIndex);
+        final IntervalIndex candidateTokens = new IntervalIndex(tokenIndex);
 
-        while (true) {
-            SortedSet<VertexMatch.WithTokenIndex> nextMum = null;
-            SortedSet<VertexMatch.WithTokenIndex> candidate = null;
-            for (SortedSet<VertexMatch.WithTokenIndex> successor : allMatches) {
-                if (candidate == null) {
-                    continue;
-                }
-                if (candidate.size() > successor.size() || candidate.first().token == successor.first().token) {
-                    nextMum = candidate;
-                    break;
-                }
-                candidate = successor;
-            }
-            if (nextMum == null) {
-                nextMum = allMatches.stream().findFirst().orElse(null);
-            }
-            if (nextMum == null) {
-                break;
-            }
-            if (!maximalUniqueMatches.add(nextMum)) {
+        final SortedMap<Integer, Integer> maximalUniqueMatches = new TreeMap<>();
+        for (int mc = candidates.nextSetBit(0); mc >= 0; mc = candidates.nextSetBit(mc + 1)) {
+            final SortedSet<VertexMatch.WithTokenIndex> nextMum = get(mc);
+            if (maximalUniqueMatches.put(nextMum.first().vertexRank, mc) != null) {
                 throw new IllegalStateException("Duplicate MUM");
             }
+            removeOverlapping(nextMum, candidates, candidateRanks, candidateTokens);
+        }
 
-            final BitSet rankFilter = new BitSet();
-            final BitSet tokenFilter = new BitSet();
+        final Matches result = new Matches(maximalUniqueMatches.size());
+        for (int mc : maximalUniqueMatches.values()) {
+            result.add(get(mc), values[mc]);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all matches overlapping the given one in terms of ranks or tokens.
+     * <p>
+     * Removed matches are not dropped from this list but only excluded from further
+     * {@link #findMaximalUniqueMatches() searches for maximal unique matches}, so indices and values stay valid.
+     */
+    public void removeOverlapping(SortedSet<VertexMatch.WithTokenIndex> match) {
+        index();
+        removeOverlapping(match, retained, rankIndex, tokenIndex);
+    }
 
-            rankFilter.set(nextMum.first().vertexRank, nextMum.last().vertexRank + 1);
-            tokenFilter.set(nextMum.first().token, nextMum.last().token + 1);
+    private static void removeOverlapping(SortedSet<VertexMatch.WithTokenIndex> match, BitSet retained, IntervalIndex ranks, IntervalIndex tokens) {
+        final VertexMatch.WithTokenIndex first = match.first();
+        final VertexMatch.WithTokenIndex last = match.last();
+        ranks.removeOverlapping(first.vertexRank, last.vertexRank, removed -> {
+            retained.clear(removed);
+            tokens.remove(removed);
+        });
+        tokens.removeOverlapping(first.token, last.token, removed -> {
+            retained.clear(removed);
+            ranks.remove(removed);
+        });
+    }
 
-            allMatches.removeIf(VertexMatch.filter(rankFilter, tokenFilter));
+    /**
+     * Indexes the rank and token intervals spanned by this list's matches on first use; matches span consecutive
+     * ranks and consecutive tokens.
+     */
+    private void index() {
+        if (retained != null) {
+            return;
+        }
+        final int[] firstRanks = new int[size()];
+        final int[] lastRanks = new int[size()];
+        final int[] firstTokens = new int[size()];
+        final int[] lastTokens = new int[size()];
+        for (int mc = 0; mc < size(); mc++) {
+            final SortedSet<VertexMatch.WithTokenIndex> match = get(mc);
+            firstRanks[mc] = match.first().vertexRank;
+            lastRanks[mc] = match.last().vertexRank;
+            firstTokens[mc] = match.first().token;
+            lastTokens[mc] = match.last().token;
         }
-        return maximalUniqueMatches;
+        this.rankIndex = new IntervalIndex(firstRanks, lastRanks);
+        this.tokenIndex = new IntervalIndex(firstTokens, lastTokens);
+        this.retained = new BitSet(size());
+        this.retained.set(0, size());
     }
 
     /**
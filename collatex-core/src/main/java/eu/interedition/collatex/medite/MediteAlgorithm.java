@@ -26,12 +26,10 @@ import eu.interedition.collatex.util.StreamUtil;
 import eu.interedition.collatex.util.VariantGraphRanking;
 import eu.interedition.collatex.util.VertexMatch;
 
-import java.util.BitSet;
 import java.util.Comparator;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.Function;
-import java.util.stream.IntStream;
 
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
@@ -58,41 +56,52 @@ public class MediteAlgorithm extends CollationAlgorithm.Base {
         final SortedSet<SortedSet<VertexMatch.WithTokenIndex>> matches = new TreeSet<>(VertexMatch.<VertexMatch.WithTokenIndex>setComparator());
 
         while (true) {
-            final SortedSet<SortedSet<VertexMatch.WithTokenIndex>> maximalUniqueMatches = matchCandidates.findMaximalUniqueMatches();
+            final Matches maximalUniqueMatches = matchCandidates.findMaximalUniqueMatches();
             if (maximalUniqueMatches.isEmpty()) {
                 break;
             }
 
-            final BitSet rankFilter = new BitSet();
-            final BitSet tokenFilter = new BitSet();
-
-            for (SortedSet<VertexMatch.WithTokenIndex> phrase : AlignmentDecisionGraph.filter(maximalUniqueMatches, matchEvaluator)) {
-                final VertexMatch.WithTokenIndex firstMatch = phrase.first();
-                final VertexMatch.WithTokenIndex lastMatch = phrase.last();
-
+            for (SortedSet<VertexMatch.WithTokenIndex> phrase : AlignmentDecisionGraph.filter(maximalUniqueMatches)) {
                 matches.add(phrase);
-                IntStream.range(firstMatch.vertexRank, lastMatch.vertexRank + 1).forEach(rankFilter::set);
-                IntStream.range(firstMatch.token, lastMatch.token + 1).forEach(tokenFilter::set);
+                matchCandidates.removeOverlapping(phrase);
             }
-
-            matchCandidates.removeIf(VertexMatch.filter(rankFilter, tokenFilter));
         }
 
         merge(graph, vertices, tokens, matches);
     }
 
+    /**
+     * Evaluates phrases of matches with token indices via a given evaluator of phrases of matches with tokens.
+     * <p>
+     * Evaluators summing up {@link VertexMatch.TokenWeightEvaluator token weights} are evaluated via prefix sums over
+     * the weights of the witness' tokens, as phrases span consecutive tokens; other evaluators are handed the
+     * resolved phrase.
+     */
     static class MatchEvaluatorWrapper implements Function<SortedSet<VertexMatch.WithTokenIndex>, Integer> {
 
         private final Function<SortedSet<VertexMatch.WithToken>, Integer> wrapped;
         private final Function<VertexMatch.WithTokenIndex, VertexMatch.WithToken> tokenResolver;
+        private final int[] weightPrefixSums;
 
         MatchEvaluatorWrapper(final Function<SortedSet<VertexMatch.WithToken>, Integer> wrapped, final Token[] tokens) {
             this.wrapped = wrapped;
             this.tokenResolver = VertexMatch.tokenResolver(tokens);
+            if (wrapped instanceof VertexMatch.TokenWeightEvaluator) {
+                final VertexMatch.TokenWeightEvaluator evaluator = (VertexMatch.TokenWeightEvaluator) wrapped;
+                this.weightPrefixSums = new int[tokens.length + 1];
+                for (int tc = 0; tc < tokens.length; tc++) {
+                    weightPrefixSums[tc + 1] = weightPrefixSums[tc] + evaluator.weight(tokens[tc]);
+                }
+            } else {
+                this.weightPrefixSums = null;
+            }
         }
 
         @Override
         public Integer apply(SortedSet<VertexMatch.WithTokenIndex> input) {
+            if (weightPrefixSums != null) {
+                return weightPrefixSums[input.last().token + 1] - weightPrefixSums[input.first().token];
+            }
             final SortedSet<VertexMatch.WithToken> tokenPhrase = new TreeSet<>();
             for (VertexMatch.WithTokenIndex match : input) {
                 tokenPhrase.add(tokenResolver.apply(match));
@@ -16,9 +16,11 @@
  * You should have received a copy of the GNU General Public License
  * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package eu.interedition.collatex.medite;
 
+import eu.interedition.collatex.matching.TokenIds;
+import eu.interedition.collatex.suffixarray.SAIS;
+
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,31 +35,33 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
+ * A suffix tree over a sequence of symbols.
+ * <p>
+ * If symbols can be {@link TokenIds interned}, i.e. if the comparator is {@link TokenIds#isKeyed(Comparator) keyed},
+ * they are mapped to dense integer identifiers, one per class of symbols the comparator deems equal, and the tree is
+ * simulated top-down on the suffix array of the resulting sequence, built in linear time via {@link SAIS}. Otherwise the comparator need not be transitive, and the tree is built explicitly, each
+ * symbol being compared pairwise with the first member of the classes it might belong to.
+ *
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
-class SuffixTree<T> {
+abstract class SuffixTree<T> {
 
     final Comparator<T> comparator;
-    final Comparator<Integer> sourceComparator;
     final T[] source;
-    final Node root;
 
     @SafeVarargs
     static <T> SuffixTree<T> build(Comparator<T> comparator, T... source) {
-        return new SuffixTree<>(comparator, source).build();
+        return (TokenIds.isKeyed(comparator)
+            ? new Interned<>(comparator, TokenIds.of(comparator), source)
+            : new Pairwise<>(comparator, source).build());
     }
 
-    @SafeVarargs
-    private SuffixTree(Comparator<T> comparator, T... source) {
+    private SuffixTree(Comparator<T> comparator, T[] source) {
         this.comparator = comparator;
-        this.sourceComparator = new SentinelAwareComparator(comparator);
         this.source = source;
-        this.root = new Node();
     }
 
-    public Cursor cursor() {
-        return new Cursor();
-    }
+    public abstract Cursor cursor();
 
     public Iterable<EquivalenceClass> match(final Iterable<T> str) {
         return () -> new Iterator<EquivalenceClass>() {
@@ -80,108 +84,22 @@ class SuffixTree<T> {
         };
     }
 
-
-    private SuffixTree<T> build() {
-        for (int suffixStart = 0; suffixStart <= source.length; suffixStart++) {
-            root.addSuffix(suffixStart);
-        }
-        compactNodes(root);
-        return this;
-    }
-
-    private void compactNodes(Node node) {
-        for (Node child : node.children) {
-            while (child.children.size() == 1) {
-                final Node firstGrandChild = child.children.iterator().next();
-                child.incomingLabel.add(firstGrandChild.incomingLabel.getFirst());
-                child.children = firstGrandChild.children;
-                for (Node formerGrandchild : child.children) {
-                    formerGrandchild.parent = child;
-                }
-            }
-            compactNodes(child);
-        }
-    }
-
-    @Override
-    public String toString() {
-        final StringBuilder sb = new StringBuilder();
-        final Deque<Node> nodes = new ArrayDeque<>(Collections.singleton(root));
-        while (!nodes.isEmpty()) {
-            final Node node = nodes.remove();
-            sb.append(IntStream.range(0, node.depth()).mapToObj(i -> "\t").collect(Collectors.joining())).append(node).append("\n");
-            node.children.forEach(nodes::addFirst);
-        }
-        return sb.toString();
-    }
-
     /**
-     * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+     * The positions of a symbol in the source, which are preceded by the symbols matched so far.
      */
-    class Node {
-
-        final LinkedList<EquivalenceClass> incomingLabel;
-
-        Node parent;
-        List<Node> children = new ArrayList<>();
-
-        public Node(Node parent, int firstIndex) {
-            this.parent = parent;
-            this.incomingLabel = new LinkedList<>(Collections.singleton(new EquivalenceClass(firstIndex)));
-        }
-
-        public Node() {
-            this.parent = null;
-            this.incomingLabel = null;
-        }
-
+    class EquivalenceClass implements Comparable<EquivalenceClass> {
 
-        public int depth() {
-            int depth = 0;
-            for (Node parent = this.parent; parent != null; parent = parent.parent) {
-                depth++;
-            }
-            return depth;
-        }
+        int[] members;
+        int length;
 
-        public void addSuffix(int start) {
-            addSuffix(this, start);
+        EquivalenceClass(int[] members) {
+            this.members = members;
+            this.length = members.length;
         }
 
-        private Node addSuffix(Node node, int start) {
-            for (Node child : node.children) {
-                EquivalenceClass childClass = child.incomingLabel.getFirst();
-                if (childClass.isMember(start)) {
-                    childClass.add(start);
-                    start++;
-                    if (start == (source.length + 1)) {
-                        return child;
-                    }
-                    return addSuffix(child, start);
-                }
-            }
-            while (start <= source.length) {
-                Node child = new Node(node, start);
-                node.children.add(child);
-                node = child;
-                start++;
-            }
-            return node;
-        }
-
-        @Override
-        public String toString() {
-            return Optional.ofNullable(incomingLabel).map(label -> label.stream().map(Object::toString).collect(Collectors.joining(", "))).orElse("");
-        }
-    }
-
-    class EquivalenceClass implements Comparable<EquivalenceClass> {
-
-        int[] members = new int[2];
-        int length = 0;
-
         EquivalenceClass(int first) {
-            members[length++] = first;
+            this.members = new int[2];
+            this.members[length++] = first;
         }
 
         void add(int member) {
@@ -191,14 +109,6 @@ class SuffixTree<T> {
             members[length++] = member;
         }
 
-        boolean isMember(int index) {
-            return sourceComparator.compare(index, members[0]) == 0;
-        }
-
-        public boolean isMember(T symbol) {
-            return (members[0] != source.length && comparator.compare(symbol, source[members[0]]) == 0);
-        }
-
         @Override
         public boolean equals(Object obj) {
             if (obj != null && obj instanceof SuffixTree<?>.EquivalenceClass) {
@@ -226,51 +136,255 @@ class SuffixTree<T> {
 
     }
 
-    class SentinelAwareComparator implements Comparator<Integer> {
+    public abstract class Cursor {
+
+        public abstract Cursor move(T symbol);
 
-        final Comparator<T> comparator;
+        abstract EquivalenceClass matchedClass();
+    }
 
-        SentinelAwareComparator(Comparator<T> comparator) {
-            this.comparator = comparator;
+    /**
+     * A suffix tree simulated on the suffix array of interned symbols. A cursor denotes a node or an edge position of
+     * the (implicit) tree by the interval of suffixes sharing the symbols matched so far; moving it narrows this
+     * interval down via binary search.
+     */
+    static class Interned<T> extends SuffixTree<T> {
+
+        final TokenIds<T> symbolIds;
+        final int[] ids;
+        final int[] suffixes;
+
+        Interned(Comparator<T> comparator, TokenIds<T> symbolIds, T[] source) {
+            super(comparator, source);
+            this.symbolIds = symbolIds;
+            this.ids = new int[source.length];
+            for (int sc = 0; sc < source.length; sc++) {
+                ids[sc] = symbolIds.intern(source[sc]);
+            }
+            this.suffixes = (source.length == 0 ? new int[0] : new SAIS().buildSuffixArray(ids, 0, ids.length));
         }
 
         @Override
-        public int compare(Integer o1, Integer o2) {
-            if (o1 == source.length || o2 == source.length) {
-                return (o2 - o1);
+        public Cursor cursor() {
+            return new IntervalCursor(0, 0, suffixes.length);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.stream(suffixes)
+                .mapToObj(suffix -> Arrays.stream(source, suffix, source.length).map(Object::toString).collect(Collectors.joining(" ")))
+                .collect(Collectors.joining("\n"));
+        }
+
+        class IntervalCursor extends Cursor {
+            final int depth;
+            final int from;
+            final int to;
+            EquivalenceClass matchedClass;
+
+            IntervalCursor(int depth, int from, int to) {
+                this.depth = depth;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            public Cursor move(T symbol) {
+                final int id = symbolIds.get(symbol);
+                if (id < 0) {
+                    return null;
+                }
+                final int from = lowerBound(id);
+                final int to = lowerBound(id + 1);
+                return (from < to ? new IntervalCursor(depth + 1, from, to) : null);
+            }
+
+            /**
+             * @return the first suffix in this cursor's interval whose symbol following the matched ones is not less
+             * than the given one; suffixes without such a symbol (being equal to the matched symbols) come first
+             */
+            private int lowerBound(int id) {
+                int low = from;
+                int high = to;
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    final int position = suffixes[mid] + depth;
+                    if (position < ids.length && ids[position] >= id) {
+                        high = mid;
+                    } else {
+                        low = mid + 1;
+                    }
+                }
+                return low;
+            }
+
+            @Override
+            EquivalenceClass matchedClass() {
+                if (matchedClass == null) {
+                    final int[] members = new int[to - from];
+                    for (int sc = from; sc < to; sc++) {
+                        members[sc - from] = suffixes[sc] + depth - 1;
+                    }
+                    Arrays.sort(members);
+                    matchedClass = new EquivalenceClass(members);
+                }
+                return matchedClass;
             }
-            return comparator.compare(source[o1], source[o2]);
         }
     }
 
-    public class Cursor {
-        final Node node;
-        final int offset;
+    /**
+     * An explicit suffix tree, whose edges are labelled with classes of symbols, a symbol belonging to a class if the
+     * comparator deems it equal to the class' first member.
+     */
+    static class Pairwise<T> extends SuffixTree<T> {
+
+        final Node root = new Node();
 
-        Cursor() {
-            this(root, 0);
+        Pairwise(Comparator<T> comparator, T[] source) {
+            super(comparator, source);
         }
 
-        Cursor(Node node, int offset) {
-            this.node = node;
-            this.offset = offset;
+        private Pairwise<T> build() {
+            for (int suffixStart = 0; suffixStart <= source.length; suffixStart++) {
+                root.addSuffix(suffixStart);
+            }
+            compactNodes(root);
+            return this;
         }
 
-        public Cursor move(T symbol) {
-            if (node.incomingLabel == null || (offset + 1) == node.incomingLabel.size()) {
-                for (Node child : node.children) {
-                    final Cursor next = new Cursor(child, 0);
-                    if (next.matchedClass().isMember(symbol)) {
-                        return next;
+        private void compactNodes(Node node) {
+            for (Node child : node.children) {
+                while (child.children.size() == 1) {
+                    final Node firstGrandChild = child.children.iterator().next();
+                    child.incomingLabel.add(firstGrandChild.incomingLabel.getFirst());
+                    child.children = firstGrandChild.children;
+                    for (Node formerGrandchild : child.children) {
+                        formerGrandchild.parent = child;
                     }
                 }
-                return null;
+                compactNodes(child);
             }
-            return (node.incomingLabel.get(offset + 1).isMember(symbol) ? new Cursor(node, offset + 1) : null);
         }
 
-        EquivalenceClass matchedClass() {
-            return node.incomingLabel.get(offset);
+        /**
+         * @return whether the symbols at the given positions are deemed equal, the end of the source being a sentinel
+         * equal to itself only
+         */
+        private boolean isEqual(int position, int member) {
+            if (position == source.length || member == source.length) {
+                return (position == member);
+            }
+            return comparator.compare(source[position], source[member]) == 0;
+        }
+
+        private boolean isMember(T symbol, EquivalenceClass equivalenceClass) {
+            final int first = equivalenceClass.members[0];
+            return (first != source.length && comparator.compare(symbol, source[first]) == 0);
+        }
+
+        @Override
+        public Cursor cursor() {
+            return new NodeCursor(root, 0);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            final Deque<Node> nodes = new ArrayDeque<>(Collections.singleton(root));
+            while (!nodes.isEmpty()) {
+                final Node node = nodes.remove();
+                sb.append(IntStream.range(0, node.depth()).mapToObj(i -> "\t").collect(Collectors.joining())).append(node).append("\n");
+                node.children.forEach(nodes::addFirst);
+            }
+            return sb.toString();
+        }
+
+        class Node {
+
+            final LinkedList<EquivalenceClass> incomingLabel;
+
+            Node parent;
+            List<Node> children = new ArrayList<>();
+
+            Node(Node parent, int firstIndex) {
+                this.parent = parent;
+                this.incomingLabel = new LinkedList<>(Collections.singleton(new EquivalenceClass(firstIndex)));
+            }
+
+            Node() {
+                this.parent = null;
+                this.incomingLabel = null;
+            }
+
+            int depth() {
+                int depth = 0;
+                for (Node parent = this.parent; parent != null; parent = parent.parent) {
+                    depth++;
+                }
+                return depth;
+            }
+
+            void addSuffix(int start) {
+                Node node = this;
+                while (true) {
+                    Node next = null;
+                    for (Node child : node.children) {
+                        final EquivalenceClass childClass = child.incomingLabel.getFirst();
+                        if (isEqual(start, childClass.members[0])) {
+                            childClass.add(start);
+                            next = child;
+                            break;
+                        }
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    if (++start == (source.length + 1)) {
+                        return;
+                    }
+                    node = next;
+                }
+                while (start <= source.length) {
+                    final Node child = new Node(node, start);
+                    node.children.add(child);
+                    node = child;
+                    start++;
+                }
+            }
+
+            @Override
+            public String toString() {
+                return Optional.ofNullable(incomingLabel).map(label -> label.stream().map(Object::toString).collect(Collectors.joining(", "))).orElse("");
+            }
+        }
+
+        class NodeCursor extends Cursor {
+            final Node node;
+            final int offset;
+
+            NodeCursor(Node node, int offset) {
+                this.node = node;
+                this.offset = offset;
+            }
+
+            @Override
+            public Cursor move(T symbol) {
+                if (node.incomingLabel == null || (offset + 1) == node.incomingLabel.size()) {
+                    for (Node child : node.children) {
+                        if (isMember(symbol, child.incomingLabel.getFirst())) {
+                            return new NodeCursor(child, 0);
+                        }
+                    }
+                    return null;
+                }
+                return (isMember(symbol, node.incomingLabel.get(offset + 1)) ? new NodeCursor(node, offset + 1) : null);
+            }
+
+            @Override
+            EquivalenceClass matchedClass() {
+                return node.incomingLabel.get(offset);
+            }
         }
     }
 }
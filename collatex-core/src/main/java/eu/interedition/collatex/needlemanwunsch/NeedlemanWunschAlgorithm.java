@@ -22,10 +22,13 @@ package eu.interedition.collatex.needlemanwunsch;
 import eu.interedition.collatex.CollationAlgorithm;
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.matching.TokenIds;
+import eu.interedition.collatex.matching.TokenKey;
 import eu.interedition.collatex.util.StreamUtil;
 import eu.interedition.collatex.util.VariantGraphRanking;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
@@ -33,18 +36,6 @@ import java.util.*;
 public class NeedlemanWunschAlgorithm extends CollationAlgorithm.Base {
 
     private final Comparator<Token> comparator;
-    private final NeedlemanWunschScorer<VariantGraph.Vertex[], Token> scorer = new NeedlemanWunschScorer<VariantGraph.Vertex[], Token>() {
-
-        @Override
-        public float score(VariantGraph.Vertex[] a, Token b) {
-            return Arrays.stream(a).map(VariantGraph.Vertex::tokens).flatMap(Set::stream).anyMatch(t -> comparator.compare(t, b) == 0) ? 1 : -1;
-        }
-
-        @Override
-        public float gap() {
-            return -1;
-        }
-    };
 
     public NeedlemanWunschAlgorithm(Comparator<Token> comparator) {
         this.comparator = comparator;
@@ -55,21 +46,20 @@ public class NeedlemanWunschAlgorithm extends CollationAlgorithm.Base {
         final VariantGraph.Vertex[][] ranks = VariantGraphRanking.of(against).asArray();
         final Token[] tokens = StreamUtil.stream(witness).toArray(Token[]::new);
 
+        final RankMatchScorer scorer = RankMatchScorer.of(ranks, tokens, comparator);
+        final int[][] aligned = align(
+                IntStream.range(0, ranks.length).toArray(),
+                IntStream.range(0, tokens.length).toArray(),
+                scorer,
+                RankMatchScorer.GAP
+        );
+
         final Map<Token, VariantGraph.Vertex> alignments = new HashMap<>();
-        for (Map.Entry<VariantGraph.Vertex[], Token> alignment : align(ranks, tokens, scorer).entrySet()) {
-            boolean aligned = false;
-            final Token token = alignment.getValue();
-            for (VariantGraph.Vertex vertex : alignment.getKey()) {
-                for (Token vertexToken : vertex.tokens()) {
-                    if (comparator.compare(vertexToken, token) == 0) {
-                        alignments.put(token, vertex);
-                        aligned = true;
-                        break;
-                    }
-                }
-                if (aligned) {
-                    break;
-                }
+        for (int ac = 0; ac < aligned[0].length; ac++) {
+            final int token = aligned[1][ac];
+            final VariantGraph.Vertex vertex = scorer.matchingVertex(aligned[0][ac], token);
+            if (vertex != null) {
+                alignments.put(tokens[token], vertex);
             }
         }
 
@@ -77,51 +67,177 @@ public class NeedlemanWunschAlgorithm extends CollationAlgorithm.Base {
     }
 
     public static <A, B> Map<A, B> align(A[] a, B[] b, NeedlemanWunschScorer<A, B> scorer) {
+        final int[][] aligned = align(
+                IntStream.range(0, a.length).toArray(),
+                IntStream.range(0, b.length).toArray(),
+                (ai, bi) -> scorer.score(a[ai], b[bi]),
+                scorer.gap()
+        );
 
         final Map<A, B> alignments = new HashMap<>();
-        final float[][] matrix = new float[a.length + 1][b.length + 1];
+        for (int ac = aligned[0].length - 1; ac >= 0; ac--) {
+            alignments.put(a[aligned[0][ac]], b[aligned[1][ac]]);
+        }
+        return alignments;
+    }
 
-        int ac = 0;
-        int bc = 0;
-        while (ac < a.length) {
-            matrix[ac++][0] = scorer.gap() * ac;
+    /**
+     * Aligns two sequences of integer identifiers, i. e. of symbols mapped to a dense integer domain.
+     *
+     * @param a      the identifiers of the first sequence
+     * @param b      the identifiers of the second sequence
+     * @param scorer scores the alignment of two identifiers
+     * @param gap    the (constant) score of a gap
+     * @return two arrays of equal length, pairing the positions in {@code a} with the positions in {@code b} they
+     * are aligned with, in ascending order
+     */
+    public static int[][] align(int[] a, int[] b, NeedlemanWunschScorer.OfInt scorer, float gap) {
+        final int width = b.length + 1;
+        final float[] matrix = new float[(a.length + 1) * width];
+
+        for (int ac = 1; ac <= a.length; ac++) {
+            matrix[ac * width] = gap * ac;
         }
-        while (bc < b.length) {
-            matrix[0][bc++] = scorer.gap() * bc;
+        for (int bc = 1; bc <= b.length; bc++) {
+            matrix[bc] = gap * bc;
         }
 
-        ac = 1;
-        for (A aElement : a) {
-            bc = 1;
-            for (B bElement : b) {
-                final float k = matrix[ac - 1][bc - 1] + scorer.score(aElement, bElement);
-                final float l = matrix[ac - 1][bc] + scorer.gap();
-                final float m = matrix[ac][bc - 1] + scorer.gap();
-                matrix[ac][bc++] = Math.max(Math.max(k, l), m);
+        for (int ac = 1, row = width; ac <= a.length; ac++, row += width) {
+            final int aId = a[ac - 1];
+            for (int bc = 1; bc <= b.length; bc++) {
+                final float k = matrix[row - width + bc - 1] + scorer.score(aId, b[bc - 1]);
+                final float l = matrix[row - width + bc] + gap;
+                final float m = matrix[row + bc - 1] + gap;
+                matrix[row + bc] = Math.max(Math.max(k, l), m);
             }
-            ac++;
         }
 
-        ac = a.length;
-        bc = b.length;
+        final int[] alignedA = new int[Math.min(a.length, b.length)];
+        final int[] alignedB = new int[alignedA.length];
+        int aligned = alignedA.length;
+
+        int ac = a.length;
+        int bc = b.length;
         while (ac > 0 && bc > 0) {
-            final float score = matrix[ac][bc];
-            final float scoreDiag = matrix[ac - 1][bc - 1];
-            final float scoreUp = matrix[ac][bc - 1];
-            final float scoreLeft = matrix[ac - 1][bc];
+            final float score = matrix[ac * width + bc];
+            final float scoreDiag = matrix[(ac - 1) * width + bc - 1];
+            final float scoreUp = matrix[ac * width + bc - 1];
+            final float scoreLeft = matrix[(ac - 1) * width + bc];
 
             if (score == scoreDiag + scorer.score(a[ac - 1], b[bc - 1])) {
                 // match
-                alignments.put(a[ac - 1], b[bc - 1]);
-                ac--;
-                bc--;
-            } else if (score == scoreLeft + scorer.gap()) {
+                aligned--;
+                alignedA[aligned] = --ac;
+                alignedB[aligned] = --bc;
+            } else if (score == scoreLeft + gap) {
                 ac--;
-            } else if (score == scoreUp + scorer.gap()) {
+            } else if (score == scoreUp + gap) {
                 bc--;
             }
         }
 
-        return alignments;
+        return new int[][]{
+                Arrays.copyOfRange(alignedA, aligned, alignedA.length),
+                Arrays.copyOfRange(alignedB, aligned, alignedB.length)
+        };
+    }
+
+    /**
+     * Scores ranks of a variant graph against the tokens of a witness.
+     * <p>
+     * For {@link TokenKey keyed} comparators, tokens are interned into classes of tokens the comparator deems equal;
+     * each witness token is mapped to its class and each rank to the sorted set of classes of its vertices' tokens,
+     * together with the first vertex holding a token of a respective class. Scoring a cell as well as finding the
+     * aligned vertex during traceback thereby become lookups, not scans over vertex tokens. Other comparators need
+     * not be transitive, so their tokens are compared pairwise.
+     */
+    abstract static class RankMatchScorer implements NeedlemanWunschScorer.OfInt {
+
+        static final float GAP = -1;
+
+        static RankMatchScorer of(VariantGraph.Vertex[][] ranks, Token[] tokens, Comparator<Token> comparator) {
+            return (TokenIds.isKeyed(comparator)
+                    ? new InternedRankMatchScorer(ranks, tokens, comparator)
+                    : new PairwiseRankMatchScorer(ranks, tokens, comparator));
+        }
+
+        /**
+         * @return the first vertex of the given rank holding a token that matches the given witness token, or
+         * <code>null</code> if there is none
+         */
+        abstract VariantGraph.Vertex matchingVertex(int rank, int token);
+
+        @Override
+        public float score(int rank, int token) {
+            return (matchingVertex(rank, token) == null ? -1 : 1);
+        }
+    }
+
+    static class InternedRankMatchScorer extends RankMatchScorer {
+
+        private final int[] tokenClasses;
+        private final int[][] rankClasses;
+        private final VariantGraph.Vertex[][] rankVertices;
+
+        InternedRankMatchScorer(VariantGraph.Vertex[][] ranks, Token[] tokens, Comparator<Token> comparator) {
+            final TokenIds<Token> classes = TokenIds.of(comparator);
+            this.tokenClasses = new int[tokens.length];
+            for (int tc = 0; tc < tokens.length; tc++) {
+                tokenClasses[tc] = classes.intern(tokens[tc]);
+            }
+
+            this.rankClasses = new int[ranks.length][];
+            this.rankVertices = new VariantGraph.Vertex[ranks.length][];
+            final Map<Integer, VariantGraph.Vertex> matched = new TreeMap<>();
+            for (int rank = 0; rank < ranks.length; rank++) {
+                matched.clear();
+                for (VariantGraph.Vertex vertex : ranks[rank]) {
+                    for (Token token : vertex.tokens()) {
+                        final int tokenClass = classes.get(token);
+                        if (tokenClass >= 0) {
+                            matched.putIfAbsent(tokenClass, vertex);
+                        }
+                    }
+                }
+                rankClasses[rank] = matched.keySet().stream().mapToInt(Integer::intValue).toArray();
+                rankVertices[rank] = matched.values().toArray(new VariantGraph.Vertex[matched.size()]);
+            }
+        }
+
+        @Override
+        VariantGraph.Vertex matchingVertex(int rank, int token) {
+            final int match = Arrays.binarySearch(rankClasses[rank], tokenClasses[token]);
+            return (match < 0 ? null : rankVertices[rank][match]);
+        }
+
+        @Override
+        public float score(int rank, int token) {
+            return (Arrays.binarySearch(rankClasses[rank], tokenClasses[token]) < 0 ? -1 : 1);
+        }
+    }
+
+    static class PairwiseRankMatchScorer extends RankMatchScorer {
+
+        private final VariantGraph.Vertex[][] ranks;
+        private final Token[] tokens;
+        private final Comparator<Token> comparator;
+
+        PairwiseRankMatchScorer(VariantGraph.Vertex[][] ranks, Token[] tokens, Comparator<Token> comparator) {
+            this.ranks = ranks;
+            this.tokens = tokens;
+            this.comparator = comparator;
+        }
+
+        @Override
+        VariantGraph.Vertex matchingVertex(int rank, int token) {
+            for (VariantGraph.Vertex vertex : ranks[rank]) {
+                for (Token vertexToken : vertex.tokens()) {
+                    if (comparator.compare(vertexToken, tokens[token]) == 0) {
+                        return vertex;
+                    }
+                }
+            }
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
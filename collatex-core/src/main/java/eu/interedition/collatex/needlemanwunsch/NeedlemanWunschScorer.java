@@ -27,4 +27,15 @@ public interface NeedlemanWunschScorer<A, B> {
     float score(A a, B b);
 
     float gap();
+
+    /**
+     * Scores the alignment of symbols mapped to integer identifiers, sparing the boxing of the generic variant.
+     *
+     * @see NeedlemanWunschAlgorithm#align(int[], int[], OfInt, float)
+     */
+    @FunctionalInterface
+    interface OfInt {
+
+        float score(int a, int b);
+    }
 }
@@ -0,0 +1,533 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
+import eu.interedition.collatex.util.AlignmentTable;
+import eu.interedition.collatex.util.VariantGraphRanking;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * A compact, versioned binary format for variant graphs along with their alignment table, and a read-only view on
+ * data in this format, answering queries directly from its &ndash; possibly memory-mapped &ndash; buffer without
+ * deserializing the graph.
+ * <p>
+ * Data consists of big-endian 32-bit integers: a header with a magic number, the format version and the sizes of all
+ * sections, followed by the sections as flat arrays, in this order:
+ * <ol>
+ * <li>witnesses: the sigil of each witness, ordered by sigil</li>
+ * <li>vertices: the rank of each vertex in topological order, and the start offsets of their tokens</li>
+ * <li>edges in compressed sparse row format: the start offsets of each vertex' outgoing edges, their targets and
+ * the witnesses traversing them as a bitset of one or more words per edge</li>
+ * <li>tokens, grouped by vertex: witness, position in the witness, content and normalized content</li>
+ * <li>transpositions: the start offsets of each group of transposed vertices, and their members</li>
+ * <li>the alignment table: the rank of each column, the start offsets of each cell, column by column and witness by
+ * witness, and their tokens</li>
+ * <li>strings: the start offsets of each string and their UTF-8 encoded bytes</li>
+ * </ol>
+ * Vertices, tokens, witnesses, transpositions and strings are referred to by their index.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class BinaryVariantGraph {
+
+    public static final String MEDIA_TYPE = "application/x-collatex-variant-graph";
+
+    /**
+     * The bytes "CXVG".
+     */
+    public static final int MAGIC = 0x43585647;
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 14;
+
+    private final ByteBuffer data;
+
+    private final int witnessCount;
+    private final int vertexCount;
+    private final int transpositionCount;
+    private final int columnCount;
+    private final int start;
+    private final int end;
+    private final int words;
+
+    private final int sigla;
+    private final int ranks;
+    private final int vertexTokens;
+    private final int edgeStarts;
+    private final int edgeTargets;
+    private final int edgeWitnesses;
+    private final int tokenWitnesses;
+    private final int tokenPositions;
+    private final int tokenContents;
+    private final int tokenNormalized;
+    private final int transpositionStarts;
+    private final int transpositionMembers;
+    private final int columnRanks;
+    private final int cellStarts;
+    private final int cellTokens;
+    private final int stringStarts;
+    private final int strings;
+
+    private BinaryVariantGraph(ByteBuffer data) throws IOException {
+        this.data = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (this.data.remaining() < HEADER_SIZE * 4 || header(0) != MAGIC) {
+            throw new IOException("Not a variant graph");
+        }
+        if (header(1) != VERSION) {
+            throw new IOException("Unsupported variant graph format version " + header(1));
+        }
+        this.witnessCount = header(2);
+        this.vertexCount = header(3);
+        final int edgeCount = header(4);
+        final int tokenCount = header(5);
+        this.transpositionCount = header(6);
+        final int transpositionMemberCount = header(7);
+        this.columnCount = header(8);
+        final int cellTokenCount = header(9);
+        final int stringCount = header(10);
+        final int stringBytes = header(11);
+        this.start = header(12);
+        this.end = header(13);
+        this.words = words(witnessCount);
+
+        long offset = this.data.position() + HEADER_SIZE * 4L;
+        this.sigla = (int) offset;
+        this.ranks = (int) (offset += 4L * witnessCount);
+        this.vertexTokens = (int) (offset += 4L * vertexCount);
+        this.edgeStarts = (int) (offset += 4L * (vertexCount + 1));
+        this.edgeTargets = (int) (offset += 4L * (vertexCount + 1));
+        this.edgeWitnesses = (int) (offset += 4L * edgeCount);
+        this.tokenWitnesses = (int) (offset += 4L * edgeCount * words);
+        this.tokenPositions = (int) (offset += 4L * tokenCount);
+        this.tokenContents = (int) (offset += 4L * tokenCount);
+        this.tokenNormalized = (int) (offset += 4L * tokenCount);
+        this.transpositionStarts = (int) (offset += 4L * tokenCount);
+        this.transpositionMembers = (int) (offset += 4L * (transpositionCount + 1));
+        this.columnRanks = (int) (offset += 4L * transpositionMemberCount);
+        this.cellStarts = (int) (offset += 4L * columnCount);
+        this.cellTokens = (int) (offset += 4L * ((long) columnCount * witnessCount + 1));
+        this.stringStarts = (int) (offset += 4L * cellTokenCount);
+        this.strings = (int) (offset += 4L * (stringCount + 1));
+        if (offset + stringBytes > this.data.limit()) {
+            throw new IOException("Truncated variant graph");
+        }
+    }
+
+    /**
+     * Maps the given file into memory; the returned view stays valid after the file has been closed.
+     */
+    public static BinaryVariantGraph open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new BinaryVariantGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads from the given buffer's position on, without copying it.
+     */
+    public static BinaryVariantGraph of(ByteBuffer data) throws IOException {
+        return new BinaryVariantGraph(data);
+    }
+
+    public int witnessCount() {
+        return witnessCount;
+    }
+
+    public String sigil(int witness) {
+        return string(get(sigla, witness));
+    }
+
+    /**
+     * @return the witness with the given sigil, or <code>-1</code> if there is none
+     */
+    public int witness(String sigil) {
+        int low = 0;
+        int high = witnessCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int result = sigil(mid).compareTo(sigil);
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    public int rank(int vertex) {
+        return get(ranks, vertex);
+    }
+
+    public int[] tokens(int vertex) {
+        final int from = get(vertexTokens, vertex);
+        final int[] tokens = new int[get(vertexTokens, vertex + 1) - from];
+        for (int tc = 0; tc < tokens.length; tc++) {
+            tokens[tc] = from + tc;
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the targets of the given vertex' outgoing edges
+     */
+    public int[] outgoing(int vertex) {
+        return values(edgeStarts, vertex, edgeTargets);
+    }
+
+    /**
+     * @return the vertices traversed by the given witness between start and end vertex
+     */
+    public int[] path(int witness) {
+        final int word = witness >>> 5;
+        final int bit = 1 << (witness & 31);
+
+        int[] path = new int[16];
+        int length = 0;
+        for (int vertex = start; vertex != end; ) {
+            int next = -1;
+            for (int ec = get(edgeStarts, vertex), el = get(edgeStarts, vertex + 1); ec < el; ec++) {
+                if ((get(edgeWitnesses, ec * words + word) & bit) != 0) {
+                    next = get(edgeTargets, ec);
+                    break;
+                }
+            }
+            if (next < 0) {
+                throw new IllegalArgumentException("Witness " + witness + " does not traverse the graph");
+            }
+            if (next != end) {
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = next;
+            }
+            vertex = next;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    public int witness(int token) {
+        return get(tokenWitnesses, token);
+    }
+
+    /**
+     * @return the token's position in its witness, or <code>-1</code> if it has none
+     */
+    public int position(int token) {
+        return get(tokenPositions, token);
+    }
+
+    public String content(int token) {
+        return string(get(tokenContents, token));
+    }
+
+    public String normalized(int token) {
+        return string(get(tokenNormalized, token));
+    }
+
+    public int transpositionCount() {
+        return transpositionCount;
+    }
+
+    public int[] transposition(int transposition) {
+        return values(transpositionStarts, transposition, transpositionMembers);
+    }
+
+    /**
+     * @return the number of columns, i.e. segments, of the alignment table
+     */
+    public int columns() {
+        return columnCount;
+    }
+
+    public int columnRank(int column) {
+        return get(columnRanks, column);
+    }
+
+    /**
+     * @return the tokens of the given witness aligned in the given column of the alignment table
+     */
+    public int[] cell(int column, int witness) {
+        return values(cellStarts, column * witnessCount + witness, cellTokens);
+    }
+
+    private int[] values(int starts, int index, int section) {
+        final int from = get(starts, index);
+        final int[] values = new int[get(starts, index + 1) - from];
+        for (int vc = 0; vc < values.length; vc++) {
+            values[vc] = get(section, from + vc);
+        }
+        return values;
+    }
+
+    private String string(int string) {
+        final int from = get(stringStarts, string);
+        final byte[] bytes = new byte[get(stringStarts, string + 1) - from];
+        final ByteBuffer source = data.duplicate();
+        source.position(strings + from);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int header(int index) {
+        return data.getInt(data.position() + index * 4);
+    }
+
+    private int get(int section, int index) {
+        return data.getInt(section + index * 4);
+    }
+
+    private static int words(int witnessCount) {
+        return Math.max(1, (witnessCount + 31) >>> 5);
+    }
+
+    /**
+     * Writes the given graph, its ranking and alignment table in this format, section by section.
+     */
+    public static void write(VariantGraph graph, VariantGraphRanking ranking, AlignmentTable table, OutputStream stream) throws IOException {
+        final List<Witness> witnesses = table.getWitnesses();
+        final Map<Witness, Integer> witnessIds = new HashMap<>();
+        for (Witness witness : witnesses) {
+            witnessIds.put(witness, witnessIds.size());
+        }
+        final int words = words(witnesses.size());
+
+        final List<VariantGraph.Vertex> vertices = new ArrayList<>();
+        final Map<VariantGraph.Vertex, Integer> vertexIds = new HashMap<>();
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            vertexIds.put(vertex, vertices.size());
+            vertices.add(vertex);
+        }
+
+        final Comparator<Token> tokenOrder = Comparator
+                .comparingInt((Token t) -> witnessIds.get(t.getWitness()))
+                .thenComparingInt(t -> t instanceof SimpleToken ? ((SimpleToken) t).getPosition() : -1);
+        final List<Token> tokens = new ArrayList<>();
+        final Map<Token, Integer> tokenIds = new HashMap<>();
+        for (VariantGraph.Vertex vertex : vertices) {
+            vertex.tokens().stream().sorted(tokenOrder).forEach(token -> {
+                tokenIds.put(token, tokens.size());
+                tokens.add(token);
+            });
+        }
+
+        int edgeCount = 0;
+        for (VariantGraph.Vertex vertex : vertices) {
+            edgeCount += vertex.outgoingEdges().size();
+        }
+
+        final List<int[]> transpositions = new ArrayList<>();
+        int transpositionMemberCount = 0;
+        for (Set<VariantGraph.Vertex> transposition : graph.transpositions()) {
+            final int[] members = transposition.stream().mapToInt(vertexIds::get).sorted().toArray();
+            transpositions.add(members);
+            transpositionMemberCount += members.length;
+        }
+        transpositions.sort(BinaryVariantGraph::compare);
+
+        int cellTokenCount = 0;
+        for (int column = 0; column < table.columns(); column++) {
+            for (int wc = 0; wc < witnesses.size(); wc++) {
+                cellTokenCount += table.cell(column, wc).size();
+            }
+        }
+
+        final Map<String, Integer> stringIds = new LinkedHashMap<>();
+        final List<byte[]> strings = new ArrayList<>();
+        final int[] stringBytes = new int[1];
+        final ToIntFunction<String> string = s -> stringIds.computeIfAbsent(s, k -> {
+            final byte[] bytes = k.getBytes(StandardCharsets.UTF_8);
+            strings.add(bytes);
+            stringBytes[0] += bytes.length;
+            return strings.size() - 1;
+        });
+        final int[] sigla = witnesses.stream().map(Witness::getSigil).mapToInt(string).toArray();
+        final int[] contents = new int[tokens.size()];
+        final int[] normalized = new int[tokens.size()];
+        for (int tc = 0; tc < contents.length; tc++) {
+            final Token token = tokens.get(tc);
+            final boolean simple = token instanceof SimpleToken;
+            contents[tc] = string.applyAsInt(simple ? ((SimpleToken) token).getContent() : "");
+            normalized[tc] = string.applyAsInt(simple ? ((SimpleToken) token).getNormalized() : "");
+        }
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        for (int value : new int[] {
+                MAGIC, VERSION, witnesses.size(), vertices.size(), edgeCount, tokens.size(), transpositions.size(),
+                transpositionMemberCount, table.columns(), cellTokenCount, strings.size(), stringBytes[0],
+                vertexIds.get(graph.getStart()), vertexIds.get(graph.getEnd())
+        }) {
+            out.writeInt(value);
+        }
+
+        // witnesses
+        for (int sigil : sigla) {
+            out.writeInt(sigil);
+        }
+
+        // vertices
+        for (VariantGraph.Vertex vertex : vertices) {
+            out.writeInt(ranking.apply(vertex));
+        }
+        int offset = 0;
+        for (VariantGraph.Vertex vertex : vertices) {
+            out.writeInt(offset);
+            offset += vertex.tokens().size();
+        }
+        out.writeInt(offset);
+
+        // edges
+        final List<List<Map.Entry<VariantGraph.Vertex, VariantGraph.Edge>>> edges = new ArrayList<>(vertices.size());
+        offset = 0;
+        for (VariantGraph.Vertex vertex : vertices) {
+            final List<Map.Entry<VariantGraph.Vertex, VariantGraph.Edge>> outgoing = new ArrayList<>(vertex.outgoingEdges().entrySet());
+            outgoing.sort(Comparator.comparingInt(e -> vertexIds.get(e.getKey())));
+            edges.add(outgoing);
+            out.writeInt(offset);
+            offset += outgoing.size();
+        }
+        out.writeInt(offset);
+        for (List<Map.Entry<VariantGraph.Vertex, VariantGraph.Edge>> outgoing : edges) {
+            for (Map.Entry<VariantGraph.Vertex, VariantGraph.Edge> edge : outgoing) {
+                out.writeInt(vertexIds.get(edge.getKey()));
+            }
+        }
+        final int[] bitset = new int[words];
+        for (List<Map.Entry<VariantGraph.Vertex, VariantGraph.Edge>> outgoing : edges) {
+            for (Map.Entry<VariantGraph.Vertex, VariantGraph.Edge> edge : outgoing) {
+                Arrays.fill(bitset, 0);
+                for (Witness witness : edge.getValue().sigla) {
+                    final int id = witnessIds.get(witness);
+                    bitset[id >>> 5] |= 1 << (id & 31);
+                }
+                for (int word : bitset) {
+                    out.writeInt(word);
+                }
+            }
+        }
+
+        // tokens
+        for (Token token : tokens) {
+            out.writeInt(witnessIds.get(token.getWitness()));
+        }
+        for (Token token : tokens) {
+            out.writeInt(token instanceof SimpleToken ? ((SimpleToken) token).getPosition() : -1);
+        }
+        for (int content : contents) {
+            out.writeInt(content);
+        }
+        for (int content : normalized) {
+            out.writeInt(content);
+        }
+
+        // transpositions
+        offset = 0;
+        for (int[] transposition : transpositions) {
+            out.writeInt(offset);
+            offset += transposition.length;
+        }
+        out.writeInt(offset);
+        for (int[] transposition : transpositions) {
+            for (int member : transposition) {
+                out.writeInt(member);
+            }
+        }
+
+        // alignment table
+        for (int column = 0; column < table.columns(); column++) {
+            out.writeInt(table.rank(column));
+        }
+        offset = 0;
+        for (int column = 0; column < table.columns(); column++) {
+            for (int wc = 0; wc < witnesses.size(); wc++) {
+                out.writeInt(offset);
+                offset += table.cell(column, wc).size();
+            }
+        }
+        out.writeInt(offset);
+        for (int column = 0; column < table.columns(); column++) {
+            for (int wc = 0; wc < witnesses.size(); wc++) {
+                for (Token token : table.cell(column, wc)) {
+                    out.writeInt(tokenIds.get(token));
+                }
+            }
+        }
+
+        // strings
+        offset = 0;
+        for (byte[] bytes : strings) {
+            out.writeInt(offset);
+            offset += bytes.length;
+        }
+        out.writeInt(offset);
+        for (byte[] bytes : strings) {
+            out.write(bytes);
+        }
+
+        out.flush();
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0, l = Math.min(a.length, b.length); i < l; i++) {
+            final int result = Integer.compare(a[i], b[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import eu.interedition.collatex.Token;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A witness storing its tokens in columns rather than as individual objects: its text is held once, along with arrays
+ * of each token's start and end offset in the text and of the identifier of each token's
+ * {@link NormalizedFormPool interned} normalized form.
+ * <p>
+ * Tokens are exposed as flyweight {@link SimpleToken simple tokens}, created on access and equal if they denote the
+ * same position in the same witness, so collation algorithms can process this witness like any other. Algorithms
+ * aware of it may read the {@link #getNormalizedIds() identifiers of normalized forms} directly instead.
+ * <p>
+ * Setting the tokens of a columnar witness rebuilds its columns: {@link #setTokenOffsets(String, int[], Function)
+ * Offsets} are stored as they are, {@link #setTokens(List) simple tokens} are copied into a new text and each
+ * token's normalized form is taken over, or interned anew if the token comes from a witness with another pool.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class ColumnarWitness extends SimpleWitness {
+
+    private String text;
+    private int[] starts;
+    private int[] ends;
+    private int[] normalizedIds;
+    private final List<Token> tokens = new Views();
+
+    public ColumnarWitness(String sigil, String text) {
+        this(sigil, new NormalizedFormPool(), text, SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT, SimpleTokenNormalizers.LC_TRIM_WS);
+    }
+
+    /**
+     * @param tokenizer  an offset tokenizer like {@link SimplePatternTokenizer#OFFSETS_BY_WS_OR_PUNCT}
+     * @param normalizer derives the normalized form of a token from its content
+     */
+    public ColumnarWitness(String sigil,
+                           NormalizedFormPool forms,
+                           String text,
+                           Function<String, int[]> tokenizer,
+                           Function<String, String> normalizer) {
+        super(sigil, forms);
+        setTokenOffsets(text, tokenizer.apply(text), normalizer);
+    }
+
+    private ColumnarWitness(String sigil, NormalizedFormPool forms, String text, int[] starts, int[] ends, int[] normalizedIds) {
+        super(sigil, forms);
+        this.text = text;
+        this.starts = starts;
+        this.ends = ends;
+        this.normalizedIds = normalizedIds;
+    }
+
+    /**
+     * @return a builder of a witness whose tokens are appended one by one, e.g. while streaming a document
+     */
+    public static Builder builder(String sigil, NormalizedFormPool forms, Function<String, String> normalizer) {
+        return new Builder(sigil, forms, normalizer);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the identifiers of the normalized forms of this witness' tokens, in the {@link #getForms() pool} of
+     *         this witness; not to be modified
+     */
+    public int[] getNormalizedIds() {
+        return normalizedIds;
+    }
+
+    public int size() {
+        return normalizedIds.length;
+    }
+
+    @Override
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    @Override
+    public Iterator<Token> iterator() {
+        return tokens.iterator();
+    }
+
+    @Override
+    public void setTokenOffsets(String text, int[] offsets, Function<String, String> normalizer) {
+        final NormalizedFormPool forms = getForms();
+        final int[] starts = new int[offsets.length / 2];
+        final int[] ends = new int[offsets.length / 2];
+        final int[] normalizedIds = new int[offsets.length / 2];
+        for (int tc = 0; tc < starts.length; tc++) {
+            starts[tc] = offsets[tc * 2];
+            ends[tc] = offsets[tc * 2 + 1];
+            normalizedIds[tc] = (normalizer instanceof FusedTokenNormalizer
+                    ? ((FusedTokenNormalizer) normalizer).intern(text, starts[tc], ends[tc], forms)
+                    : forms.intern(normalizer.apply(text.substring(starts[tc], ends[tc]))));
+        }
+        this.text = text;
+        this.starts = starts;
+        this.ends = ends;
+        this.normalizedIds = normalizedIds;
+    }
+
+    /**
+     * @throws IllegalArgumentException if one of the given tokens is not a {@link SimpleToken simple token}
+     */
+    @Override
+    public void setTokens(List<Token> tokens) {
+        final NormalizedFormPool forms = getForms();
+        final StringBuilder text = new StringBuilder();
+        final int[] starts = new int[tokens.size()];
+        final int[] ends = new int[tokens.size()];
+        final int[] normalizedIds = new int[tokens.size()];
+        for (int tc = 0; tc < normalizedIds.length; tc++) {
+            final Token token = tokens.get(tc);
+            if (!(token instanceof SimpleToken)) {
+                throw new IllegalArgumentException("Not a simple token: " + token);
+            }
+            final SimpleToken simpleToken = (SimpleToken) token;
+            starts[tc] = text.length();
+            text.append(simpleToken.getContent());
+            ends[tc] = text.length();
+            normalizedIds[tc] = (((SimpleWitness) simpleToken.getWitness()).getForms() == forms
+                    ? simpleToken.getNormalizedId()
+                    : forms.intern(simpleToken.getNormalized()));
+        }
+        this.text = text.toString();
+        this.starts = starts;
+        this.ends = ends;
+        this.normalizedIds = normalizedIds;
+    }
+
+    private class Views extends AbstractList<Token> {
+
+        @Override
+        public Token get(int index) {
+            return new View(index);
+        }
+
+        @Override
+        public int size() {
+            return normalizedIds.length;
+        }
+    }
+
+    private class View extends SimpleToken {
+
+        private View(int position) {
+            super(ColumnarWitness.this, text, starts[position], ends[position], normalizedIds[position], position);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof View) {
+                final View other = (View) obj;
+                return getWitness() == other.getWitness() && getPosition() == other.getPosition();
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * getWitness().hashCode() + getPosition();
+        }
+    }
+
+    /**
+     * Appends the content of each token to the witness text, followed by a space separating it from the next one.
+     */
+    public static class Builder {
+
+        private final String sigil;
+        private final NormalizedFormPool forms;
+        private final Function<String, String> normalizer;
+
+        private final StringBuilder text = new StringBuilder();
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private int[] normalizedIds = new int[1024];
+        private int size = 0;
+
+        private Builder(String sigil, NormalizedFormPool forms, Function<String, String> normalizer) {
+            this.sigil = sigil;
+            this.forms = forms;
+            this.normalizer = normalizer;
+        }
+
+        /**
+         * Adds a token unless its normalized form is empty, e.g. punctuation with punctuation trimmed; such tokens
+         * would match one another wherever they occur.
+         */
+        public Builder add(CharSequence content) {
+            final int start = text.length();
+            text.append(content).append(' ');
+            final int end = text.length();
+            final int normalizedId = (normalizer instanceof FusedTokenNormalizer
+                    ? ((FusedTokenNormalizer) normalizer).internNonEmpty(text, start, end, forms)
+                    : internNonEmpty(normalizer.apply(text.substring(start, end))));
+            if (normalizedId < 0) {
+                text.setLength(start);
+                return this;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                normalizedIds = Arrays.copyOf(normalizedIds, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            normalizedIds[size] = normalizedId;
+            size++;
+            return this;
+        }
+
+        private int internNonEmpty(String normalized) {
+            return (normalized == null || normalized.isEmpty() ? -1 : forms.intern(normalized));
+        }
+
+        public ColumnarWitness build() {
+            return new ColumnarWitness(sigil, forms, text.toString(),
+                    Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), Arrays.copyOf(normalizedIds, size));
+        }
+    }
+}
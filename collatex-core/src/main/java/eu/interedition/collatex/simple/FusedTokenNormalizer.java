@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes token contents in a single pass over their characters, composing lower-casing, trimming, stripping of
+ * punctuation and optional folding of Unicode characters to their base characters.
+ * <p>
+ * Contents consisting of ASCII characters are normalized via precomputed character tables, copying at most once; if
+ * nothing is to be changed, the content itself is returned. Other contents are normalized step by step via the
+ * respective methods of the JDK, which yields the same results.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ * @see SimpleTokenNormalizers#builder()
+ */
+public class FusedTokenNormalizer implements Function<String, String> {
+
+    private static final Pattern ASCII_PUNCT = Pattern.compile("\\p{Punct}");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final char[] LOWER = new char[128];
+    private static final boolean[] PUNCT = new boolean[128];
+    private static final boolean[] WS_OR_PUNCT = new boolean[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            LOWER[c] = Character.toLowerCase(c);
+            PUNCT[c] = ASCII_PUNCT.matcher(Character.toString(c)).matches();
+            WS_OR_PUNCT[c] = SimpleTokenNormalizers.isWhitespaceOrPunctuation(c);
+        }
+    }
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private final boolean lowerCase;
+    private final boolean trimWhitespace;
+    private final boolean trimWhitespaceAndPunctuation;
+    private final boolean stripPunctuation;
+    private final boolean foldUnicode;
+    private final boolean emptyToContent;
+
+    private FusedTokenNormalizer(Builder builder) {
+        this.lowerCase = builder.lowerCase;
+        this.trimWhitespace = builder.trimWhitespace;
+        this.trimWhitespaceAndPunctuation = builder.trimWhitespaceAndPunctuation;
+        this.stripPunctuation = builder.stripPunctuation;
+        this.foldUnicode = builder.foldUnicode;
+        this.emptyToContent = builder.emptyToContent;
+    }
+
+    @Override
+    public String apply(String content) {
+        final int length = normalize(content, 0, content.length());
+        if (length < 0) {
+            return normalizeStepwise(content);
+        }
+        final Buffer buffer = BUFFER.get();
+        return (buffer.unchanged ? content : new String(buffer.chars, 0, length));
+    }
+
+    /**
+     * Normalizes a range of the given text and interns the result, without copying it to a string if it has been
+     * interned before.
+     *
+     * @return the identifier of the normalized form in the given pool
+     */
+    public int intern(CharSequence text, int start, int end, NormalizedFormPool forms) {
+        final int length = normalize(text, start, end);
+        if (length < 0) {
+            return forms.intern(normalizeStepwise(text.subSequence(start, end).toString()));
+        }
+        return forms.intern(BUFFER.get().chars, 0, length);
+    }
+
+    /**
+     * Like {@link #intern(CharSequence, int, int, NormalizedFormPool)}, but leaves an empty normalized form out of the
+     * pool.
+     *
+     * @return the identifier of the normalized form in the given pool, or <code>-1</code> if the form is empty
+     */
+    int internNonEmpty(CharSequence text, int start, int end, NormalizedFormPool forms) {
+        final int length = normalize(text, start, end);
+        if (length < 0) {
+            final String normalized = normalizeStepwise(text.subSequence(start, end).toString());
+            return (normalized.isEmpty() ? -1 : forms.intern(normalized));
+        }
+        return (length == 0 ? -1 : forms.intern(BUFFER.get().chars, 0, length));
+    }
+
+    /**
+     * Normalizes the given range of text into this thread's buffer, noting whether the normalized form equals the
+     * range.
+     *
+     * @return the length of the normalized form in the buffer, or <code>-1</code> if the range has to be normalized
+     *         stepwise
+     */
+    private int normalize(CharSequence text, int start, int end) {
+        if (lowerCase && asciiLowerCaseDiffers()) {
+            return -1;
+        }
+        for (int cc = start; cc < end; cc++) {
+            if (text.charAt(cc) >= 128) {
+                return -1;
+            }
+        }
+
+        final Buffer buffer = BUFFER.get();
+        if (buffer.chars.length < (end - start)) {
+            buffer.chars = new char[Math.max(end - start, buffer.chars.length * 2)];
+        }
+        final char[] normalized = buffer.chars;
+
+        int from = start;
+        int to = end;
+        if (trimWhitespace) {
+            while (from < to && text.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && text.charAt(to - 1) <= ' ') {
+                to--;
+            }
+        }
+        if (trimWhitespaceAndPunctuation) {
+            while (from < to && WS_OR_PUNCT[text.charAt(from)]) {
+                from++;
+            }
+            while (to > from && WS_OR_PUNCT[text.charAt(to - 1)]) {
+                to--;
+            }
+        }
+
+        int length = 0;
+        boolean changed = (from != start || to != end);
+        for (int cc = from; cc < to; cc++) {
+            final char c = text.charAt(cc);
+            if (stripPunctuation && PUNCT[c]) {
+                changed = true;
+                continue;
+            }
+            final char n = (lowerCase ? LOWER[c] : c);
+            changed = changed || (n != c);
+            normalized[length++] = n;
+        }
+
+        if (length == 0 && emptyToContent) {
+            for (int cc = start; cc < end; cc++) {
+                normalized[cc - start] = text.charAt(cc);
+            }
+            length = end - start;
+            changed = false;
+        }
+        buffer.unchanged = !changed;
+        return length;
+    }
+
+    private String normalizeStepwise(String content) {
+        String normalized = content;
+        if (trimWhitespace) {
+            normalized = normalized.trim();
+        }
+        if (lowerCase) {
+            normalized = normalized.toLowerCase();
+        }
+        if (trimWhitespaceAndPunctuation) {
+            normalized = SimpleTokenNormalizers.TRIM_WS_PUNCT.apply(normalized);
+        }
+        if (stripPunctuation) {
+            normalized = ASCII_PUNCT.matcher(normalized).replaceAll("");
+        }
+        if (foldUnicode) {
+            normalized = MARKS.matcher(Normalizer.normalize(normalized, Normalizer.Form.NFD)).replaceAll("");
+        }
+        return (normalized.isEmpty() && emptyToContent ? content : normalized);
+    }
+
+    /**
+     * Lower-casing ASCII characters depends on the default locale in the case of Turkic languages.
+     */
+    private static boolean asciiLowerCaseDiffers() {
+        final String language = Locale.getDefault().getLanguage();
+        return "tr".equals(language) || "az".equals(language);
+    }
+
+    private static class Buffer {
+        char[] chars = new char[64];
+        boolean unchanged;
+    }
+
+    public static class Builder {
+
+        private boolean lowerCase = false;
+        private boolean trimWhitespace = false;
+        private boolean trimWhitespaceAndPunctuation = false;
+        private boolean stripPunctuation = false;
+        private boolean foldUnicode = false;
+        private boolean emptyToContent = false;
+
+        /**
+         * Lower-cases characters like {@link String#toLowerCase()}.
+         */
+        public Builder lowerCase() {
+            this.lowerCase = true;
+            return this;
+        }
+
+        /**
+         * Trims whitespace like {@link String#trim()}.
+         */
+        public Builder trimWhitespace() {
+            this.trimWhitespace = true;
+            return this;
+        }
+
+        /**
+         * Trims characters matched by {@link SimpleTokenNormalizers#isWhitespaceOrPunctuation(char)}.
+         */
+        public Builder trimWhitespaceAndPunctuation() {
+            this.trimWhitespaceAndPunctuation = true;
+            return this;
+        }
+
+        /**
+         * Removes all ASCII punctuation characters, i.e. the ones matched by <code>\p{Punct}</code>.
+         */
+        public Builder stripPunctuation() {
+            this.stripPunctuation = true;
+            return this;
+        }
+
+        /**
+         * Decomposes characters and removes combining marks, e.g. normalizing "é" to "e".
+         */
+        public Builder foldUnicode() {
+            this.foldUnicode = true;
+            return this;
+        }
+
+        /**
+         * Yields the content itself instead of an empty normalized form.
+         */
+        public Builder emptyToContent() {
+            this.emptyToContent = true;
+            return this;
+        }
+
+        public FusedTokenNormalizer build() {
+            return new FusedTokenNormalizer(this);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import java.util.Arrays;
+
+/**
+ * Interns the normalized forms of tokens, so that tokens sharing a form reference one canonical instance of it and
+ * can be told apart by a dense integer identifier.
+ * <p>
+ * Witnesses built for one collation should share a pool; identifiers are only comparable among tokens whose
+ * witnesses do. Witnesses not given a pool explicitly get one of their own.
+ * <p>
+ * Forms already interned are looked up without locking, as are the forms of given identifiers; only adding a form
+ * takes the pool's lock. Both the table of forms and the open-addressing table of identifiers are only ever written
+ * to before the size is raised, or replaced by a grown copy, so readers which observe an identifier below the size
+ * also observe its form.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class NormalizedFormPool {
+
+    private volatile String[] forms = new String[16];
+    private volatile int size = 0;
+
+    // open-addressing table of identifiers incremented by one, zero marking free slots
+    private volatile int[] table = new int[32];
+
+    /**
+     * @return the identifier of the given form, assigning the next one if it has not been interned before
+     */
+    public int intern(String form) {
+        final int hash = form.hashCode();
+        final int id = find(form, hash);
+        return (id >= 0 ? id : add(form, hash));
+    }
+
+    /**
+     * Interns the form given as a range of characters, only copying them to a string if the form has not been
+     * interned before.
+     *
+     * @return the identifier of the given form, assigning the next one if it has not been interned before
+     */
+    public int intern(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int cc = offset, end = offset + length; cc < end; cc++) {
+            hash = 31 * hash + chars[cc];
+        }
+        final int[] table = this.table;
+        for (int slot = hash & (table.length - 1); ; slot = (slot + 1) & (table.length - 1)) {
+            final int id = table[slot] - 1;
+            if (id < 0 || id >= size) {
+                // not interned yet, or interned concurrently
+                return add(new String(chars, offset, length), hash);
+            }
+            if (equals(forms[id], chars, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return the identifier of the given form, or <code>-1</code> if it has not been interned yet or is being
+     *         interned concurrently
+     */
+    private int find(String form, int hash) {
+        final int[] table = this.table;
+        for (int slot = hash & (table.length - 1); ; slot = (slot + 1) & (table.length - 1)) {
+            final int id = table[slot] - 1;
+            if (id < 0 || id >= size) {
+                return -1;
+            }
+            if (forms[id].equals(form)) {
+                return id;
+            }
+        }
+    }
+
+    private synchronized int add(String form, int hash) {
+        int[] table = this.table;
+        for (int slot = hash & (table.length - 1); ; slot = (slot + 1) & (table.length - 1)) {
+            final int id = table[slot] - 1;
+            if (id >= 0) {
+                if (forms[id].equals(form)) {
+                    return id;
+                }
+                continue;
+            }
+            final int added = size;
+            String[] forms = this.forms;
+            if (added == forms.length) {
+                forms = this.forms = Arrays.copyOf(forms, added * 2);
+            }
+            forms[added] = form;
+            if ((added + 1) * 2 > table.length) {
+                this.table = rehash(forms, added + 1, table.length * 2);
+            } else {
+                table[slot] = added + 1;
+            }
+            size = added + 1;
+            return added;
+        }
+    }
+
+    private static int[] rehash(String[] forms, int size, int length) {
+        final int[] table = new int[length];
+        for (int id = 0; id < size; id++) {
+            int slot = forms[id].hashCode() & (length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (length - 1);
+            }
+            table[slot] = id + 1;
+        }
+        return table;
+    }
+
+    private static boolean equals(String form, char[] chars, int offset, int length) {
+        if (form.length() != length) {
+            return false;
+        }
+        for (int cc = 0; cc < length; cc++) {
+            if (form.charAt(cc) != chars[offset + cc]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the canonical instance of the form with the given identifier
+     */
+    public String form(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(id));
+        }
+        return forms[id];
+    }
+
+    /**
+     * @return the canonical instance of the given form
+     */
+    public String canonical(String form) {
+        return form(intern(form));
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -20,8 +20,10 @@
 package eu.interedition.collatex.simple;
 
 import eu.interedition.collatex.CollationAlgorithm;
+import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
 
+import java.util.Comparator;
 import java.util.List;
 
 public class SimpleCollation {
@@ -29,11 +31,20 @@ public class SimpleCollation {
     private final List<SimpleWitness> witnesses;
     private final CollationAlgorithm algorithm;
     private final boolean joined;
+    private final Comparator<Token> comparator;
 
     public SimpleCollation(List<SimpleWitness> witnesses, CollationAlgorithm algorithm, boolean joined) {
+        this(witnesses, algorithm, joined, null);
+    }
+
+    /**
+     * @param comparator the token comparator the algorithm has been configured with, if it is known
+     */
+    public SimpleCollation(List<SimpleWitness> witnesses, CollationAlgorithm algorithm, boolean joined, Comparator<Token> comparator) {
         this.witnesses = witnesses;
         this.algorithm = algorithm;
         this.joined = joined;
+        this.comparator = comparator;
     }
 
     public List<SimpleWitness> getWitnesses() {
@@ -48,6 +59,13 @@ public class SimpleCollation {
         return joined;
     }
 
+    /**
+     * @return the token comparator the algorithm has been configured with, or <code>null</code> if it is not known
+     */
+    public Comparator<Token> getComparator() {
+        return comparator;
+    }
+
     public VariantGraph collate(VariantGraph graph) {
         algorithm.collate(graph, witnesses);
         if (joined) {
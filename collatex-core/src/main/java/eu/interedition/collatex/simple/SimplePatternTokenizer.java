@@ -19,11 +19,9 @@
 
 package eu.interedition.collatex.simple;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -32,23 +30,160 @@ import java.util.stream.Stream;
  */
 public class SimplePatternTokenizer {
 
-    static final String PUNCT = Pattern.quote(".?!,;:");
-
-    static Function<String, Stream<String>> tokenizer(Pattern pattern) {
+    /**
+     * @return a tokenizer yielding the contents of the tokens found by the given offset tokenizer
+     */
+    static Function<String, Stream<String>> tokenizer(Function<String, int[]> offsets) {
         return input -> {
-            final Matcher matcher = pattern.matcher(input);
-            final List<String> tokens = new LinkedList<>();
-            while (matcher.find()) {
-                tokens.add(input.substring(matcher.start(), matcher.end()));
-            }
-            return tokens.stream();
+            final int[] tokenOffsets = offsets.apply(input);
+            return IntStream.range(0, tokenOffsets.length / 2).mapToObj(tc -> input.substring(tokenOffsets[tc * 2], tokenOffsets[tc * 2 + 1]));
         };
     }
 
-    public static final Function<String, Stream<String>> BY_WHITESPACE = tokenizer(Pattern.compile("\\s*?\\S+\\s*]"));
+    /**
+     * Offset tokenizers do not copy token contents but yield the start (inclusive) and end offset (exclusive) of each
+     * token in the input, alternating in one array.
+     * <p>
+     * This one scans for runs of punctuation or of other non-whitespace characters, each followed by whitespace;
+     * equivalent to
+     * matching <code>[.?!,;:]+\s*|[^.?!,;:\s]+\s*</code>.
+     */
+    public static final Function<String, int[]> OFFSETS_BY_WS_OR_PUNCT = input -> {
+        final Offsets offsets = new Offsets(input.length());
+        final int length = input.length();
+        int pos = 0;
+        while (pos < length && isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        while (pos < length) {
+            final int start = pos;
+            final boolean punct = isPunctuation(input.charAt(pos));
+            while (pos < length && !isWhitespace(input.charAt(pos)) && isPunctuation(input.charAt(pos)) == punct) {
+                pos++;
+            }
+            while (pos < length && isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            offsets.add(start, pos);
+        }
+        return offsets.toArray();
+    };
+
+    /**
+     * Scans for runs of characters other than whitespace and punctuation, along with the whitespace and punctuation
+     * surrounding them; equivalent to matching <code>[\s.?!,;:]*?[^\s.?!,;:]+[\s.?!,;:]*</code>.
+     */
+    public static final Function<String, int[]> OFFSETS_BY_WS_AND_PUNCT = input -> {
+        final Offsets offsets = new Offsets(input.length());
+        final int length = input.length();
+        int pos = 0;
+        while (pos < length) {
+            final int start = pos;
+            while (pos < length && isSeparator(input.charAt(pos))) {
+                pos++;
+            }
+            if (pos == length) {
+                break;
+            }
+            while (pos < length && !isSeparator(input.charAt(pos))) {
+                pos++;
+            }
+            while (pos < length && isSeparator(input.charAt(pos))) {
+                pos++;
+            }
+            offsets.add(start, pos);
+        }
+        return offsets.toArray();
+    };
+
+    /**
+     * Scans for runs of non-whitespace characters, each followed by whitespace, the first one also preceded by the
+     * whitespace the input starts with; equivalent to matching <code>\s*?\S+\s*</code>.
+     */
+    public static final Function<String, int[]> OFFSETS_BY_WHITESPACE = input -> {
+        final Offsets offsets = new Offsets(input.length());
+        final int length = input.length();
+        int pos = 0;
+        while (pos < length) {
+            final int start = pos;
+            while (pos < length && isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            if (pos == length) {
+                break;
+            }
+            while (pos < length && !isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            while (pos < length && isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            offsets.add(start, pos);
+        }
+        return offsets.toArray();
+    };
 
-    public static final Function<String, Stream<String>> BY_WS_AND_PUNCT = tokenizer(Pattern.compile("[\\s" + PUNCT + "]*?[^\\s" + PUNCT + "]+[\\s" + PUNCT + "]*"));
+    public static final Function<String, Stream<String>> BY_WHITESPACE = tokenizer(OFFSETS_BY_WHITESPACE);
 
-    public static final Function<String, Stream<String>> BY_WS_OR_PUNCT = tokenizer(Pattern.compile("[" + PUNCT + "]+[\\s]*|[^" + PUNCT + "\\s]+[\\s]*"));
+    public static final Function<String, Stream<String>> BY_WS_AND_PUNCT = tokenizer(OFFSETS_BY_WS_AND_PUNCT);
 
-}
\ No newline at end of file
+    public static final Function<String, Stream<String>> BY_WS_OR_PUNCT = tokenizer(OFFSETS_BY_WS_OR_PUNCT);
+
+    /**
+     * @return whether the given character is matched by <code>\s</code>
+     */
+    static boolean isWhitespace(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isPunctuation(char c) {
+        switch (c) {
+            case '.':
+            case '?':
+            case '!':
+            case ',':
+            case ';':
+            case ':':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return isWhitespace(c) || isPunctuation(c);
+    }
+
+    private static class Offsets {
+
+        private int[] offsets;
+        private int length = 0;
+
+        private Offsets(int inputLength) {
+            // a guess at the average token length, including trailing whitespace
+            this.offsets = new int[Math.max(2, inputLength / 3)];
+        }
+
+        private void add(int start, int end) {
+            if (length + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[length++] = start;
+            offsets[length++] = end;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(offsets, length);
+        }
+    }
+}
@@ -30,19 +30,71 @@ import java.util.stream.Collectors;
 
 public class SimpleToken implements Token, Comparable<SimpleToken> {
     private final SimpleWitness witness;
-    private final String content;
+    private final String source;
+    private final int start;
+    private final int end;
+    private String content;
     private final String normalized;
+    private final int normalizedId;
+    private int position = -1;
 
+    /**
+     * Creates a token whose normalized form is interned in the {@link SimpleWitness#getForms() pool} of the given
+     * witness.
+     */
     public SimpleToken(SimpleWitness witness, String content, String normalized) {
+        final NormalizedFormPool forms = witness.getForms();
         this.witness = witness;
+        this.source = null;
+        this.start = 0;
+        this.end = content.length();
         this.content = content;
-        this.normalized = normalized;
+        this.normalizedId = forms.intern(normalized);
+        this.normalized = forms.form(normalizedId);
+    }
+
+    /**
+     * Creates a token whose content is the given range of a witness' text, only to be copied from it when
+     * {@link #getContent() requested}.
+     */
+    public SimpleToken(SimpleWitness witness, String source, int start, int end, String normalized) {
+        final NormalizedFormPool forms = witness.getForms();
+        this.witness = witness;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.normalizedId = forms.intern(normalized);
+        this.normalized = forms.form(normalizedId);
+    }
+
+    /**
+     * Creates a token whose normalized form has been interned already, e.g. as a view on a
+     * {@link ColumnarWitness columnar witness}.
+     */
+    SimpleToken(SimpleWitness witness, String source, int start, int end, int normalizedId, int position) {
+        this.witness = witness;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.normalizedId = normalizedId;
+        this.normalized = witness.getForms().form(normalizedId);
+        this.position = position;
     }
 
     public String getContent() {
+        if (content == null) {
+            content = source.substring(start, end);
+        }
         return content;
     }
 
+    /**
+     * @return the length of this token's content, without materializing it
+     */
+    public int getContentLength() {
+        return end - start;
+    }
+
     @Override
     public Witness getWitness() {
         return witness;
@@ -52,9 +104,31 @@ public class SimpleToken implements Token, Comparable<SimpleToken> {
         return normalized;
     }
 
+    /**
+     * @return the identifier of this token's normalized form, comparable to the ones of tokens whose witnesses share
+     *         a {@link NormalizedFormPool pool} with this token's witness
+     */
+    public int getNormalizedId() {
+        return normalizedId;
+    }
+
+    /**
+     * @return the index of this token in its witness, or <code>-1</code> if it has not been added to the witness
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Assigns this token its index in its witness, as {@link SimpleWitness#setTokens(java.util.List) set} by the latter.
+     */
+    void setPosition(int position) {
+        this.position = position;
+    }
+
     @Override
     public String toString() {
-        return witness.toString() + ":" + witness.getTokens().indexOf(this) + ":'" + normalized + "'";
+        return witness.toString() + ":" + position + ":'" + normalized + "'";
     }
 
     public static String toString(Iterable<? extends Token> tokens) {
@@ -71,11 +145,6 @@ public class SimpleToken implements Token, Comparable<SimpleToken> {
         return witness.compare(this, o);
     }
 
-    public static final Function<SortedSet<VertexMatch.WithToken>, Integer> TOKEN_MATCH_EVALUATOR = input -> {
-        int value = 0;
-        for (VertexMatch.WithToken match : input) {
-            value += ((SimpleToken) match.token).getContent().length();
-        }
-        return value;
-    };
+    public static final Function<SortedSet<VertexMatch.WithToken>, Integer> TOKEN_MATCH_EVALUATOR =
+            (VertexMatch.TokenWeightEvaluator) token -> ((SimpleToken) token).getContentLength();
 }
@@ -57,7 +57,14 @@ public class SimpleTokenNormalizers {
         }
     }
 
-    public static final Function<String, String> LC_TRIM_WS_PUNCT = LOWER_CASE.andThen(TRIM_WS_PUNCT);
+    public static final Function<String, String> LC_TRIM_WS_PUNCT = builder().lowerCase().trimWhitespaceAndPunctuation().build();
 
-    public static final Function<String, String> LC_TRIM_WS = LOWER_CASE.andThen(TRIM_WS);
+    public static final Function<String, String> LC_TRIM_WS = builder().lowerCase().trimWhitespace().build();
+
+    /**
+     * @return a builder of normalizers composing several normalization steps in a single pass over token contents
+     */
+    public static FusedTokenNormalizer.Builder builder() {
+        return new FusedTokenNormalizer.Builder();
+    }
 }
@@ -23,17 +23,21 @@ import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
 import eu.interedition.collatex.Witness;
 import eu.interedition.collatex.dekker.Tuple;
-import eu.interedition.collatex.util.ParallelSegmentationApparatus;
+import eu.interedition.collatex.util.AlignmentTable;
+import eu.interedition.collatex.util.RankedVariantGraph;
 import eu.interedition.collatex.util.StreamUtil;
+import eu.interedition.collatex.util.VariantGraphLayout;
 import eu.interedition.collatex.util.VariantGraphRanking;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -53,8 +57,9 @@ public class SimpleVariantGraphSerializer {
 
     private final VariantGraph graph;
     private final Function<Iterable<Token>, String> tokensToString;
-    private final Map<VariantGraph.Vertex, Integer> vertexIds = new HashMap<>();
     private VariantGraphRanking ranking;
+    private RankedVariantGraph ranked;
+    private AlignmentTable table;
 
     public SimpleVariantGraphSerializer(VariantGraph graph) {
         this(graph, SIMPLE_TOKEN_TO_STRING);
@@ -66,126 +71,79 @@ public class SimpleVariantGraphSerializer {
     }
 
     public void toTEI(final XMLStreamWriter xml) throws XMLStreamException {
-        try {
-            ParallelSegmentationApparatus.generate(ranking(), new ParallelSegmentationApparatus.GeneratorCallback() {
-                @Override
-                public void start() {
-                    try {
-                        xml.writeStartElement("cx", "apparatus", COLLATEX_NS);
-                        xml.writeNamespace("cx", COLLATEX_NS);
-                        xml.writeNamespace("", TEI_NS);
-                    } catch (XMLStreamException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+        final AlignmentTable table = getAlignmentTable();
+        final List<Witness> witnesses = table.getWitnesses();
 
-                @Override
-                public void segment(SortedMap<Witness, Iterable<Token>> contents) {
-                    final Map<String, Set<Witness>> segments = new LinkedHashMap<>();
-                    contents.forEach((witness, tokens) -> segments.computeIfAbsent(tokensToString.apply(tokens).trim(), k -> new HashSet<>()).add(witness));
-
-                    final Set<String> segmentContents = segments.keySet();
-                    try {
-                        if (segmentContents.size() == 1) {
-                            xml.writeCharacters(segmentContents.stream().findFirst().get());
-                        } else {
-                            xml.writeStartElement("", "app", TEI_NS);
-                            for (String segment : segmentContents) {
-                                final StringBuilder witnesses = new StringBuilder();
-                                for (Witness witness : segments.get(segment)) {
-                                    witnesses.append(witness.getSigil()).append(" ");
-                                }
-                                if (segment.length() == 0) {
-                                    xml.writeEmptyElement("", "rdg", TEI_NS);
-                                } else {
-                                    xml.writeStartElement("", "rdg", TEI_NS);
-                                }
-
-                                xml.writeAttribute("wit", witnesses.toString().trim());
-
-                                if (segment.length() > 0) {
-                                    xml.writeCharacters(segment);
-                                    xml.writeEndElement();
-                                }
-                            }
-                            xml.writeEndElement();
-                        }
-                    } catch (XMLStreamException e) {
-                        throw new RuntimeException(e);
+        xml.writeStartElement("cx", "apparatus", COLLATEX_NS);
+        xml.writeNamespace("cx", COLLATEX_NS);
+        xml.writeNamespace("", TEI_NS);
+
+        for (int column = 0; column < table.columns(); column++) {
+            final Map<String, Set<Witness>> segments = new LinkedHashMap<>();
+            for (int wc = 0; wc < witnesses.size(); wc++) {
+                segments.computeIfAbsent(tokensToString.apply(table.cell(column, wc)).trim(), k -> new LinkedHashSet<>()).add(witnesses.get(wc));
+            }
+
+            final Set<String> segmentContents = segments.keySet();
+            if (segmentContents.size() == 1) {
+                xml.writeCharacters(segmentContents.stream().findFirst().get());
+            } else {
+                xml.writeStartElement("", "app", TEI_NS);
+                for (String segment : segmentContents) {
+                    final StringBuilder segmentWitnesses = new StringBuilder();
+                    for (Witness witness : segments.get(segment)) {
+                        segmentWitnesses.append(witness.getSigil()).append(" ");
+                    }
+                    if (segment.length() == 0) {
+                        xml.writeEmptyElement("", "rdg", TEI_NS);
+                    } else {
+                        xml.writeStartElement("", "rdg", TEI_NS);
                     }
-                }
 
-                @Override
-                public void end() {
-                    try {
+                    xml.writeAttribute("wit", segmentWitnesses.toString().trim());
+
+                    if (segment.length() > 0) {
+                        xml.writeCharacters(segment);
                         xml.writeEndElement();
-                    } catch (XMLStreamException e) {
-                        throw new RuntimeException(e);
                     }
                 }
-            });
-        } catch (RuntimeException re) {
-            Throwable rootCause = re;
-            for (Throwable cause = re; cause != null; cause = cause.getCause()) {
-                rootCause = cause;
-            }
-            if (rootCause instanceof XMLStreamException) {
-                throw (XMLStreamException) rootCause;
+                xml.writeEndElement();
             }
-            throw re;
         }
+
+        xml.writeEndElement();
     }
 
     public void toCsv(final Writer out) throws IOException {
-        try {
-            ParallelSegmentationApparatus.generate(ranking(), new ParallelSegmentationApparatus.GeneratorCallback() {
-                @Override
-                public void start() {
-                    try {
-                        for (Iterator<Witness> it = graph.witnesses().stream().sorted(Witness.SIGIL_COMPARATOR).iterator(); it.hasNext(); ) {
-                            out.write(escapeCsvField(it.next().getSigil()));
-                            if (it.hasNext()) {
-                                out.write(",");
-                            }
-                        }
-                        out.write("\r\n");
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+        final AlignmentTable table = getAlignmentTable();
+        final List<Witness> witnesses = table.getWitnesses();
 
-                @Override
-                public void segment(SortedMap<Witness, Iterable<Token>> contents) {
-                    try {
-                        for (Iterator<Witness> witnessIt = contents.keySet().iterator(); witnessIt.hasNext(); ) {
-                            out.write(escapeCsvField(tokensToString.apply(contents.getOrDefault(witnessIt.next(), Collections.emptySet()))));
-                            if (witnessIt.hasNext()) {
-                                out.write(",");
-                            }
-                        }
-                        out.write("\r\n");
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+        for (Iterator<Witness> it = witnesses.iterator(); it.hasNext(); ) {
+            out.write(escapeCsvField(it.next().getSigil()));
+            if (it.hasNext()) {
+                out.write(",");
+            }
+        }
+        out.write("\r\n");
 
-                @Override
-                public void end() {
-                }
-            });
-        } catch (Throwable t) {
-            for (Throwable cause = t; cause != null; cause = cause.getCause()) {
-                if (cause instanceof IOException) {
-                    throw (IOException) cause;
+        for (int column = 0; column < table.columns(); column++) {
+            for (int wc = 0; wc < witnesses.size(); wc++) {
+                if (wc > 0) {
+                    out.write(",");
                 }
+                out.write(escapeCsvField(tokensToString.apply(table.cell(column, wc))));
             }
-            if (t instanceof RuntimeException) {
-                throw (RuntimeException) t;
-            }
-            throw new RuntimeException(t);
+            out.write("\r\n");
         }
     }
 
+    /**
+     * Writes the graph along with its alignment table in the {@link BinaryVariantGraph binary format}.
+     */
+    public void toBinary(OutputStream out) throws IOException {
+        BinaryVariantGraph.write(graph, ranking(), getAlignmentTable(), out);
+    }
+
     static final Pattern CSV_SPECIAL_CHARS = Pattern.compile("[\r\n\",]");
 
     static String escapeCsvField(String content) {
@@ -196,20 +154,35 @@ public class SimpleVariantGraphSerializer {
         final PrintWriter out = new PrintWriter(writer);
         final String indent = "  ";
         final String connector = " -> ";
+        final RankedVariantGraph ranked = ranked();
+
+        final String[] sigla = new String[ranked.labelCount()];
+        for (int lc = 0; lc < sigla.length; lc++) {
+            sigla[lc] = escapeDotLabel(ranked.label(lc));
+        }
 
         out.println("digraph G {");
 
-        for (VariantGraph.Vertex v : graph.vertices()) {
-            out.print(indent + id(v));
-            out.print(" [label = \"" + toDotLabel(v) + "\"]");
-            out.println(";");
+        for (int vc = 0; vc < ranked.vertexCount(); vc++) {
+            out.print(indent);
+            out.print('v');
+            out.print(vc);
+            out.print(" [label = \"");
+            out.print(toDotLabel(ranked.vertex(vc)));
+            out.println("\"];");
         }
 
-        for (VariantGraph.Vertex v : graph.vertices()) {
-            for (Map.Entry<VariantGraph.Vertex, Set<Witness>> e : v.outgoing().entrySet()) {
-                out.print(indent + id(v) + connector + id(e.getKey()));
-                out.print(" [label = \"" + toDotLabel(e.getValue()) + "\"]");
-                out.println(";");
+        for (int vc = 0; vc < ranked.vertexCount(); vc++) {
+            for (int ec = ranked.edges(vc), end = ranked.edges(vc + 1); ec < end; ec++) {
+                out.print(indent);
+                out.print('v');
+                out.print(vc);
+                out.print(connector);
+                out.print('v');
+                out.print(ranked.target(ec));
+                out.print(" [label = \"");
+                out.print(sigla[ranked.siglaId(ec)]);
+                out.println("\"];");
             }
         }
 
@@ -235,22 +208,32 @@ public class SimpleVariantGraphSerializer {
     }
 
     private int numericId(VariantGraph.Vertex vertex) {
-        Integer id = vertexIds.computeIfAbsent(vertex, k -> vertexIds.size());
-        return id;
-    }
-
-    String toDotLabel(Set<Witness> e) {
-        return escapeDotLabel(e.stream().map(Witness::getSigil).distinct().sorted().collect(Collectors.joining(", ")));
+        return ranked().id(vertex);
     }
 
     String toDotLabel(VariantGraph.Vertex v) {
         return escapeDotLabel(vertexToString.apply(v));
     }
 
+    static final Pattern DOT_SPECIAL_CHARS = Pattern.compile("[\"\n\r]");
+
     static String escapeDotLabel(String string) {
+        if (!DOT_SPECIAL_CHARS.matcher(string).find()) {
+            return string;
+        }
         return string.replaceAll("\"", "\\\\\"").replaceAll("[\n\r]+", "\u00B6");
     }
 
+    /**
+     * @return the alignment table of the graph, computed once for all serializations
+     */
+    public AlignmentTable getAlignmentTable() {
+        if (table == null) {
+            table = AlignmentTable.of(ranking());
+        }
+        return table;
+    }
+
     VariantGraphRanking ranking() {
         if (ranking == null) {
             ranking = VariantGraphRanking.of(graph);
@@ -258,6 +241,13 @@ public class SimpleVariantGraphSerializer {
         return ranking;
     }
 
+    RankedVariantGraph ranked() {
+        if (ranked == null) {
+            ranked = RankedVariantGraph.of(ranking());
+        }
+        return ranked;
+    }
+
     Set<Tuple<VariantGraph.Vertex>> transposedTuples() {
         final Set<Tuple<VariantGraph.Vertex>> tuples = new HashSet<>();
         final Comparator<VariantGraph.Vertex> vertexOrdering = ranking().comparator();
@@ -307,27 +297,29 @@ public class SimpleVariantGraphSerializer {
         xml.writeAttribute(PARSEEDGEIDS_ATT, PARSEEDGEIDS_DEFAULT_VALUE);
         xml.writeAttribute(PARSEORDER_ATT, PARSEORDER_DEFAULT_VALUE);
 
-        final VariantGraphRanking ranking = ranking();
-        for (VariantGraph.Vertex vertex : graph.vertices()) {
-            final int id = numericId(vertex);
+        final RankedVariantGraph ranked = ranked();
+        for (int vc = 0; vc < ranked.vertexCount(); vc++) {
+            final String id = Integer.toString(vc);
             xml.writeStartElement(GRAPHML_NS, NODE_TAG);
             xml.writeAttribute(ID_ATT, "n" + id);
-            GraphMLProperty.NODE_NUMBER.write(Integer.toString(id), xml);
-            GraphMLProperty.NODE_RANK.write(Integer.toString(ranking.apply(vertex)), xml);
-            GraphMLProperty.NODE_TOKEN.write(vertexToString.apply(vertex), xml);
+            GraphMLProperty.NODE_NUMBER.write(id, xml);
+            GraphMLProperty.NODE_RANK.write(Integer.toString(ranked.rank(vc)), xml);
+            GraphMLProperty.NODE_TOKEN.write(vertexToString.apply(ranked.vertex(vc)), xml);
             xml.writeEndElement();
         }
 
         int edgeNumber = 0;
-        for (VariantGraph.Vertex v : graph.vertices()) {
-            for (Map.Entry<VariantGraph.Vertex, Set<Witness>> edge : v.outgoing().entrySet()) {
+        for (int vc = 0; vc < ranked.vertexCount(); vc++) {
+            final String source = "n" + vc;
+            for (int ec = ranked.edges(vc), end = ranked.edges(vc + 1); ec < end; ec++) {
+                final String id = Integer.toString(edgeNumber++);
                 xml.writeStartElement(GRAPHML_NS, EDGE_TAG);
-                xml.writeAttribute(ID_ATT, "e" + edgeNumber);
-                xml.writeAttribute(SOURCE_ATT, "n" + numericId(v));
-                xml.writeAttribute(TARGET_ATT, "n" + numericId(edge.getKey()));
-                GraphMLProperty.EDGE_NUMBER.write(Integer.toString(edgeNumber++), xml);
+                xml.writeAttribute(ID_ATT, "e" + id);
+                xml.writeAttribute(SOURCE_ATT, source);
+                xml.writeAttribute(TARGET_ATT, "n" + ranked.target(ec));
+                GraphMLProperty.EDGE_NUMBER.write(id, xml);
                 GraphMLProperty.EDGE_TYPE.write(EDGE_TYPE_PATH, xml);
-                GraphMLProperty.EDGE_WITNESSES.write(edge.getValue().stream().map(Witness::getSigil).distinct().sorted().collect(Collectors.joining(", ")), xml);
+                GraphMLProperty.EDGE_WITNESSES.write(ranked.sigla(ec), xml);
                 xml.writeEndElement();
             }
         }
@@ -347,6 +339,174 @@ public class SimpleVariantGraphSerializer {
         xml.writeEndElement();
     }
 
+    /**
+     * Renders the graph as an SVG image, laid out from left to right in {@link VariantGraphLayout layers} by rank.
+     */
+    public void toSVG(XMLStreamWriter xml) throws XMLStreamException {
+        final VariantGraphLayout layout = VariantGraphLayout.of(graph, ranking());
+        final List<VariantGraphLayout.Edge> edges = layout.edges();
+
+        final Map<VariantGraph.Vertex, String> labels = new HashMap<>();
+        final int[] layerWidths = new int[layout.layers()];
+        final int[] gaps = new int[layout.layers()];
+        int maxLayerSize = 0;
+        for (VariantGraph.Vertex vertex : layout.vertices()) {
+            final String label = vertexToString.apply(vertex);
+            labels.put(vertex, label);
+            final int layer = layout.layer(vertex);
+            layerWidths[layer] = Math.max(layerWidths[layer], svgWidth(vertex, label));
+        }
+        for (VariantGraphLayout.Edge edge : edges) {
+            final int layer = layout.layer(edge.from);
+            gaps[layer] = Math.max(gaps[layer], toSvgLabel(edge.witnesses).length() * SVG_LABEL_CHAR_WIDTH + 2 * SVG_PADDING);
+        }
+        final int[] layerX = new int[layout.layers()];
+        int width = SVG_MARGIN;
+        for (int lc = 0; lc < layout.layers(); lc++) {
+            layerX[lc] = width;
+            width += layerWidths[lc] + Math.max(SVG_LAYER_GAP, gaps[lc]);
+            maxLayerSize = Math.max(maxLayerSize, layout.layerSize(lc));
+        }
+        final int height = 2 * SVG_MARGIN + maxLayerSize * SVG_ROW_HEIGHT;
+        final int rows = maxLayerSize;
+        final IntBinaryOperator y = (layer, slot) ->
+                SVG_MARGIN + (rows - layout.layerSize(layer)) * SVG_ROW_HEIGHT / 2 + slot * SVG_ROW_HEIGHT + SVG_ROW_HEIGHT / 2;
+
+        xml.writeStartElement("", "svg", SVG_NS);
+        xml.writeNamespace("", SVG_NS);
+        xml.writeAttribute("width", Integer.toString(width));
+        xml.writeAttribute("height", Integer.toString(height));
+        xml.writeAttribute("viewBox", "0 0 " + width + " " + height);
+
+        xml.writeStartElement(SVG_NS, "defs");
+        xml.writeStartElement(SVG_NS, "marker");
+        xml.writeAttribute("id", "arrow");
+        xml.writeAttribute("viewBox", "0 0 10 10");
+        xml.writeAttribute("refX", "10");
+        xml.writeAttribute("refY", "5");
+        xml.writeAttribute("markerWidth", "8");
+        xml.writeAttribute("markerHeight", "8");
+        xml.writeAttribute("orient", "auto");
+        xml.writeEmptyElement(SVG_NS, "path");
+        xml.writeAttribute("d", "M 0 0 L 10 5 L 0 10 z");
+        xml.writeEndElement();
+        xml.writeEndElement();
+
+        xml.writeStartElement(SVG_NS, "g");
+        xml.writeAttribute("id", "VariantGraph");
+        xml.writeAttribute("class", "graph");
+        xml.writeAttribute("font-family", "serif");
+
+        for (int ec = 0; ec < edges.size(); ec++) {
+            final VariantGraphLayout.Edge edge = edges.get(ec);
+            final int[] route = layout.route(ec);
+            final int fromLayer = layout.layer(edge.from);
+            final int toLayer = layout.layer(edge.to);
+
+            final StringBuilder path = new StringBuilder();
+            final int startX = layerX[fromLayer] + (layerWidths[fromLayer] + svgWidth(edge.from, labels.get(edge.from))) / 2;
+            final int startY = y.applyAsInt(fromLayer, route[0]);
+            path.append("M ").append(startX).append(' ').append(startY);
+            for (int rc = 1; rc < route.length - 1; rc++) {
+                final int layer = fromLayer + rc;
+                final int routeY = y.applyAsInt(layer, route[rc]);
+                path.append(" L ").append(layerX[layer]).append(' ').append(routeY);
+                path.append(" L ").append(layerX[layer] + layerWidths[layer]).append(' ').append(routeY);
+            }
+            final int endX = layerX[toLayer] + (layerWidths[toLayer] - svgWidth(edge.to, labels.get(edge.to))) / 2;
+            path.append(" L ").append(endX).append(' ').append(y.applyAsInt(toLayer, route[route.length - 1]));
+
+            final int labelX = (startX + layerX[fromLayer + 1]) / 2;
+            final int labelY = (startY + y.applyAsInt(fromLayer + 1, route[1])) / 2 - 4;
+
+            xml.writeStartElement(SVG_NS, "g");
+            xml.writeAttribute("id", "e" + ec);
+            xml.writeAttribute("class", "edge");
+            xml.writeEmptyElement(SVG_NS, "path");
+            xml.writeAttribute("d", path.toString());
+            xml.writeAttribute("fill", "none");
+            xml.writeAttribute("stroke", "black");
+            xml.writeAttribute("marker-end", "url(#arrow)");
+            xml.writeStartElement(SVG_NS, "text");
+            xml.writeAttribute("x", Integer.toString(labelX));
+            xml.writeAttribute("y", Integer.toString(labelY));
+            xml.writeAttribute("text-anchor", "middle");
+            xml.writeAttribute("font-size", Integer.toString(SVG_LABEL_FONT_SIZE));
+            xml.writeCharacters(toSvgLabel(edge.witnesses));
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+
+        for (Tuple<VariantGraph.Vertex> transposedTuple : transposedTuples()) {
+            xml.writeEmptyElement(SVG_NS, "line");
+            xml.writeAttribute("class", "transposition");
+            xml.writeAttribute("x1", Integer.toString(layerX[layout.layer(transposedTuple.left)] + layerWidths[layout.layer(transposedTuple.left)] / 2));
+            xml.writeAttribute("y1", Integer.toString(y.applyAsInt(layout.layer(transposedTuple.left), layout.slot(transposedTuple.left))));
+            xml.writeAttribute("x2", Integer.toString(layerX[layout.layer(transposedTuple.right)] + layerWidths[layout.layer(transposedTuple.right)] / 2));
+            xml.writeAttribute("y2", Integer.toString(y.applyAsInt(layout.layer(transposedTuple.right), layout.slot(transposedTuple.right))));
+            xml.writeAttribute("stroke", "lightgray");
+            xml.writeAttribute("stroke-dasharray", "4 4");
+        }
+
+        for (VariantGraph.Vertex vertex : layout.vertices()) {
+            final int layer = layout.layer(vertex);
+            final int centerX = layerX[layer] + layerWidths[layer] / 2;
+            final int centerY = y.applyAsInt(layer, layout.slot(vertex));
+            final String label = labels.get(vertex);
+
+            xml.writeStartElement(SVG_NS, "g");
+            xml.writeAttribute("id", "n" + numericId(vertex));
+            xml.writeAttribute("class", "node");
+            if (vertex.tokens().isEmpty()) {
+                xml.writeEmptyElement(SVG_NS, "circle");
+                xml.writeAttribute("cx", Integer.toString(centerX));
+                xml.writeAttribute("cy", Integer.toString(centerY));
+                xml.writeAttribute("r", Integer.toString(SVG_TERMINAL_RADIUS));
+            } else {
+                final int nodeWidth = svgWidth(vertex, label);
+                xml.writeEmptyElement(SVG_NS, "rect");
+                xml.writeAttribute("x", Integer.toString(centerX - nodeWidth / 2));
+                xml.writeAttribute("y", Integer.toString(centerY - SVG_NODE_HEIGHT / 2));
+                xml.writeAttribute("width", Integer.toString(nodeWidth));
+                xml.writeAttribute("height", Integer.toString(SVG_NODE_HEIGHT));
+                xml.writeAttribute("rx", "4");
+                xml.writeAttribute("fill", "white");
+                xml.writeAttribute("stroke", "black");
+                xml.writeStartElement(SVG_NS, "text");
+                xml.writeAttribute("x", Integer.toString(centerX));
+                xml.writeAttribute("y", Integer.toString(centerY + SVG_FONT_SIZE / 3));
+                xml.writeAttribute("text-anchor", "middle");
+                xml.writeAttribute("font-size", Integer.toString(SVG_FONT_SIZE));
+                xml.writeCharacters(label);
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+        }
+
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    private static int svgWidth(VariantGraph.Vertex vertex, String label) {
+        return (vertex.tokens().isEmpty() ? 2 * SVG_TERMINAL_RADIUS : label.length() * SVG_CHAR_WIDTH + 2 * SVG_PADDING);
+    }
+
+    static String toSvgLabel(Set<Witness> witnesses) {
+        return witnesses.stream().map(Witness::getSigil).distinct().sorted().collect(Collectors.joining(", "));
+    }
+
+    private static final String SVG_NS = "http://www.w3.org/2000/svg";
+    private static final int SVG_MARGIN = 16;
+    private static final int SVG_PADDING = 8;
+    private static final int SVG_ROW_HEIGHT = 48;
+    private static final int SVG_LAYER_GAP = 48;
+    private static final int SVG_NODE_HEIGHT = 28;
+    private static final int SVG_TERMINAL_RADIUS = 6;
+    private static final int SVG_FONT_SIZE = 14;
+    private static final int SVG_CHAR_WIDTH = 8;
+    private static final int SVG_LABEL_FONT_SIZE = 10;
+    private static final int SVG_LABEL_CHAR_WIDTH = 6;
+
     private static final String NODE_TAG = "node";
     private static final String TARGET_ATT = "target";
     private static final String SOURCE_ATT = "source";
@@ -414,9 +574,23 @@ public class SimpleVariantGraphSerializer {
     final Function<VariantGraph.Vertex, String> vertexToString = new Function<VariantGraph.Vertex, String>() {
         @Override
         public String apply(VariantGraph.Vertex input) {
-            return input.witnesses().stream().findFirst()
-                    .map(witness -> tokensToString.apply(Arrays.asList(input.tokens().stream().filter(t -> witness.equals(t.getWitness())).toArray(Token[]::new))))
-                    .orElse("");
+            // the reading of the witness with the least sigil, found via the tokens instead of the incoming edges
+            Witness witness = null;
+            for (Token token : input.tokens()) {
+                if (witness == null || Witness.SIGIL_COMPARATOR.compare(token.getWitness(), witness) < 0) {
+                    witness = token.getWitness();
+                }
+            }
+            if (witness == null) {
+                return "";
+            }
+            final List<Token> tokens = new ArrayList<>(input.tokens().size());
+            for (Token token : input.tokens()) {
+                if (witness.equals(token.getWitness())) {
+                    tokens.add(token);
+                }
+            }
+            return tokensToString.apply(tokens);
         }
     };
 
@@ -23,6 +23,7 @@ import eu.interedition.collatex.Token;
 import eu.interedition.collatex.Witness;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -35,14 +36,25 @@ import java.util.stream.Stream;
 public class SimpleWitness implements Iterable<Token>, Witness, Comparator<SimpleToken> {
 
     private final String sigil;
+    private final NormalizedFormPool forms;
     private final List<Token> tokens = new ArrayList<>();
 
     public SimpleWitness(String sigil) {
+        this(sigil, new NormalizedFormPool());
+    }
+
+    /**
+     * @param forms the pool interning the forms of this witness' tokens, to be shared with the other witnesses of a
+     *              collation
+     */
+    public SimpleWitness(String sigil, NormalizedFormPool forms) {
         this.sigil = sigil;
+        this.forms = forms;
     }
 
     public SimpleWitness(String sigil, String content) {
-        this(sigil, content, SimplePatternTokenizer.BY_WS_OR_PUNCT, SimpleTokenNormalizers.LC_TRIM_WS);
+        this(sigil);
+        setTokenOffsets(content, SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT.apply(content), SimpleTokenNormalizers.LC_TRIM_WS);
     }
 
     public SimpleWitness(String sigil,
@@ -53,6 +65,10 @@ public class SimpleWitness implements Iterable<Token>, Witness, Comparator<Simpl
         setTokenContents(tokenizer.apply(content), normalizer);
     }
 
+    public NormalizedFormPool getForms() {
+        return forms;
+    }
+
     public List<Token> getTokens() {
         return tokens;
     }
@@ -61,7 +77,53 @@ public class SimpleWitness implements Iterable<Token>, Witness, Comparator<Simpl
         setTokens(tokenContents.map(content -> new SimpleToken(SimpleWitness.this, content, normalizer.apply(content))).collect(Collectors.toList()));
     }
 
+    /**
+     * Sets the tokens of this witness to the ranges of the given text denoted by the given offsets, as yielded by an
+     * offset tokenizer like {@link SimplePatternTokenizer#OFFSETS_BY_WS_OR_PUNCT}. Token contents are only copied
+     * from the text on demand.
+     */
+    public void setTokenOffsets(String text, int[] offsets, Function<String, String> normalizer) {
+        final List<Token> tokens = new ArrayList<>(offsets.length / 2);
+        for (int oc = 0; oc < offsets.length; oc += 2) {
+            final int start = offsets[oc];
+            final int end = offsets[oc + 1];
+            tokens.add(normalizer instanceof FusedTokenNormalizer
+                    ? new SimpleToken(this, text, start, end, ((FusedTokenNormalizer) normalizer).intern(text, start, end, forms), -1)
+                    : new SimpleToken(this, text, start, end, normalizer.apply(text.substring(start, end))));
+        }
+        setTokens(tokens);
+    }
+
+    /**
+     * Sets the tokens of this witness, assigning each of its {@link SimpleToken simple tokens} its position. Positions
+     * are assigned once: Tokens can be set again, but only at the position they have been assigned before.
+     *
+     * @throws IllegalArgumentException if a simple token belongs to another witness or has been assigned another
+     *                                  position before; the tokens of this witness remain unchanged then
+     */
     public void setTokens(List<Token> tokens) {
+        final BitSet assigned = new BitSet(tokens.size());
+        try {
+            for (int tc = 0, tl = tokens.size(); tc < tl; tc++) {
+                final Token token = tokens.get(tc);
+                if (!(token instanceof SimpleToken)) {
+                    continue;
+                }
+                final SimpleToken simpleToken = (SimpleToken) token;
+                if (simpleToken.getWitness() != this) {
+                    throw new IllegalArgumentException("Token of witness " + simpleToken.getWitness() + " added to " + this + ": " + simpleToken);
+                }
+                if (simpleToken.getPosition() < 0) {
+                    simpleToken.setPosition(tc);
+                    assigned.set(tc);
+                } else if (simpleToken.getPosition() != tc) {
+                    throw new IllegalArgumentException("Token moved to position " + tc + ": " + simpleToken);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            assigned.stream().forEach(tc -> ((SimpleToken) tokens.get(tc)).setPosition(-1));
+            throw e;
+        }
         this.tokens.clear();
         this.tokens.addAll(tokens);
     }
@@ -83,8 +145,8 @@ public class SimpleWitness implements Iterable<Token>, Witness, Comparator<Simpl
 
     @Override
     public int compare(SimpleToken o1, SimpleToken o2) {
-        final int o1Index = tokens.indexOf(o1);
-        final int o2Index = tokens.indexOf(o2);
+        final int o1Index = position(o1);
+        final int o2Index = position(o2);
         if (o1Index < 0) {
             throw new IllegalArgumentException(o1.toString());
         }
@@ -94,11 +156,13 @@ public class SimpleWitness implements Iterable<Token>, Witness, Comparator<Simpl
         return (o1Index - o2Index);
     }
 
+    private int position(SimpleToken token) {
+        return (token.getWitness() == this ? token.getPosition() : -1);
+    }
+
     public static final Pattern PUNCT = Pattern.compile("\\p{Punct}");
 
-    public static final Function<String, String> TOKEN_NORMALIZER = input -> {
-        final String normalized = PUNCT.matcher(input.trim().toLowerCase()).replaceAll("");
-        return (normalized == null || normalized.length() == 0 ? input : normalized);
-    };
+    public static final Function<String, String> TOKEN_NORMALIZER = SimpleTokenNormalizers.builder()
+            .trimWhitespace().lowerCase().stripPunctuation().emptyToContent().build();
 
 }
@@ -38,8 +38,18 @@ public class SimpleWitnessTeiBuilder {
     private static QName seg = new QName("http://www.tei-c.org/ns/1.0", "seg");
     private static QName p = new QName("http://www.tei-c.org/ns/1.0", "p");
 
+    private final NormalizedFormPool forms;
+
+    public SimpleWitnessTeiBuilder() {
+        this(new NormalizedFormPool());
+    }
+
+    public SimpleWitnessTeiBuilder(NormalizedFormPool forms) {
+        this.forms = forms;
+    }
+
     public SimpleWitness read(InputStream input) throws XMLStreamException {
-        SimpleWitness witness = new SimpleWitness("id");
+        SimpleWitness witness = new SimpleWitness("id", forms);
         List<String> tokenContents = new ArrayList<>();
         XMLInputFactory factory = XMLInputFactory.newInstance();
         XMLEventReader reader = factory.createXMLEventReader(input);
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Reads the tokens of a witness from an entire TEI document, streaming it via a {@link XMLStreamReader cursor}.
+ * <p>
+ * Each token element, i.e. each <code>&lt;w/&gt;</code> or <code>&lt;seg/&gt;</code> by default, yields one token
+ * whose content is the text contained in the element, with runs of whitespace collapsed and leading and trailing
+ * whitespace removed. Token elements nested in other token elements are part of the outer token. Text outside of
+ * token elements is ignored, and so are tokens whose normalized form is empty, e.g. <code>&lt;w&gt;.&lt;/w&gt;</code>
+ * with punctuation trimmed by the default normalizer.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class TeiWitnessReader {
+
+    public static final String TEI_NS = "http://www.tei-c.org/ns/1.0";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private final NormalizedFormPool forms;
+    private final Function<String, String> normalizer;
+    private final Set<QName> tokenElements;
+
+    public TeiWitnessReader() {
+        this(new NormalizedFormPool(), SimpleTokenNormalizers.LC_TRIM_WS_PUNCT, new QName(TEI_NS, "w"), new QName(TEI_NS, "seg"));
+    }
+
+    /**
+     * @param forms         the pool of normalized forms shared by the witnesses of a collation
+     * @param normalizer    derives the normalized form of a token from its content
+     * @param tokenElements the names of elements containing one token each
+     */
+    public TeiWitnessReader(NormalizedFormPool forms, Function<String, String> normalizer, QName... tokenElements) {
+        this.forms = forms;
+        this.normalizer = normalizer;
+        this.tokenElements = new HashSet<>(Arrays.asList(tokenElements));
+    }
+
+    public ColumnarWitness read(String sigil, InputStream input) throws XMLStreamException {
+        final ColumnarWitness.Builder witness = ColumnarWitness.builder(sigil, forms, normalizer);
+        final StringBuilder token = new StringBuilder();
+        final XMLStreamReader reader;
+        synchronized (XML_INPUT_FACTORY) {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+        }
+        try {
+            int depth = 0;
+            boolean whitespace = false;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (depth > 0 || tokenElements.contains(reader.getName())) {
+                            depth++;
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (depth > 0 && --depth == 0) {
+                            if (token.length() > 0) {
+                                witness.add(token);
+                            }
+                            token.setLength(0);
+                            whitespace = false;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (depth > 0) {
+                            final char[] text = reader.getTextCharacters();
+                            for (int cc = reader.getTextStart(), end = cc + reader.getTextLength(); cc < end; cc++) {
+                                final char c = text[cc];
+                                if (Character.isWhitespace(c)) {
+                                    whitespace = true;
+                                    continue;
+                                }
+                                if (whitespace && token.length() > 0) {
+                                    token.append(' ');
+                                }
+                                whitespace = false;
+                                token.append(c);
+                            }
+                        }
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return witness.build();
+    }
+}
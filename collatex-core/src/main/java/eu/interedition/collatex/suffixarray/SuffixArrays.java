@@ -32,7 +32,7 @@ public final class SuffixArrays {
     /**
      * Maximum required trailing space in the input array (certain algorithms need it).
      */
-    final static int MAX_EXTRA_TRAILING_SPACE = DeepShallow.OVERSHOOT;
+    public final static int MAX_EXTRA_TRAILING_SPACE = DeepShallow.OVERSHOOT;
 
     /*
      *
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The alignment of a variant graph as a table with one row per witness, ordered by sigil, and one column per segment
+ * of the parallel segmentation, computed once from a ranking so it can be rendered into any number of formats.
+ * <p>
+ * Vertices of the same rank form a segment, unless they are transposed differently, in which case they are spread
+ * over adjacent segments in the order of their transposition offsets. The tokens of all cells are kept in a single
+ * array, cell by cell, with the start offset of each cell in a primitive array; cell contents are only materialized
+ * as (unmodifiable) list views when asked for.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class AlignmentTable {
+
+    private final Witness[] witnesses;
+    private final int[] ranks;
+    private final int[] cells;
+    private final List<Token> tokens;
+
+    private AlignmentTable(Witness[] witnesses, int[] ranks, int[] cells, Token[] tokens) {
+        this.witnesses = witnesses;
+        this.ranks = ranks;
+        this.cells = cells;
+        this.tokens = Collections.unmodifiableList(Arrays.asList(tokens));
+    }
+
+    public static AlignmentTable of(VariantGraphRanking ranking) {
+        final Witness[] witnesses = ranking.witnesses().stream().sorted(Witness.SIGIL_COMPARATOR).toArray(Witness[]::new);
+        final Map<Witness, Integer> witnessIndex = new HashMap<>();
+        for (int wc = 0; wc < witnesses.length; wc++) {
+            witnessIndex.put(witnesses[wc], wc);
+        }
+
+        int tokenCount = 0;
+        for (Set<VariantGraph.Vertex> vertices : ranking) {
+            for (VariantGraph.Vertex vertex : vertices) {
+                tokenCount += vertex.tokens().size();
+            }
+        }
+        final Token[] tokens = new Token[tokenCount];
+
+        int[] ranks = new int[Math.max(1, ranking.size())];
+        int[] cells = new int[ranks.length * witnesses.length + 1];
+        int columns = 0;
+
+        final int[] cursors = new int[witnesses.length];
+        for (Map.Entry<Integer, Set<VariantGraph.Vertex>> row : ranking.getByRank().entrySet()) {
+            final int rank = row.getKey();
+            final Collection<VariantGraph.Vertex> verticesOfRank = row.getValue();
+
+            if (verticesOfRank.size() == 1 && verticesOfRank.iterator().next().tokens().isEmpty()) {
+                // skip start and end vertex
+                continue;
+            }
+
+            // spreading vertices with same rank according to their registered transpositions
+            final SortedMap<Integer, List<VariantGraph.Vertex>> verticesByTranspositionRank = new TreeMap<>();
+            for (VariantGraph.Vertex v : verticesOfRank) {
+                int transpositionRank = 0;
+                for (Set<VariantGraph.Vertex> transposition : v.transpositions()) {
+                    for (VariantGraph.Vertex tv : transposition) {
+                        transpositionRank += (ranking.apply(tv) - rank);
+                    }
+                }
+                verticesByTranspositionRank.computeIfAbsent(transpositionRank, r -> new LinkedList<>()).add(v);
+            }
+
+            for (List<VariantGraph.Vertex> vertices : verticesByTranspositionRank.values()) {
+                if (columns == ranks.length) {
+                    ranks = Arrays.copyOf(ranks, columns * 2);
+                    cells = Arrays.copyOf(cells, columns * 2 * witnesses.length + 1);
+                }
+                ranks[columns] = rank;
+
+                // count the tokens per witness, then lay out the cells of this column and fill them
+                final int column = columns * witnesses.length;
+                Arrays.fill(cursors, 0);
+                for (VariantGraph.Vertex v : vertices) {
+                    for (Token token : v.tokens()) {
+                        cursors[witnessIndex.get(token.getWitness())]++;
+                    }
+                }
+                for (int wc = 0; wc < witnesses.length; wc++) {
+                    final int start = cells[column + wc];
+                    cells[column + wc + 1] = start + cursors[wc];
+                    cursors[wc] = start;
+                }
+                for (VariantGraph.Vertex v : vertices) {
+                    for (Token token : v.tokens()) {
+                        tokens[cursors[witnessIndex.get(token.getWitness())]++] = token;
+                    }
+                }
+                columns++;
+            }
+        }
+
+        return new AlignmentTable(
+                witnesses,
+                Arrays.copyOf(ranks, columns),
+                Arrays.copyOf(cells, columns * witnesses.length + 1),
+                Arrays.copyOf(tokens, cells[columns * witnesses.length])
+        );
+    }
+
+    /**
+     * @return the witnesses, one per row and ordered by sigil
+     */
+    public List<Witness> getWitnesses() {
+        return Collections.unmodifiableList(Arrays.asList(witnesses));
+    }
+
+    /**
+     * @return the number of columns, i.e. segments
+     */
+    public int columns() {
+        return ranks.length;
+    }
+
+    /**
+     * @return the rank of the vertices aligned in the given column; adjacent columns share a rank if their vertices
+     * have been spread due to transpositions
+     */
+    public int rank(int column) {
+        return ranks[column];
+    }
+
+    /**
+     * @return the tokens of the given witness aligned in the given column, possibly none
+     */
+    public List<Token> cell(int column, int witness) {
+        final int cell = column * witnesses.length + witness;
+        return tokens.subList(cells[cell], cells[cell + 1]);
+    }
+
+    /**
+     * @return the tokens of all witnesses aligned in the given column, keyed by witness
+     */
+    public SortedMap<Witness, Iterable<Token>> column(int column) {
+        final SortedMap<Witness, Iterable<Token>> contents = new TreeMap<>(Witness.SIGIL_COMPARATOR);
+        for (int wc = 0; wc < witnesses.length; wc++) {
+            contents.put(witnesses[wc], cell(column, wc));
+        }
+        return contents;
+    }
+}
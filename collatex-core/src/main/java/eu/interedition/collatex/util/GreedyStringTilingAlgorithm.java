@@ -22,6 +22,7 @@ package eu.interedition.collatex.util;
 import eu.interedition.collatex.CollationAlgorithm;
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.matching.TokenIds;
 
 import java.util.*;
 
@@ -29,8 +30,17 @@ import java.util.*;
 /**
  * Greedy String Tiling.
  * <p>
- * Implements the Greedy String Tiling algorithm as proposed by Michael J. Wise in his paper:
+ * Implements the tiling strategy of the Greedy String Tiling algorithm as proposed by Michael J. Wise in his paper:
  * "String Similarity via Greedy String Tiling and Running Karp-Rabin Matching"
+ * <p>
+ * Matches are not searched for via Running Karp-Rabin matching though, i.e. not by hashing windows of the search
+ * length: Collation tiles {@link #match(int[][], int[], int) interned token identifiers}, each rank of the variant
+ * graph being represented by the set of identifiers of its vertices' tokens, so a token of the witness matches a rank
+ * if any of its vertices does. The windows of a sequence of such sets cannot be hashed without enumerating every
+ * sequence of vertices through them. Instead, the positions of the sets are indexed by the identifiers they contain,
+ * and matches are extended token by token from the positions sharing a window's first identifier. Each tile is merged
+ * into the vertices that actually matched. {@link #match(Object[], Object[], Equality, int)} remains as the generic,
+ * naive variant for sequences which cannot be interned, e.g. for tokens compared via edit distances.
  *
  * @author Arno Mittelbach
  * @author Lasse Lehmann
@@ -64,13 +74,60 @@ public class GreedyStringTilingAlgorithm extends CollationAlgorithm.Base {
     public void collate(VariantGraph graph, Iterable<Token> witness) {
         final VariantGraph.Vertex[][] vertices = VariantGraphRanking.of(graph).asArray();
         final Token[] tokens = StreamUtil.stream(witness).toArray(Token[]::new);
+        if (!TokenIds.isKeyed(comparator)) {
+            collatePairwise(graph, vertices, tokens);
+            return;
+        }
+
+        final TokenIds<Token> tokenIds = TokenIds.of(comparator);
+        final int[] right = new int[tokens.length];
+        for (int tc = 0; tc < tokens.length; tc++) {
+            right[tc] = tokenIds.intern(tokens[tc]);
+        }
+
+        // per rank, the sorted identifiers of its vertices' tokens, each with the first vertex holding such a token
+        final int[][] left = new int[vertices.length][];
+        final VariantGraph.Vertex[][] matchingVertices = new VariantGraph.Vertex[vertices.length][];
+        final Map<Integer, VariantGraph.Vertex> rankIds = new TreeMap<>();
+        for (int rank = 0; rank < vertices.length; rank++) {
+            rankIds.clear();
+            for (VariantGraph.Vertex vertex : vertices[rank]) {
+                final int id = vertex.tokens().stream().findFirst().map(tokenIds::get).orElse(-1);
+                if (id >= 0) {
+                    rankIds.putIfAbsent(id, vertex);
+                }
+            }
+            left[rank] = rankIds.keySet().stream().mapToInt(Integer::intValue).toArray();
+            matchingVertices[rank] = rankIds.values().toArray(new VariantGraph.Vertex[rankIds.size()]);
+        }
 
+        final SortedSet<SortedSet<VertexMatch.WithTokenIndex>> matches = new TreeSet<>(VertexMatch.<VertexMatch.WithTokenIndex>setComparator());
+        for (Match match : match(left, right, minimumTileLength)) {
+            final SortedSet<VertexMatch.WithTokenIndex> phrase = new TreeSet<>();
+            for (int mc = 0, ml = match.length; mc < ml; mc++) {
+                final int rank = match.left + mc;
+                final int token = match.right + mc;
+                final VariantGraph.Vertex vertex = matchingVertices[rank][Arrays.binarySearch(left[rank], right[token])];
+                phrase.add(new VertexMatch.WithTokenIndex(vertex, rank, token));
+            }
+            matches.add(phrase);
+        }
+
+        merge(graph, vertices, tokens, matches);
+    }
+
+    /**
+     * Tiles ranks and tokens compared via a comparator which cannot be {@link TokenIds#isKeyed(Comparator) interned},
+     * merging tiles into the first vertex of a rank whose token matches.
+     */
+    private void collatePairwise(VariantGraph graph, VariantGraph.Vertex[][] vertices, Token[] tokens) {
         final SortedSet<SortedSet<VertexMatch.WithTokenIndex>> matches = new TreeSet<>(VertexMatch.<VertexMatch.WithTokenIndex>setComparator());
         for (Match match : match(vertices, tokens, equality, minimumTileLength)) {
             final SortedSet<VertexMatch.WithTokenIndex> phrase = new TreeSet<>();
             for (int mc = 0, ml = match.length; mc < ml; mc++) {
                 final int rank = match.left + mc;
-                phrase.add(new VertexMatch.WithTokenIndex(vertices[rank][0], rank, match.right + mc));
+                final int token = match.right + mc;
+                phrase.add(new VertexMatch.WithTokenIndex(matchingVertex(vertices[rank], tokens[token]), rank, token));
             }
             matches.add(phrase);
         }
@@ -78,6 +135,209 @@ public class GreedyStringTilingAlgorithm extends CollationAlgorithm.Base {
         merge(graph, vertices, tokens, matches);
     }
 
+    private VariantGraph.Vertex matchingVertex(VariantGraph.Vertex[] rank, Token token) {
+        for (VariantGraph.Vertex vertex : rank) {
+            final Set<Token> tokens = vertex.tokens();
+            if (!tokens.isEmpty() && comparator.compare(tokens.stream().findFirst().get(), token) == 0) {
+                return vertex;
+            }
+        }
+        return rank[0];
+    }
+
+    /**
+     * Greedy String Tiling of sequences of identifiers.
+     * <p>
+     * Negative identifiers in the left sequence never match.
+     *
+     * @see #match(int[][], int[], int)
+     */
+    public static SortedSet<Match> match(int[] left, int[] right, int minimumTileLength) {
+        final int[][] leftSets = new int[left.length][];
+        for (int lc = 0; lc < left.length; lc++) {
+            leftSets[lc] = (left[lc] < 0 ? new int[0] : new int[] { left[lc] });
+        }
+        return match(leftSets, right, minimumTileLength);
+    }
+
+    /**
+     * Greedy String Tiling of a sequence of identifier sets, e.g. the ranks of a variant graph, and a sequence of
+     * identifiers, an identifier matching a set if the set contains it.
+     * <p>
+     * Each iteration tiles all unmarked maximal matches of the greatest length still available, in the order of their
+     * position in the right sequence, then in the left one. Matches are searched for among the unmarked windows of a
+     * given search length, starting with the length tiled last and halving it while no match is found.
+     * <p>
+     * This is a heuristic based on an index of positions per identifier, not Running Karp-Rabin matching: A search
+     * visits each pair of positions sharing an identifier and extends matches token by token, so it runs in time
+     * linear in the size of the sequences only if identifiers are rare; in the worst case, e.g. for sequences of a
+     * single repeated identifier, it takes time proportional to the product of their lengths times the match length.
+     *
+     * @param left  sets of identifiers, each one sorted in ascending order
+     * @param right identifiers
+     */
+    public static SortedSet<Match> match(int[][] left, int[] right, int minimumTileLength) {
+        final boolean[] markedLeft = new boolean[left.length];
+        final boolean[] markedRight = new boolean[right.length];
+        for (int lc = 0; lc < left.length; lc++) {
+            markedLeft[lc] = (left[lc].length == 0);
+        }
+        final PositionIndex positions = new PositionIndex(left);
+
+        final SortedSet<Match> matches = new TreeSet<>();
+        final int minimumLength = Math.max(1, minimumTileLength);
+        int searchLength = Math.max(minimumLength, Math.min(left.length, right.length));
+        while (true) {
+            List<Match> maximalMatches = Collections.emptyList();
+            while (maximalMatches.isEmpty()) {
+                maximalMatches = maximalMatches(left, right, positions, markedLeft, markedRight, searchLength);
+                if (maximalMatches.isEmpty()) {
+                    if (searchLength == minimumLength) {
+                        return matches;
+                    }
+                    searchLength = Math.max(minimumLength, searchLength / 2);
+                }
+            }
+
+            int maxMatchLength = 0;
+            for (Match match : maximalMatches) {
+                maxMatchLength = Math.max(maxMatchLength, match.length);
+            }
+
+            for (Match match : maximalMatches) {
+                if (match.length < maxMatchLength) {
+                    continue;
+                }
+                boolean occluded = false;
+                for (int tc = 0; tc < maxMatchLength; tc++) {
+                    if (markedLeft[match.left + tc] || markedRight[match.right + tc]) {
+                        occluded = true;
+                        break;
+                    }
+                }
+                if (!occluded) {
+                    for (int tc = 0; tc < maxMatchLength; tc++) {
+                        markedLeft[match.left + tc] = true;
+                        markedRight[match.right + tc] = true;
+                    }
+                    matches.add(match);
+                }
+            }
+
+            if (maxMatchLength <= minimumLength) {
+                return matches;
+            }
+            searchLength = maxMatchLength;
+        }
+    }
+
+    /**
+     * Finds all maximal matches of unmarked identifiers at least as long as the given search length, i. e. all
+     * matches of unmarked windows of the search length, which cannot be extended to the left.
+     * <p>
+     * Only the right sequence is scanned window by window; the start positions a window may match in the left one are
+     * looked up by the window's first identifier and its remaining identifiers are checked against the subsequent
+     * sets.
+     *
+     * @return the matches, ordered by their position in the right sequence, then by their position in the left one
+     */
+    private static List<Match> maximalMatches(int[][] left, int[] right, PositionIndex positions, boolean[] markedLeft, boolean[] markedRight, int searchLength) {
+        final List<Match> matches = new ArrayList<>();
+        if (searchLength > left.length || searchLength > right.length) {
+            return matches;
+        }
+
+        final int[] unmarkedRight = unmarkedRuns(markedRight);
+        final int[] unmarkedLeft = unmarkedRuns(markedLeft);
+        for (int rc = 0; rc + searchLength <= right.length; rc++) {
+            if (unmarkedRight[rc] < searchLength) {
+                continue;
+            }
+            for (int pc = positions.from(right[rc]), pe = positions.to(right[rc]); pc < pe; pc++) {
+                final int lc = positions.positions[pc];
+                if (unmarkedLeft[lc] < searchLength) {
+                    continue;
+                }
+                if (lc > 0 && rc > 0 && !markedLeft[lc - 1] && !markedRight[rc - 1] && contains(left[lc - 1], right[rc - 1])) {
+                    // not maximal: the match extends to the left
+                    continue;
+                }
+                int length = 1;
+                while (length < unmarkedLeft[lc] && length < unmarkedRight[rc] && contains(left[lc + length], right[rc + length])) {
+                    length++;
+                }
+                if (length >= searchLength) {
+                    matches.add(new Match(lc, rc, length));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return for each position, the number of consecutive unmarked positions starting with it
+     */
+    private static int[] unmarkedRuns(boolean[] marked) {
+        final int[] runs = new int[marked.length];
+        for (int pc = marked.length - 1; pc >= 0; pc--) {
+            runs[pc] = (marked[pc] ? 0 : 1 + (pc + 1 < marked.length ? runs[pc + 1] : 0));
+        }
+        return runs;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * The positions of a sequence of identifier sets, grouped by the identifiers contained in the respective set and
+     * in ascending order per identifier.
+     */
+    private static class PositionIndex {
+
+        final int[] offsets;
+        final int[] positions;
+
+        PositionIndex(int[][] sets) {
+            int maxId = -1;
+            int size = 0;
+            for (int[] set : sets) {
+                for (int id : set) {
+                    maxId = Math.max(maxId, id);
+                }
+                size += set.length;
+            }
+            this.offsets = new int[maxId + 2];
+            this.positions = new int[size];
+            for (int[] set : sets) {
+                for (int id : set) {
+                    offsets[id + 1]++;
+                }
+            }
+            for (int oc = 1; oc < offsets.length; oc++) {
+                offsets[oc] += offsets[oc - 1];
+            }
+            final int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int pc = 0; pc < sets.length; pc++) {
+                for (int id : sets[pc]) {
+                    positions[next[id]++] = pc;
+                }
+            }
+        }
+
+        int from(int id) {
+            return (id >= 0 && id + 1 < offsets.length ? offsets[id] : 0);
+        }
+
+        int to(int id) {
+            return (id >= 0 && id + 1 < offsets.length ? offsets[id + 1] : 0);
+        }
+    }
+
+    /**
+     * Greedy String Tiling of sequences compared via a given equality, trying all pairs of start positions in each
+     * iteration.
+     */
     public static <A, B> SortedSet<Match> match(A[] left, B[] right, Equality<A, B> equality, int minimumTileLength) {
         final boolean[] markedLeft = new boolean[left.length];
         final boolean[] markedRight = new boolean[right.length];
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of integer elements, i. e. of dense identifiers of the items to be prioritized.
+ * <p>
+ * The heap tracks the position of each element, so that membership tests run in constant time and removing an element
+ * or updating its priority (decrease-key) in logarithmic time. Priorities are not stored in the heap but looked up
+ * via a given {@link Order}, typically from primitive arrays indexed by element.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class IndexedPriorityQueue {
+
+    private final Order order;
+    private int[] heap;
+    private int[] positions;
+    private int size = 0;
+
+    public IndexedPriorityQueue(int capacity, Order order) {
+        this.order = order;
+        this.heap = new int[Math.max(1, capacity)];
+        this.positions = new int[heap.length];
+        Arrays.fill(positions, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int element) {
+        return element < positions.length && positions[element] >= 0;
+    }
+
+    /**
+     * Adds an element or, if it is already contained, restores heap order after its priority changed.
+     */
+    public void offer(int element) {
+        if (contains(element)) {
+            update(element);
+            return;
+        }
+        ensureCapacity(element + 1);
+        heap[size] = element;
+        positions[element] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Restores heap order after the priority of a contained element changed.
+     */
+    public void update(int element) {
+        final int position = positions[element];
+        siftDown(siftUp(position));
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    public int poll() {
+        final int head = peek();
+        removeAt(0);
+        return head;
+    }
+
+    public boolean remove(int element) {
+        if (!contains(element)) {
+            return false;
+        }
+        removeAt(positions[element]);
+        return true;
+    }
+
+    public void clear() {
+        for (int hc = 0; hc < size; hc++) {
+            positions[heap[hc]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int position) {
+        positions[heap[position]] = -1;
+        if (--size == position) {
+            return;
+        }
+        heap[position] = heap[size];
+        positions[heap[position]] = position;
+        siftDown(siftUp(position));
+    }
+
+    private int siftUp(int position) {
+        final int element = heap[position];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (order.compare(element, heap[parent]) >= 0) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = element;
+        positions[element] = position;
+        return position;
+    }
+
+    private void siftDown(int position) {
+        final int element = heap[position];
+        final int half = size >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            final int right = child + 1;
+            if (right < size && order.compare(heap[right], heap[child]) < 0) {
+                child = right;
+            }
+            if (order.compare(element, heap[child]) <= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+
+    private void ensureCapacity(int elements) {
+        if (elements > positions.length) {
+            final int capacity = Math.max(elements, positions.length * 2);
+            final int previous = positions.length;
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, previous, capacity, -1);
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+    }
+
+    /**
+     * Orders two elements of the queue by their priority.
+     */
+    @FunctionalInterface
+    public interface Order {
+        int compare(int a, int b);
+    }
+}
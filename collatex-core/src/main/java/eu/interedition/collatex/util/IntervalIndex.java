@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A static set of closed integer intervals, identified by dense integers, from which all intervals overlapping a
+ * given range can be removed in time proportional to the number of intervals removed.
+ * <p>
+ * Intervals are kept ordered by their start; a segment tree over this order records the maximum end of the intervals
+ * still contained in each subtree. An overlapping interval starts before the end of the range and ends after its
+ * start, so a query descends only into the prefix of intervals starting early enough and only into subtrees whose
+ * maximum end reaches the range, taking O((k + 1) log n) steps for k overlapping intervals.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class IntervalIndex {
+
+    private static final int REMOVED = Integer.MIN_VALUE;
+
+    private final int[] starts;
+    private final int[] positions;
+    private final int[] intervals;
+    private final int[] maxEnds;
+    private final int leaves;
+    private int size;
+
+    /**
+     * @param starts the start of each interval, indexed by the interval's identifier
+     * @param ends the (inclusive) end of each interval, indexed by the interval's identifier
+     */
+    public IntervalIndex(int[] starts, int[] ends) {
+        final int n = starts.length;
+        this.intervals = IntStream.range(0, n).boxed()
+                .sorted((a, b) -> Integer.compare(starts[a], starts[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.starts = new int[n];
+        this.positions = new int[n];
+        for (int pos = 0; pos < n; pos++) {
+            this.starts[pos] = starts[intervals[pos]];
+            this.positions[intervals[pos]] = pos;
+        }
+
+        this.leaves = Integer.highestOneBit(Math.max(1, n - 1)) << 1;
+        this.maxEnds = new int[2 * leaves];
+        Arrays.fill(maxEnds, REMOVED);
+        for (int pos = 0; pos < n; pos++) {
+            maxEnds[leaves + pos] = ends[intervals[pos]];
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+        }
+        this.size = n;
+    }
+
+    /**
+     * Creates a copy of the given index, to be modified independently.
+     */
+    public IntervalIndex(IntervalIndex other) {
+        this.starts = other.starts;
+        this.positions = other.positions;
+        this.intervals = other.intervals;
+        this.maxEnds = other.maxEnds.clone();
+        this.leaves = other.leaves;
+        this.size = other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int interval) {
+        return maxEnds[leaves + positions[interval]] != REMOVED;
+    }
+
+    public boolean remove(int interval) {
+        int node = leaves + positions[interval];
+        if (maxEnds[node] == REMOVED) {
+            return false;
+        }
+        maxEnds[node] = REMOVED;
+        for (node >>= 1; node > 0; node >>= 1) {
+            maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all intervals overlapping the given closed range.
+     *
+     * @param removed notified of each interval removed
+     */
+    public void removeOverlapping(int from, int to, IntConsumer removed) {
+        int end = Arrays.binarySearch(starts, to);
+        if (end < 0) {
+            end = -(end + 1);
+        } else {
+            // binary search finds any of several intervals starting at the range's end; move past all of them
+            while (end < starts.length && starts[end] == to) {
+                end++;
+            }
+        }
+        removeOverlapping(1, 0, leaves, end, from, removed);
+    }
+
+    private void removeOverlapping(int node, int nodeFrom, int nodeTo, int end, int from, IntConsumer removed) {
+        if (nodeFrom >= end || maxEnds[node] < from) {
+            return;
+        }
+        if (node >= leaves) {
+            maxEnds[node] = REMOVED;
+            size--;
+            removed.accept(intervals[nodeFrom]);
+            return;
+        }
+        final int middle = (nodeFrom + nodeTo) >>> 1;
+        removeOverlapping(2 * node, nodeFrom, middle, end, from, removed);
+        removeOverlapping(2 * node + 1, middle, nodeTo, end, from, removed);
+        maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+    }
+}
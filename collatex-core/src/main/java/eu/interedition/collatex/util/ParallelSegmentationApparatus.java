@@ -20,12 +20,13 @@
 package eu.interedition.collatex.util;
 
 import eu.interedition.collatex.Token;
-import eu.interedition.collatex.VariantGraph;
 import eu.interedition.collatex.Witness;
 
-import java.util.*;
+import java.util.SortedMap;
 
 /**
+ * Renders the {@link AlignmentTable alignment table} of a variant graph segment by segment.
+ *
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
 public class ParallelSegmentationApparatus {
@@ -40,50 +41,14 @@ public class ParallelSegmentationApparatus {
     }
 
     public static void generate(VariantGraphRanking ranking, GeneratorCallback callback) {
+        generate(AlignmentTable.of(ranking), callback);
+    }
 
+    public static void generate(AlignmentTable table, GeneratorCallback callback) {
         callback.start();
-
-        final Set<Witness> allWitnesses = ranking.witnesses();
-      for (final Map.Entry<Integer, Set<VariantGraph.Vertex>> row : ranking.getByRank().entrySet()) {
-        final int rank = row.getKey();
-        final Collection<VariantGraph.Vertex> verticesOfRank = row.getValue();
-
-
-        if (verticesOfRank.size() == 1 && verticesOfRank.stream().findFirst().map(VariantGraph.Vertex::tokens).map(Set::isEmpty).orElse(false)) {
-          // skip start and end vertex
-          continue;
+        for (int column = 0; column < table.columns(); column++) {
+            callback.segment(table.column(column));
         }
-
-        // spreading vertices with same rank according to their registered transpositions
-        final SortedMap<Integer, List<VariantGraph.Vertex>> verticesByTranspositionRank = new TreeMap<>();
-        for (VariantGraph.Vertex v : verticesOfRank) {
-          int transpositionRank = 0;
-          for (Set<VariantGraph.Vertex> transposition : v.transpositions()) {
-            for (VariantGraph.Vertex tv : transposition) {
-              transpositionRank += (ranking.apply(tv) - rank);
-            }
-          }
-          verticesByTranspositionRank.computeIfAbsent(transpositionRank, r -> new LinkedList<>()).add(v);
-        }
-
-        // render segments
-        verticesByTranspositionRank.values().forEach(vertices -> {
-          final Map<Witness, List<Token>> tokensByWitness = new HashMap<>();
-          for (VariantGraph.Vertex v : vertices) {
-            for (Token token : v.tokens()) {
-              tokensByWitness.computeIfAbsent(token.getWitness(), w -> new LinkedList<>()).add(token);
-            }
-          }
-
-          final SortedMap<Witness, Iterable<Token>> cellContents = new TreeMap<>(Witness.SIGIL_COMPARATOR);
-          for (Witness witness : allWitnesses) {
-            cellContents.put(witness, Collections.unmodifiableCollection(tokensByWitness.getOrDefault(witness, Collections.emptyList())));
-          }
-
-          callback.segment(cellContents);
-        });
-      }
-
         callback.end();
     }
 }
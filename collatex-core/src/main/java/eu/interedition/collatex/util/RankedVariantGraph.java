@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A frozen snapshot of a variant graph, with its vertices numbered in the order of their rank so that writers can
+ * stream the graph from primitive arrays.
+ * <p>
+ * Vertices of the same rank are numbered in the order of a traversal of the graph. Outgoing edges are kept per vertex
+ * in compressed sparse row format, ordered by target, and each edge refers to the label of its witnesses, i. e. their
+ * distinct sigla in sorted order, which is computed once per distinct set of witnesses.
+ * <p>
+ * Writers stream from these arrays without any lookups, but the snapshot is not free: it takes a few words per vertex
+ * and edge on top of the graph, and freezing traverses the graph once more, looking up each vertex's rank and each
+ * edge's target once. The maps used for the latter are dropped as soon as the snapshot is built. Numbering the
+ * vertices in place would avoid both, but would tie the graph model to one serialization.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class RankedVariantGraph {
+
+    private final VariantGraphRanking ranking;
+    private final VariantGraph.Vertex[] vertices;
+    private final int[] ranks;
+    private final int[] edges;
+    private final int[] targets;
+    private final int[] sigla;
+    private final String[] labels;
+
+    private RankedVariantGraph(VariantGraphRanking ranking, VariantGraph.Vertex[] vertices, int[] ranks,
+                               int[] edges, int[] targets, int[] sigla, String[] labels) {
+        this.ranking = ranking;
+        this.vertices = vertices;
+        this.ranks = ranks;
+        this.edges = edges;
+        this.targets = targets;
+        this.sigla = sigla;
+        this.labels = labels;
+    }
+
+    public static RankedVariantGraph of(VariantGraph graph) {
+        return of(VariantGraphRanking.of(graph));
+    }
+
+    public static RankedVariantGraph of(VariantGraphRanking ranking) {
+        final List<VariantGraph.Vertex> traversal = new ArrayList<>();
+        ranking.graph().vertices().forEach(traversal::add);
+
+        // counting sort by rank, keeping the traversal order within ranks
+        final int[] traversalRanks = new int[traversal.size()];
+        int rankCount = 0;
+        for (int vc = 0; vc < traversalRanks.length; vc++) {
+            traversalRanks[vc] = ranking.apply(traversal.get(vc));
+            rankCount = Math.max(rankCount, traversalRanks[vc] + 1);
+        }
+        final int[] rankOffsets = new int[rankCount + 1];
+        for (int rank : traversalRanks) {
+            rankOffsets[rank + 1]++;
+        }
+        for (int rc = 0; rc < rankCount; rc++) {
+            rankOffsets[rc + 1] += rankOffsets[rc];
+        }
+        final VariantGraph.Vertex[] vertices = new VariantGraph.Vertex[traversal.size()];
+        final int[] ranks = new int[vertices.length];
+        final Map<VariantGraph.Vertex, Integer> ids = new IdentityHashMap<>(vertices.length);
+        for (int vc = 0; vc < traversalRanks.length; vc++) {
+            final int id = rankOffsets[traversalRanks[vc]]++;
+            vertices[id] = traversal.get(vc);
+            ranks[id] = traversalRanks[vc];
+            ids.put(vertices[id], id);
+        }
+
+        final int[] edges = new int[vertices.length + 1];
+        for (int vc = 0; vc < vertices.length; vc++) {
+            edges[vc + 1] = edges[vc] + vertices[vc].outgoingEdges().size();
+        }
+        final int[] targets = new int[edges[vertices.length]];
+        final int[] sigla = new int[targets.length];
+        final Map<Set<Witness>, Integer> labelIds = new HashMap<>();
+        final List<String> labels = new ArrayList<>();
+        for (int vc = 0; vc < vertices.length; vc++) {
+            final int start = edges[vc];
+            int end = start;
+            for (Map.Entry<VariantGraph.Vertex, VariantGraph.Edge> edge : vertices[vc].outgoingEdges().entrySet()) {
+                final int target = ids.get(edge.getKey());
+                final int label = labelIds.computeIfAbsent(edge.getValue().sigla, witnesses -> {
+                    labels.add(toLabel(witnesses));
+                    return labels.size() - 1;
+                });
+                // insertion sort by target; vertices have few outgoing edges
+                int ec = end++;
+                for (; ec > start && targets[ec - 1] > target; ec--) {
+                    targets[ec] = targets[ec - 1];
+                    sigla[ec] = sigla[ec - 1];
+                }
+                targets[ec] = target;
+                sigla[ec] = label;
+            }
+        }
+
+        return new RankedVariantGraph(ranking, vertices, ranks, edges, targets, sigla, labels.toArray(new String[labels.size()]));
+    }
+
+    private static String toLabel(Set<Witness> witnesses) {
+        return witnesses.stream().map(Witness::getSigil).distinct().sorted().collect(Collectors.joining(", "));
+    }
+
+    public int vertexCount() {
+        return vertices.length;
+    }
+
+    public VariantGraph.Vertex vertex(int id) {
+        return vertices[id];
+    }
+
+    /**
+     * @return the number of the given vertex, or <code>-1</code> if it is not part of the graph
+     */
+    public int id(VariantGraph.Vertex vertex) {
+        final Integer rank = ranking.apply(vertex);
+        if (rank == null) {
+            return -1;
+        }
+        // the vertices are sorted by rank, so search for the first one of the given rank and scan from there
+        int low = 0;
+        int high = ranks.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (ranks[mid] < rank) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int id = low; id < ranks.length && ranks[id] == rank; id++) {
+            if (vertices[id] == vertex) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    public int rank(int id) {
+        return ranks[id];
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return the number of the first outgoing edge of the given vertex; the edges of a vertex end where those of the
+     * next vertex start, so <code>edges(vertexCount())</code> equals the number of edges
+     */
+    public int edges(int id) {
+        return edges[id];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @return the number of the given edge's label among all {@link #label(int) labels}
+     */
+    public int siglaId(int edge) {
+        return sigla[edge];
+    }
+
+    /**
+     * @return the sigla of the given edge's witnesses, sorted and comma-separated
+     */
+    public String sigla(int edge) {
+        return labels[sigla[edge]];
+    }
+
+    public int labelCount() {
+        return labels.length;
+    }
+
+    public String label(int id) {
+        return labels[id];
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A layered layout of a variant graph, with one layer per rank.
+ * <p>
+ * Edges spanning several ranks are routed through dummy nodes on the ranks in between. Nodes of a layer are
+ * initially ordered by a breadth-first traversal from the start vertex, following the witnesses in the order of their
+ * sigla, and then reordered to reduce edge crossings via the barycenter heuristic, sweeping the layers alternately
+ * downwards and upwards and keeping the order with the fewest crossings found.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class VariantGraphLayout {
+
+    /**
+     * Maximum number of sweeps without improvement before the crossing reduction stops.
+     */
+    static final int MAX_SWEEPS = 8;
+
+    private final List<VariantGraph.Vertex> vertices;
+    private final Map<VariantGraph.Vertex, Integer> vertexIndex;
+    private final int[][] layers;
+    private final int[] layer;
+    private final int[] slot;
+    private final int[][] lower;
+    private final int[][] edgeRoutes;
+    private final List<Edge> edges;
+
+    private VariantGraphLayout(List<VariantGraph.Vertex> vertices, Map<VariantGraph.Vertex, Integer> vertexIndex,
+                               int[][] layers, int[] layer, int[] slot, int[][] lower, List<Edge> edges, int[][] edgeRoutes) {
+        this.vertices = vertices;
+        this.vertexIndex = vertexIndex;
+        this.layers = layers;
+        this.layer = layer;
+        this.slot = slot;
+        this.lower = lower;
+        this.edges = edges;
+        this.edgeRoutes = edgeRoutes;
+    }
+
+    public static VariantGraphLayout of(VariantGraph graph) {
+        return of(graph, VariantGraphRanking.of(graph));
+    }
+
+    public static VariantGraphLayout of(VariantGraph graph, VariantGraphRanking ranking) {
+        final Map<Witness, Integer> witnessOrder = new HashMap<>();
+        graph.witnesses().stream().sorted(Witness.SIGIL_COMPARATOR).forEach(w -> witnessOrder.put(w, witnessOrder.size()));
+        final Comparator<Map.Entry<VariantGraph.Vertex, VariantGraph.Edge>> edgeOrder = Comparator.comparingInt(
+                e -> e.getValue().sigla.stream().mapToInt(witnessOrder::get).min().orElse(Integer.MAX_VALUE));
+
+        // vertices and edges in breadth-first order
+        final List<VariantGraph.Vertex> vertices = new ArrayList<>();
+        final Map<VariantGraph.Vertex, Integer> vertexIndex = new HashMap<>();
+        final List<Edge> edges = new ArrayList<>();
+        final Deque<VariantGraph.Vertex> queue = new ArrayDeque<>();
+        vertexIndex.put(graph.getStart(), 0);
+        vertices.add(graph.getStart());
+        queue.add(graph.getStart());
+        while (!queue.isEmpty()) {
+            final VariantGraph.Vertex vertex = queue.remove();
+            final List<Map.Entry<VariantGraph.Vertex, VariantGraph.Edge>> outgoing = new ArrayList<>(vertex.outgoingEdges().entrySet());
+            outgoing.sort(edgeOrder);
+            for (Map.Entry<VariantGraph.Vertex, VariantGraph.Edge> edge : outgoing) {
+                final VariantGraph.Vertex target = edge.getKey();
+                if (!vertexIndex.containsKey(target)) {
+                    vertexIndex.put(target, vertices.size());
+                    vertices.add(target);
+                    queue.add(target);
+                }
+                edges.add(new Edge(vertex, target, edge.getValue().sigla));
+            }
+        }
+
+        // nodes: vertices followed by dummy nodes of edges spanning several ranks
+        int layerCount = 0;
+        final int[] vertexLayer = new int[vertices.size()];
+        for (int vc = 0; vc < vertexLayer.length; vc++) {
+            vertexLayer[vc] = ranking.apply(vertices.get(vc));
+            layerCount = Math.max(layerCount, vertexLayer[vc] + 1);
+        }
+        int nodeCount = vertices.size();
+        final int[][] edgeRoutes = new int[edges.size()][];
+        for (int ec = 0; ec < edgeRoutes.length; ec++) {
+            final Edge edge = edges.get(ec);
+            final int from = vertexIndex.get(edge.from);
+            final int to = vertexIndex.get(edge.to);
+            final int[] route = new int[vertexLayer[to] - vertexLayer[from] + 1];
+            route[0] = from;
+            for (int rc = 1; rc < route.length - 1; rc++) {
+                route[rc] = nodeCount++;
+            }
+            route[route.length - 1] = to;
+            edgeRoutes[ec] = route;
+        }
+        final int[] layer = Arrays.copyOf(vertexLayer, nodeCount);
+        for (int[] route : edgeRoutes) {
+            for (int rc = 1; rc < route.length - 1; rc++) {
+                layer[route[rc]] = layer[route[0]] + rc;
+            }
+        }
+
+        // adjacency between neighbouring layers, in compressed sparse row format
+        final int[][] upper = new int[nodeCount][];
+        final int[][] lower = new int[nodeCount][];
+        final int[] upperCount = new int[nodeCount];
+        final int[] lowerCount = new int[nodeCount];
+        for (int[] route : edgeRoutes) {
+            for (int rc = 1; rc < route.length; rc++) {
+                lowerCount[route[rc - 1]]++;
+                upperCount[route[rc]]++;
+            }
+        }
+        for (int nc = 0; nc < nodeCount; nc++) {
+            upper[nc] = new int[upperCount[nc]];
+            lower[nc] = new int[lowerCount[nc]];
+        }
+        Arrays.fill(upperCount, 0);
+        Arrays.fill(lowerCount, 0);
+        for (int[] route : edgeRoutes) {
+            for (int rc = 1; rc < route.length; rc++) {
+                lower[route[rc - 1]][lowerCount[route[rc - 1]]++] = route[rc];
+                upper[route[rc]][upperCount[route[rc]]++] = route[rc - 1];
+            }
+        }
+
+        // initial order: breadth-first, i.e. vertices in order of discovery, dummy nodes in order of their edges
+        final int[] layerSizes = new int[layerCount];
+        for (int nc = 0; nc < nodeCount; nc++) {
+            layerSizes[layer[nc]]++;
+        }
+        final int[][] layers = new int[layerCount][];
+        for (int lc = 0; lc < layerCount; lc++) {
+            layers[lc] = new int[layerSizes[lc]];
+        }
+        Arrays.fill(layerSizes, 0);
+        final int[] order = new int[nodeCount];
+        int discovered = 0;
+        for (int vc = 0, ec = 0; vc < vertices.size(); vc++) {
+            order[discovered++] = vc;
+            // edges have been collected source by source, in order of discovery
+            for (; ec < edgeRoutes.length && edgeRoutes[ec][0] == vc; ec++) {
+                for (int rc = 1; rc < edgeRoutes[ec].length - 1; rc++) {
+                    order[discovered++] = edgeRoutes[ec][rc];
+                }
+            }
+        }
+        final int[] slot = new int[nodeCount];
+        for (int node : order) {
+            slot[node] = layerSizes[layer[node]];
+            layers[layer[node]][layerSizes[layer[node]]++] = node;
+        }
+
+        reduceCrossings(layers, slot, upper, lower);
+
+        return new VariantGraphLayout(vertices, vertexIndex, layers, layer, slot, lower, edges, edgeRoutes);
+    }
+
+    private static void reduceCrossings(int[][] layers, int[] slot, int[][] upper, int[][] lower) {
+        int[][] best = copy(layers);
+        int bestCrossings = crossings(layers, slot, lower);
+        final double[] barycenters = new double[slot.length];
+        for (int sweep = 0, unimproved = 0; bestCrossings > 0 && unimproved < MAX_SWEEPS; sweep++) {
+            final boolean downwards = (sweep % 2) == 0;
+            for (int lc = 1; lc < layers.length; lc++) {
+                final int[] nodes = layers[downwards ? lc : layers.length - 1 - lc];
+                order(nodes, slot, downwards ? upper : lower, barycenters);
+            }
+            final int crossings = crossings(layers, slot, lower);
+            if (crossings < bestCrossings) {
+                bestCrossings = crossings;
+                best = copy(layers);
+                unimproved = 0;
+            } else {
+                unimproved++;
+            }
+        }
+        for (int lc = 0; lc < layers.length; lc++) {
+            layers[lc] = best[lc];
+            for (int nc = 0; nc < layers[lc].length; nc++) {
+                slot[layers[lc][nc]] = nc;
+            }
+        }
+    }
+
+    /**
+     * Sorts the nodes of a layer by the average slot of their neighbours in the adjacent layer; nodes without
+     * neighbours keep their slot.
+     */
+    private static void order(int[] nodes, int[] slot, int[][] neighbours, double[] barycenters) {
+        for (int node : nodes) {
+            final int[] adjacent = neighbours[node];
+            if (adjacent.length == 0) {
+                barycenters[node] = slot[node];
+            } else {
+                double sum = 0;
+                for (int neighbour : adjacent) {
+                    sum += slot[neighbour];
+                }
+                barycenters[node] = sum / adjacent.length;
+            }
+        }
+        final Integer[] sorted = new Integer[nodes.length];
+        for (int nc = 0; nc < nodes.length; nc++) {
+            sorted[nc] = nodes[nc];
+        }
+        // stable, so ties keep their current order
+        Arrays.sort(sorted, Comparator.comparingDouble(n -> barycenters[n]));
+        for (int nc = 0; nc < nodes.length; nc++) {
+            nodes[nc] = sorted[nc];
+            slot[nodes[nc]] = nc;
+        }
+    }
+
+    /**
+     * Counts edge crossings between all pairs of adjacent layers, as inversions of the lower ends of edges ordered by
+     * their upper ends.
+     */
+    private static int crossings(int[][] layers, int[] slot, int[][] lower) {
+        int crossings = 0;
+        for (int lc = 0; lc + 1 < layers.length; lc++) {
+            final int[] tree = new int[layers[lc + 1].length + 1];
+            int edges = 0;
+            for (int node : layers[lc]) {
+                final int[] targets = lower[node].clone();
+                for (int tc = 0; tc < targets.length; tc++) {
+                    targets[tc] = slot[targets[tc]];
+                }
+                Arrays.sort(targets);
+                for (int target : targets) {
+                    // edges seen so far ending right of this one's lower end
+                    int lowerOrEqual = 0;
+                    for (int i = target + 1; i > 0; i -= i & -i) {
+                        lowerOrEqual += tree[i];
+                    }
+                    crossings += edges - lowerOrEqual;
+                }
+                for (int target : targets) {
+                    for (int i = target + 1; i < tree.length; i += i & -i) {
+                        tree[i]++;
+                    }
+                    edges++;
+                }
+            }
+        }
+        return crossings;
+    }
+
+    private static int[][] copy(int[][] layers) {
+        final int[][] copy = new int[layers.length][];
+        for (int lc = 0; lc < layers.length; lc++) {
+            copy[lc] = layers[lc].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @return the number of layers, i.e. ranks
+     */
+    public int layers() {
+        return layers.length;
+    }
+
+    /**
+     * @return the number of nodes in the given layer, including dummy nodes
+     */
+    public int layerSize(int layer) {
+        return layers[layer].length;
+    }
+
+    /**
+     * @return the vertices in breadth-first order
+     */
+    public List<VariantGraph.Vertex> vertices() {
+        return vertices;
+    }
+
+    public int layer(VariantGraph.Vertex vertex) {
+        return layer[vertexIndex.get(vertex)];
+    }
+
+    /**
+     * @return the position of the given vertex within its layer
+     */
+    public int slot(VariantGraph.Vertex vertex) {
+        return slot[vertexIndex.get(vertex)];
+    }
+
+    /**
+     * @return the edges in breadth-first order
+     */
+    public List<Edge> edges() {
+        return edges;
+    }
+
+    /**
+     * @return the slots of the given edge's route, one per layer from the edge's source to its target
+     */
+    public int[] route(int edge) {
+        final int[] route = edgeRoutes[edge];
+        final int[] slots = new int[route.length];
+        for (int rc = 0; rc < route.length; rc++) {
+            slots[rc] = slot[route[rc]];
+        }
+        return slots;
+    }
+
+    /**
+     * @return the number of edge crossings between adjacent layers
+     */
+    public int crossings() {
+        return crossings(layers, slot, lower);
+    }
+
+    public static class Edge {
+        public final VariantGraph.Vertex from;
+        public final VariantGraph.Vertex to;
+        public final Set<Witness> witnesses;
+
+        Edge(VariantGraph.Vertex from, VariantGraph.Vertex to, Set<Witness> witnesses) {
+            this.from = from;
+            this.to = to;
+            this.witnesses = witnesses;
+        }
+    }
+}
@@ -55,7 +55,7 @@ public class VariantGraphRanking implements Iterable<Set<VariantGraph.Vertex>>,
         final VariantGraphRanking ranking = new VariantGraphRanking(graph);
         for (VariantGraph.Vertex v : graph.vertices()) {
             int rank = -1;
-            for (VariantGraph.Vertex incoming : v.incoming().keySet()) {
+            for (VariantGraph.Vertex incoming : v.incomingEdges().keySet()) {
                 rank = Math.max(rank, ranking.byVertex.get(incoming));
             }
             rank++;
@@ -69,7 +69,7 @@ public class VariantGraphRanking implements Iterable<Set<VariantGraph.Vertex>>,
         final VariantGraphRanking ranking = new VariantGraphRanking(graph);
         for (VariantGraph.Vertex v : graph.vertices()) {
             int rank = -1;
-            for (VariantGraph.Vertex incoming : v.incoming().keySet()) {
+            for (VariantGraph.Vertex incoming : v.incomingEdges().keySet()) {
                 rank = Math.max(rank, ranking.byVertex.get(incoming));
             }
             if (vertices.contains(v)) {
@@ -85,6 +85,10 @@ public class VariantGraphRanking implements Iterable<Set<VariantGraph.Vertex>>,
         return graph.witnesses();
     }
 
+    VariantGraph graph() {
+        return graph;
+    }
+
     public Map<VariantGraph.Vertex, Integer> getByVertex() {
         return Collections.unmodifiableMap(byVertex);
     }
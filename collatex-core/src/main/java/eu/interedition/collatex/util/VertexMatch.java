@@ -98,6 +98,27 @@ public abstract class VertexMatch implements Comparable<VertexMatch> {
         }
     }
 
+    /**
+     * Evaluates match phrases by the sum of the weights of their tokens.
+     * <p>
+     * As the value of a phrase is additive, it can be computed from prefix sums over the weights of a witness'
+     * tokens, in constant time per phrase.
+     */
+    @FunctionalInterface
+    public interface TokenWeightEvaluator extends Function<SortedSet<WithToken>, Integer> {
+
+        int weight(Token token);
+
+        @Override
+        default Integer apply(SortedSet<WithToken> phrase) {
+            int value = 0;
+            for (WithToken match : phrase) {
+                value += weight(match.token);
+            }
+            return value;
+        }
+    }
+
     public static Function<WithTokenIndex, WithToken> tokenResolver(final Token[] tokens) {
         return input -> new WithToken(input.vertex, input.vertexRank, tokens[input.token]);
     }
@@ -0,0 +1,131 @@
+package eu.interedition.collatex.dekker.astar;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AstarAlgorithmTest {
+
+  @Test
+  public void decreasesKeyOfOpenNodes() {
+    final Search search = new Search();
+    // B is reached expensively first and has to be prioritized anew once reached via A
+    assertEquals(Arrays.asList("S", "A", "B", "G"), search.aStar("S", new IntCost(0)));
+    assertTrue(search.getExpandedNodes() > 0);
+    assertTrue(search.getGeneratedNodes() >= search.getExpandedNodes());
+  }
+
+  @Test
+  public void iterativeDeepening() {
+    assertEquals(Arrays.asList("S", "A", "B", "G"), new Search().idaStar("S", new IntCost(0)));
+  }
+
+  @Test
+  public void beamWidth() {
+    final Search search = new Search();
+    search.setBeamWidth(1);
+    assertEquals("G", search.aStar("S", new IntCost(0)).get(3));
+  }
+
+  @Test
+  public void beamBoundsRetainedNodes() {
+    final int depth = 200;
+    final int beamWidth = 4;
+    final AstarAlgorithm<String, IntCost> search = new AstarAlgorithm<String, IntCost>() {
+      @Override
+      protected boolean isGoal(String node) {
+        return node.length() == depth;
+      }
+
+      @Override
+      protected Iterable<String> neighborNodes(String current) {
+        return Arrays.asList(current + "0", current + "1", current + "2");
+      }
+
+      @Override
+      protected IntCost heuristicCostEstimate(String node) {
+        return new IntCost(0);
+      }
+
+      @Override
+      protected IntCost distBetween(String current, String neighbor) {
+        return new IntCost(1 + neighbor.charAt(neighbor.length() - 1) - '0');
+      }
+    };
+    search.setBeamWidth(beamWidth);
+
+    final List<String> path = search.aStar("", new IntCost(0));
+    assertEquals(depth + 1, path.size());
+    assertEquals(depth, path.get(depth).chars().filter(c -> c == '0').count());
+
+    // evicted nodes and their dead-end ancestors are dropped: open nodes and their paths at most
+    assertTrue(search.getRetainedNodes() <= (beamWidth + 1) * depth);
+    assertTrue(search.getRetainedNodes() < search.getGeneratedNodes() / 2);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void expansionBudget() {
+    final Search search = new Search();
+    search.setExpansionBudget(2);
+    search.aStar("S", new IntCost(0));
+  }
+
+  static class Search extends AstarAlgorithm<String, IntCost> {
+
+    private final Map<String, Map<String, Integer>> edges = new HashMap<>();
+
+    Search() {
+      edge("S", "B", 4);
+      edge("S", "A", 1);
+      edge("A", "B", 1);
+      edge("A", "G", 5);
+      edge("B", "G", 1);
+    }
+
+    private void edge(String from, String to, int cost) {
+      edges.computeIfAbsent(from, f -> new LinkedHashMap<>()).put(to, cost);
+    }
+
+    @Override
+    protected boolean isGoal(String node) {
+      return "G".equals(node);
+    }
+
+    @Override
+    protected Iterable<String> neighborNodes(String current) {
+      return edges.getOrDefault(current, Collections.emptyMap()).keySet();
+    }
+
+    @Override
+    protected IntCost heuristicCostEstimate(String node) {
+      return new IntCost(0);
+    }
+
+    @Override
+    protected IntCost distBetween(String current, String neighbor) {
+      return new IntCost(edges.get(current).get(neighbor));
+    }
+  }
+
+  static class IntCost extends Cost<IntCost> {
+
+    final int cost;
+
+    IntCost(int cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    protected IntCost plus(IntCost other) {
+      return new IntCost(cost + other.cost);
+    }
+
+    @Override
+    public int compareTo(IntCost o) {
+      return Integer.compare(cost, o.cost);
+    }
+  }
+}
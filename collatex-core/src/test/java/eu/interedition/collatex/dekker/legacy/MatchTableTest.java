@@ -21,6 +21,8 @@ package eu.interedition.collatex.dekker.legacy;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import eu.interedition.collatex.AbstractTest;
@@ -29,10 +31,20 @@ import eu.interedition.collatex.VariantGraph;
 import eu.interedition.collatex.dekker.island.Coordinate;
 import eu.interedition.collatex.dekker.island.Island;
 import eu.interedition.collatex.matching.EqualityTokenComparator;
+import eu.interedition.collatex.matching.Matches;
 import eu.interedition.collatex.simple.SimpleWitness;
+import eu.interedition.collatex.util.VariantGraphRanking;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.junit.Test;
 
@@ -205,4 +217,115 @@ public class MatchTableTest extends AbstractTest {
         assertVectorEquals(2, 2, 2, islands.get(2));
         assertVectorEquals(0, 3, 2, islands.get(3));
     }
+
+    @Test
+    public void testCellsAndIslandsMatchDenseTable() {
+        final String[][] fixtures = {
+                { "a b", "a c", "a b c" },
+                { "a b c a b", "c a b" },
+                { "x a b c a b", "x c a b" },
+                { "A B C A B", "A B C A B" },
+                { "A B A B C", "A B C A B" },
+                { "The cat and the dog", "the dog and the cat" },
+                { "de het een", "het een de" },
+                { "a b c d a b c d", "a b x d a b c y c d", "d c b a b c" }
+        };
+        for (String[] fixture : fixtures) {
+            final SimpleWitness[] w = createWitnesses(fixture);
+            final VariantGraph graph = collate(Arrays.copyOf(w, w.length - 1));
+            final SimpleWitness witness = w[w.length - 1];
+            final MatchTable table = MatchTableImpl.create(graph, witness, new EqualityTokenComparator());
+
+            final VariantGraph.Vertex[][] dense = denseTable(graph, witness);
+            for (int row = 0; row < dense.length; row++) {
+                for (int column = 0; column < dense[row].length; column++) {
+                    assertSame(dense[row][column], table.vertexAt(row, column));
+                    assertSame(dense[row][column] == null ? null : table.rowList().get(row), table.tokenAt(row, column));
+                }
+            }
+            assertEquals(toString(denseIslands(dense)), toString(table.getIslands()));
+        }
+    }
+
+    @Test
+    public void testLargeSparseTable() {
+        final int length = 20000;
+        final StringBuilder base = new StringBuilder();
+        final StringBuilder witness = new StringBuilder();
+        for (int tc = 0; tc < length; tc++) {
+            base.append("t").append(tc).append(" ");
+            witness.append(tc % 100 == 0 ? "x" : "t").append(tc).append(" ");
+        }
+        final SimpleWitness[] w = createWitnesses(base.toString(), witness.toString());
+        final VariantGraph graph = collate(w[0]);
+        final MatchTable table = MatchTableImpl.create(graph, w[1], new EqualityTokenComparator());
+
+        assertEquals(length, table.rowList().size());
+        assertEquals(length, table.columnList().size());
+        for (int tc = 0; tc < length; tc++) {
+            final VariantGraph.Vertex vertex = table.vertexAt(tc, tc);
+            if (tc % 100 == 0) {
+                assertNull(vertex);
+            } else {
+                assertVertexEquals("t" + tc, vertex);
+                assertSame(table.rowList().get(tc), table.tokenAt(tc, tc));
+            }
+            assertNull(table.vertexAt(tc, (tc + 1) % length));
+            assertNull(table.tokenAt(tc, (tc + length - 1) % length));
+        }
+
+        final List<Island> islands = new ArrayList<>(table.getIslands());
+        islands.sort(new IslandPositionComparator());
+        assertEquals(length / 100, islands.size());
+        for (int ic = 0; ic < islands.size(); ic++) {
+            assertIslandEquals(ic * 100 + 1, ic * 100 + 1, ic * 100 + 99, ic * 100 + 99, islands.get(ic));
+        }
+    }
+
+    // the matches of a witness' tokens in a dense table, the last of several vertices in one rank winning
+    private static VariantGraph.Vertex[][] denseTable(VariantGraph graph, SimpleWitness witness) {
+        final VariantGraphRanking ranking = VariantGraphRanking.of(graph);
+        final Matches matches = Matches.between(graph.vertices(), witness, new EqualityTokenComparator());
+        final List<Token> tokens = witness.getTokens();
+        final VariantGraph.Vertex[][] table = new VariantGraph.Vertex[tokens.size()][Math.max(0, ranking.apply(graph.getEnd()) - 1)];
+        for (int row = 0; row < tokens.size(); row++) {
+            for (VariantGraph.Vertex vertex : matches.allMatches.getOrDefault(tokens.get(row), Collections.emptyList())) {
+                table[row][ranking.apply(vertex) - 1] = vertex;
+            }
+        }
+        return table;
+    }
+
+    // islands of diagonally adjacent cells, extending the island of each cell's upper left neighbor
+    private static Set<Island> denseIslands(VariantGraph.Vertex[][] table) {
+        final Map<Coordinate, Island> islands = new HashMap<>();
+        for (int row = 0; row < table.length; row++) {
+            for (int column = 0; column < table[row].length; column++) {
+                if (table[row][column] == null) {
+                    continue;
+                }
+                final Coordinate coordinate = new Coordinate(row, column);
+                Island island = null;
+                if (row > 0 && column > 0 && table[row - 1][column - 1] != null) {
+                    island = islands.get(new Coordinate(row - 1, column - 1));
+                }
+                if (island == null) {
+                    island = new Island();
+                }
+                island.add(coordinate);
+                islands.put(coordinate, island);
+            }
+        }
+        return new HashSet<>(islands.values());
+    }
+
+    private static String toString(Set<Island> islands) {
+        return islands.stream()
+                .map(island -> StreamSupport.stream(island.spliterator(), false)
+                        .map(c -> c.getRow() + ":" + c.getColumn())
+                        .sorted()
+                        .collect(Collectors.joining(" ", "[", "]")))
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
 }
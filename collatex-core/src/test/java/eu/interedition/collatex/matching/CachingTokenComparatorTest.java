@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CachingTokenComparatorTest {
+
+    private final SimpleWitness witness = new SimpleWitness("W");
+
+    @Test
+    public void cachesPairsOfNormalizedForms() {
+        final AtomicInteger comparisons = new AtomicInteger();
+        final EditDistanceTokenComparator editDistance = new EditDistanceTokenComparator(1);
+        final CachingTokenComparator comparator = new CachingTokenComparator((a, b) -> {
+            comparisons.incrementAndGet();
+            return editDistance.compare(a, b);
+        });
+
+        assertEquals(0, comparator.compare(token("near"), token("nar")));
+        assertEquals(0, comparator.compare(token("near"), token("nar")));
+        assertEquals(0, comparator.compare(token("nar"), token("near")));
+        assertEquals(1, comparator.getHits());
+        assertEquals(2, comparator.getMisses());
+        assertEquals(2, comparisons.get());
+        assertEquals(1 / 3.0, comparator.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void evictionKeepsResultsCorrect() {
+        final EditDistanceTokenComparator editDistance = new EditDistanceTokenComparator(1);
+        final CachingTokenComparator comparator = new CachingTokenComparator(editDistance, 16);
+        final Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            final SimpleToken a = token(randomString(random));
+            final SimpleToken b = token(randomString(random));
+            assertEquals(editDistance.compare(a, b), comparator.compare(a, b));
+        }
+    }
+
+    @Test
+    public void distinguishesFormsOfSeparatePools() {
+        final EditDistanceTokenComparator editDistance = new EditDistanceTokenComparator(1);
+        final CachingTokenComparator comparator = new CachingTokenComparator(editDistance);
+        final SimpleWitness other = new SimpleWitness("V");
+        final SimpleToken near = token("near");
+        final SimpleToken far = new SimpleToken(other, "far", "far");
+        assertEquals(near.getNormalizedId(), far.getNormalizedId());
+
+        assertEquals(0, comparator.compare(near, token("near")));
+        assertEquals(editDistance.compare(near, far), comparator.compare(near, far));
+        assertEquals(0, comparator.compare(new SimpleToken(other, "nar", "nar"), near));
+        assertEquals(3, comparator.getMisses());
+    }
+
+    @Test
+    public void keyedComparatorsAreNotDecorated() {
+        final Comparator<Token> equality = new EqualityTokenComparator();
+        assertSame(equality, CachingTokenComparator.of(equality));
+
+        final Comparator<Token> editDistance = new EditDistanceTokenComparator();
+        assertSame(editDistance, CachingTokenComparator.unwrap(CachingTokenComparator.of(editDistance)));
+    }
+
+    private SimpleToken token(String content) {
+        return new SimpleToken(witness, content, content);
+    }
+
+    private static String randomString(Random random) {
+        final char[] chars = new char[1 + random.nextInt(3)];
+        for (int c = 0; c < chars.length; c++) {
+            chars[c] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+}
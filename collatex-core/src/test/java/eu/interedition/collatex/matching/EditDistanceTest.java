@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EditDistanceTest {
+
+    @Test
+    public void distances() {
+        assertEquals(0, EditDistance.compute("", ""));
+        assertEquals(3, EditDistance.compute("", "abc"));
+        assertEquals(1, EditDistance.compute("near", "nar"));
+        assertEquals(3, EditDistance.compute("kitten", "sitting"));
+        assertEquals(2, EditDistance.compute("λόγος", "λογου"));
+    }
+
+    @Test
+    public void matchesDynamicProgramming() {
+        final Random random = new Random(0);
+        for (int run = 0; run < 5000; run++) {
+            final String a = randomString(random, random.nextInt(run % 10 == 0 ? 200 : 20));
+            final String b = randomString(random, random.nextInt(run % 10 == 0 ? 200 : 20));
+            final int distance = distance(a, b);
+            assertEquals(a + " / " + b, distance, EditDistance.compute(a, b));
+
+            final int threshold = random.nextInt(5);
+            final int bounded = EditDistance.compute(a, b, threshold);
+            if (distance <= threshold) {
+                assertEquals(distance, bounded);
+            } else {
+                assertTrue(bounded > threshold);
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        final StringBuilder str = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            str.append((char) (random.nextBoolean() ? 'a' + random.nextInt(4) : 0x3b1 + random.nextInt(4)));
+        }
+        return str.toString();
+    }
+
+    private static int distance(String a, String b) {
+        final int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                d[i][j] = (i == 0 ? j : (j == 0 ? i : Math.min(
+                        Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1),
+                        d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1)
+                )));
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
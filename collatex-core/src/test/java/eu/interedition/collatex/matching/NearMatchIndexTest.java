@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class NearMatchIndexTest {
+
+    @Test
+    public void nearMatches() {
+        final NearMatchIndex index = new NearMatchIndex(Arrays.asList("near", "nare", "matching", "nar", "far"), 1);
+        assertEquals(Arrays.asList("near", "nare", "nar", "far"), index.query("nar"));
+        assertEquals(Arrays.asList("matching"), index.query("matchin"));
+        assertEquals(Arrays.asList(), index.query("yeah"));
+    }
+
+    @Test
+    public void findsAllStringsWithinThreshold() {
+        final Random random = new Random(0);
+        final List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            strings.add(randomString(random));
+        }
+        for (int threshold = 0; threshold <= 2; threshold++) {
+            final NearMatchIndex index = new NearMatchIndex(strings, threshold);
+            for (int q = 0; q < 100; q++) {
+                final String query = randomString(random);
+                final int k = threshold;
+                assertEquals(
+                        strings.stream().distinct().filter(s -> EditDistance.compute(query, s) <= k).collect(Collectors.toList()),
+                        index.query(query)
+                );
+            }
+        }
+    }
+
+    private static String randomString(Random random) {
+        final StringBuilder str = new StringBuilder();
+        for (int i = 0, length = random.nextInt(7); i < length; i++) {
+            str.append((char) ('a' + random.nextInt(3)));
+        }
+        return str.toString();
+    }
+}
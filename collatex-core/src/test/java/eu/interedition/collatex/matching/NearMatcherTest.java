@@ -22,6 +22,9 @@ package eu.interedition.collatex.matching;
 import eu.interedition.collatex.AbstractTest;
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.simple.NormalizedFormPool;
+import eu.interedition.collatex.simple.SimplePatternTokenizer;
+import eu.interedition.collatex.simple.SimpleTokenNormalizers;
 import eu.interedition.collatex.simple.SimpleWitness;
 import org.junit.Test;
 
@@ -29,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class NearMatcherTest extends AbstractTest {
 
@@ -42,4 +46,37 @@ public class NearMatcherTest extends AbstractTest {
         assertEquals(w[0].getTokens().get(0), matches.get(w[1].getTokens().get(0)).get(0).tokens().stream().findFirst().get());
         assertEquals(w[0].getTokens().get(1), matches.get(w[1].getTokens().get(1)).get(0).tokens().stream().findFirst().get());
     }
+
+    @Test
+    public void indexSharedByPool() {
+        final NormalizedFormPool forms = new NormalizedFormPool();
+        final SimpleWitness a = witness("A", forms, "near matching yeah");
+        final SimpleWitness b = witness("B", forms, "nar matchin far");
+        final EditDistanceTokenComparator comparator = new EditDistanceTokenComparator();
+
+        final NearMatchIndex index = comparator.getIndex(forms);
+        assertEquals(forms.size(), index.size());
+        assertSame(index, comparator.getIndex(b.getForms()));
+
+        // tokens sharing a pool are compared via the index, others pairwise, with the same outcome
+        final SimpleWitness c = witness("C", new NormalizedFormPool(), "nar matchin far");
+        for (Token base : a.getTokens()) {
+            for (int tc = 0; tc < b.getTokens().size(); tc++) {
+                assertEquals(comparator.compare(base, c.getTokens().get(tc)), comparator.compare(base, b.getTokens().get(tc)));
+            }
+        }
+        assertEquals(0, comparator.compare(a.getTokens().get(0), b.getTokens().get(0)));
+        assertEquals(0, comparator.compare(a.getTokens().get(1), b.getTokens().get(1)));
+
+        // forms interned later are indexed on demand
+        witness("D", forms, "yeh");
+        assertEquals(forms.size(), comparator.getIndex(forms).size());
+        assertEquals(0, comparator.compare(a.getTokens().get(2), witness("E", forms, "yeh").getTokens().get(0)));
+    }
+
+    private static SimpleWitness witness(String sigil, NormalizedFormPool forms, String content) {
+        final SimpleWitness witness = new SimpleWitness(sigil, forms);
+        witness.setTokenContents(SimplePatternTokenizer.BY_WS_OR_PUNCT.apply(content), SimpleTokenNormalizers.LC_TRIM_WS);
+        return witness;
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.matching;
+
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TokenIdsTest {
+
+    private final SimpleWitness witness = new SimpleWitness("W");
+
+    @Test
+    public void keyedComparator() {
+        assertIds(TokenIds.of(new EqualityTokenComparator()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unkeyedComparator() {
+        assertFalse(TokenIds.isKeyed(new EditDistanceTokenComparator()));
+        TokenIds.of(new EditDistanceTokenComparator());
+    }
+
+    private void assertIds(TokenIds<Token> ids) {
+        assertEquals(0, ids.intern(token("a")));
+        assertEquals(1, ids.intern(token("b")));
+        assertEquals(0, ids.intern(token("a")));
+        assertEquals(1, ids.get(token("b")));
+        assertEquals(-1, ids.get(token("c")));
+        assertEquals(2, ids.size());
+    }
+
+    private SimpleToken token(String content) {
+        return new SimpleToken(witness, content, content);
+    }
+}
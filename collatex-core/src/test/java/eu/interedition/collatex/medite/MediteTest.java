@@ -21,11 +21,20 @@ package eu.interedition.collatex.medite;
 
 import eu.interedition.collatex.AbstractTest;
 import eu.interedition.collatex.CollationAlgorithmFactory;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
 import eu.interedition.collatex.matching.EqualityTokenComparator;
 import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
 import eu.interedition.collatex.util.VariantGraphRanking;
+import eu.interedition.collatex.util.VertexMatch;
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
@@ -48,4 +57,39 @@ public class MediteTest extends AbstractTest {
             "This Carpenter hadde wedded a wyf"
         )).asTable()));
     }
+
+    @Test
+    public void heuristicCostsAsNaiveSum() {
+        final Random random = new Random(0);
+        for (int run = 0; run < 100; run++) {
+            final SimpleWitness[] w = createWitnesses(randomText(random), randomText(random));
+            final VariantGraph graph = collate(w[0]);
+            final VariantGraph.Vertex[][] vertices = VariantGraphRanking.of(graph).asArray();
+            final Token[] tokens = w[1].getTokens().toArray(new Token[0]);
+            final Matches matches = Matches.between(
+                vertices,
+                SuffixTree.build(new EqualityTokenComparator(), tokens),
+                new MediteAlgorithm.MatchEvaluatorWrapper(SimpleToken.TOKEN_MATCH_EVALUATOR, tokens)
+            ).findMaximalUniqueMatches();
+
+            final int[] costs = AlignmentDecisionGraph.heuristicCosts(matches);
+            for (int mc = 0; mc < matches.size(); mc++) {
+                final VertexMatch.WithTokenIndex last = matches.get(mc).last();
+                int cost = 0;
+                for (int following = mc + 1; following < matches.size(); following++) {
+                    final VertexMatch.WithTokenIndex first = matches.get(following).first();
+                    if (last.vertexRank >= first.vertexRank || last.token >= first.token) {
+                        cost += matches.value(following);
+                    }
+                }
+                assertEquals(cost, costs[mc]);
+            }
+        }
+    }
+
+    private static String randomText(Random random) {
+        return random.ints(1 + random.nextInt(60), 0, 1 + random.nextInt(8))
+            .mapToObj(t -> Character.toString((char) ('a' + t)))
+            .collect(Collectors.joining(" "));
+    }
 }
@@ -20,6 +20,9 @@
 package eu.interedition.collatex.medite;
 
 import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.matching.EqualityTokenComparator;
+import eu.interedition.collatex.simple.SimpleWitness;
 import eu.interedition.collatex.util.StreamUtil;
 import org.junit.Test;
 
@@ -27,6 +30,9 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
@@ -42,4 +48,39 @@ public class SuffixTreeTest extends AbstractTest {
                 .collect(Collectors.joining(", ")));
     }
 
+    @Test
+    public void equivalenceClasses() {
+        assertEquivalenceClasses(SuffixTree.build(Comparator.comparing(String::toLowerCase), "S", "P", "O", "a", "s", "p", "o"));
+    }
+
+    @Test
+    public void equivalenceClassesOfInternedSymbols() {
+        final SuffixTree<Token> st = SuffixTree.build(new EqualityTokenComparator(), new SimpleWitness("A", "S P O a s p o").getTokens().toArray(new Token[0]));
+
+        assertEquals("[0, 4] [1, 5] [2, 6] [3]", StreamUtil.stream(st.match(new SimpleWitness("B", "s p o a").getTokens()))
+                .map(c -> Arrays.toString(Arrays.copyOf(c.members, c.length)))
+                .collect(Collectors.joining(" ")));
+    }
+
+    @Test
+    public void nonTransitiveComparator() {
+        // lengths differing by one at most are deemed equal: "a" ~ "bb" ~ "ccc", but "a" !~ "ccc"
+        final Comparator<String> comparator = (a, b) -> (Math.abs(a.length() - b.length()) <= 1 ? 0 : a.length() - b.length());
+        final SuffixTree<String> st = SuffixTree.build(comparator, "a", "bb", "ccc", "a");
+
+        // classes are represented by their first member: "bb" joins the class of "a", "ccc" does not
+        assertEquals("[0, 1, 3]", Arrays.toString(Arrays.copyOf(st.cursor().move("bb").matchedClass().members, 3)));
+        assertEquals("[2]", Arrays.toString(Arrays.copyOf(st.cursor().move("ccc").matchedClass().members, 1)));
+        assertNull(st.cursor().move("dddd").move("ccc"));
+    }
+
+    private static void assertEquivalenceClasses(SuffixTree<String> st) {
+        assertEquals("[0, 4] [1, 5] [2, 6] [3]", StreamUtil.stream(st.match(Arrays.asList("s", "p", "o", "a")))
+                .map(c -> Arrays.toString(Arrays.copyOf(c.members, c.length)))
+                .collect(Collectors.joining(" ")));
+
+        assertNull(st.cursor().move("a").move("p"));
+        assertNull(st.cursor().move("x"));
+    }
+
 }
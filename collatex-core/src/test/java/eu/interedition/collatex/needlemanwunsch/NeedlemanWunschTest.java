@@ -21,9 +21,20 @@ package eu.interedition.collatex.needlemanwunsch;
 
 import eu.interedition.collatex.AbstractTest;
 import eu.interedition.collatex.CollationAlgorithmFactory;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
 import eu.interedition.collatex.matching.EqualityTokenComparator;
+import eu.interedition.collatex.simple.SimpleWitness;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
@@ -34,4 +45,24 @@ public class NeedlemanWunschTest extends AbstractTest {
         setCollationAlgorithm(CollationAlgorithmFactory.needlemanWunsch(new EqualityTokenComparator()));
         LOG.fine(toString(table(collate("a b a b a", "a b a"))));
     }
+
+    @Test
+    public void matchesAnyVertexOfRank() {
+        setCollationAlgorithm(CollationAlgorithmFactory.needlemanWunsch(new EqualityTokenComparator()));
+        final SimpleWitness[] w = createWitnesses("the black cat", "the red cat", "the red dog");
+        final VariantGraph graph = collate(w);
+        final List<SortedMap<Witness, Set<Token>>> table = table(graph);
+
+        assertEquals(3, table.size());
+        assertEquals("|the|red|dog|", toString(table, w[2]));
+        assertGraphVertices(graph, 7);
+    }
+
+    @Test
+    public void alignsIdentifiers() {
+        final int[][] aligned = NeedlemanWunschAlgorithm.align(new int[]{1, 2, 3, 4}, new int[]{1, 3, 4}, (a, b) -> (a == b ? 1 : -1), -1);
+
+        assertArrayEquals(new int[]{0, 2, 3}, aligned[0]);
+        assertArrayEquals(new int[]{0, 1, 2}, aligned[1]);
+    }
 }
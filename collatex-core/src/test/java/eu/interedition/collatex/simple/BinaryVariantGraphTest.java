@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.dekker.InspectableCollationAlgorithm;
+import eu.interedition.collatex.util.AlignmentTable;
+import eu.interedition.collatex.util.VariantGraphRanking;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class BinaryVariantGraphTest extends AbstractTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        final SimpleWitness[] w = createWitnesses("the black cat sat on the mat", "the cat sat on the black mat", "a cat sat on the mat");
+        final VariantGraph graph = collate(w);
+        final VariantGraphRanking ranking = VariantGraphRanking.of(graph);
+        final AlignmentTable table = AlignmentTable.of(ranking);
+
+        final BinaryVariantGraph binary = BinaryVariantGraph.of(ByteBuffer.wrap(write(graph)));
+
+        assertEquals(3, binary.witnessCount());
+        assertEquals("B", binary.sigil(1));
+        assertEquals(2, binary.witness("C"));
+        assertEquals(-1, binary.witness("D"));
+
+        int vertexCount = 0;
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            vertexCount++;
+        }
+        assertEquals(vertexCount, binary.vertexCount());
+        assertEquals(0, binary.tokens(binary.start()).length);
+        assertEquals(ranking.apply(graph.getEnd()).intValue(), binary.rank(binary.end()));
+
+        for (int wc = 0; wc < w.length; wc++) {
+            final List<String> path = new ArrayList<>();
+            int rank = 0;
+            for (int vertex : binary.path(wc)) {
+                final int current = binary.rank(vertex);
+                assertTrue(current > rank);
+                rank = current;
+                for (int token : binary.tokens(vertex)) {
+                    if (binary.witness(token) == wc) {
+                        assertEquals(path.size(), binary.position(token));
+                        path.add(binary.content(token));
+                    }
+                }
+            }
+            assertEquals(w[wc].getTokens().stream().map(t -> ((SimpleToken) t).getContent()).collect(Collectors.toList()), path);
+        }
+
+        assertEquals(graph.transpositions().size(), binary.transpositionCount());
+
+        assertEquals(table.columns(), binary.columns());
+        for (int column = 0; column < table.columns(); column++) {
+            assertEquals(table.rank(column), binary.columnRank(column));
+            for (int wc = 0; wc < w.length; wc++) {
+                final List<String> expected = new ArrayList<>();
+                for (Token token : table.cell(column, wc)) {
+                    expected.add(((SimpleToken) token).getNormalized());
+                }
+                final List<String> actual = new ArrayList<>();
+                for (int token : binary.cell(column, wc)) {
+                    actual.add(binary.normalized(token));
+                }
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void transpositions() throws IOException {
+        ((InspectableCollationAlgorithm) collationAlgorithm).setMergeTranspositions(true);
+        final VariantGraph graph = collate("the black and white cat", "the white and black cat");
+        final BinaryVariantGraph binary = BinaryVariantGraph.of(ByteBuffer.wrap(write(graph)));
+        assertTrue(binary.transpositionCount() > 0);
+        assertEquals(graph.transpositions().size(), binary.transpositionCount());
+        for (int tc = 0; tc < binary.transpositionCount(); tc++) {
+            final int[] members = binary.transposition(tc);
+            assertEquals(2, members.length);
+            assertEquals(binary.content(binary.tokens(members[0])[0]), binary.content(binary.tokens(members[1])[0]));
+        }
+    }
+
+    @Test
+    public void mapped() throws IOException {
+        final SimpleWitness[] w = createWitnesses("the black cat", "the white cat");
+        final Path file = tmp.newFile().toPath();
+        Files.write(file, write(collate(w)));
+
+        final BinaryVariantGraph binary = BinaryVariantGraph.open(file);
+        assertEquals(3, binary.columns());
+        assertArrayEquals(new int[] { binary.cell(1, 0)[0] }, binary.cell(1, 0));
+        assertEquals("white ", binary.content(binary.cell(1, 1)[0]));
+        assertEquals(3, binary.path(1).length);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherData() throws IOException {
+        BinaryVariantGraph.of(ByteBuffer.wrap("{\"witnesses\":[]}".getBytes()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedData() throws IOException {
+        final byte[] data = write(collate("the black cat", "the white cat"));
+        BinaryVariantGraph.of(ByteBuffer.wrap(data, 0, data.length - 1).slice());
+    }
+
+    private static byte[] write(VariantGraph graph) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleVariantGraphSerializer(graph).toBinary(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.CollationAlgorithmFactory;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.matching.EqualityTokenComparator;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ColumnarWitnessTest extends AbstractTest {
+
+    private static final String[] TEXTS = {
+            "The black cat sat on the mat, the black dog did not.",
+            "The black dog sat on the mat; the cat did not.",
+            "On the mat the black cat and the black dog sat."
+    };
+
+    @Test
+    public void tokens() {
+        final ColumnarWitness witness = new ColumnarWitness("A", "The black, cat");
+        assertEquals(4, witness.size());
+        assertEquals("black, ", ((SimpleToken) witness.getTokens().get(1)).getContent().concat(((SimpleToken) witness.getTokens().get(2)).getContent()));
+        assertEquals("the", ((SimpleToken) witness.getTokens().get(0)).getNormalized());
+        assertEquals(witness.getTokens().get(3), witness.getTokens().get(3));
+        assertNotEquals(witness.getTokens().get(2), witness.getTokens().get(3));
+        assertEquals(-1, witness.compare((SimpleToken) witness.getTokens().get(0), (SimpleToken) witness.getTokens().get(1)));
+    }
+
+    @Test
+    public void setTokens() {
+        final ColumnarWitness witness = new ColumnarWitness("A", "The black, cat");
+
+        witness.setTokenContents(Stream.of("A ", "Dog"), SimpleTokenNormalizers.LC_TRIM_WS);
+        assertEquals(2, witness.size());
+        assertEquals("A Dog", witness.getText());
+        assertEquals("dog", ((SimpleToken) witness.getTokens().get(1)).getNormalized());
+        assertEquals(1, ((SimpleToken) witness.getTokens().get(1)).getPosition());
+
+        witness.setTokenOffsets("the mat", new int[] { 0, 4, 4, 7 }, SimpleTokenNormalizers.LC_TRIM_WS);
+        assertEquals("mat", ((SimpleToken) witness.getTokens().get(1)).getContent());
+        assertEquals("the", witness.getForms().form(witness.getNormalizedIds()[0]));
+
+        final SimpleWitness other = new SimpleWitness("B", "Black cat");
+        witness.setTokens(other.getTokens());
+        assertEquals("Black cat", witness.getText());
+        assertEquals("cat", ((SimpleToken) witness.getTokens().get(1)).getNormalized());
+        assertEquals(witness, witness.getTokens().get(1).getWitness());
+        assertEquals(witness.getForms().intern("black"), witness.getNormalizedIds()[0]);
+    }
+
+    @Test
+    public void dekker() {
+        assertCollatedAlike();
+    }
+
+    @Test
+    public void needlemanWunsch() {
+        setCollationAlgorithm(CollationAlgorithmFactory.needlemanWunsch(new EqualityTokenComparator()));
+        assertCollatedAlike();
+    }
+
+    @Test
+    public void medite() {
+        setCollationAlgorithm(CollationAlgorithmFactory.medite(new EqualityTokenComparator(), SimpleToken.TOKEN_MATCH_EVALUATOR));
+        assertCollatedAlike();
+    }
+
+    @Test
+    public void unkeyedComparator() {
+        final Comparator<Token> comparator = (a, b) -> ((SimpleToken) a).getNormalized().compareTo(((SimpleToken) b).getNormalized());
+        setCollationAlgorithm(CollationAlgorithmFactory.dekker(comparator));
+        assertCollatedAlike();
+    }
+
+    private void assertCollatedAlike() {
+        final NormalizedFormPool forms = new NormalizedFormPool();
+        final SimpleWitness[] simple = new SimpleWitness[TEXTS.length];
+        final SimpleWitness[] columnar = new SimpleWitness[TEXTS.length];
+        for (int wc = 0; wc < TEXTS.length; wc++) {
+            final String sigil = Character.toString(SIGLA[wc]);
+            simple[wc] = new SimpleWitness(sigil, TEXTS[wc]);
+            columnar[wc] = new ColumnarWitness(sigil, forms, TEXTS[wc], SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT, SimpleTokenNormalizers.LC_TRIM_WS);
+        }
+        assertEquals(toString(table(collate(simple))), toString(table(collate(columnar))));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FusedTokenNormalizerTest {
+
+    private static final Pattern PUNCT = Pattern.compile("\\p{Punct}");
+
+    private static final Function<String, String> LC_TRIM_WS_PUNCT = SimpleTokenNormalizers.LOWER_CASE.andThen(SimpleTokenNormalizers.TRIM_WS_PUNCT);
+    private static final Function<String, String> LC_TRIM_WS = SimpleTokenNormalizers.LOWER_CASE.andThen(SimpleTokenNormalizers.TRIM_WS);
+    private static final Function<String, String> TOKEN_NORMALIZER = input -> {
+        final String normalized = PUNCT.matcher(input.trim().toLowerCase()).replaceAll("");
+        return (normalized.length() == 0 ? input : normalized);
+    };
+
+    @Test
+    public void normalizesLikeStepwiseComposition() {
+        final Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            final String content = randomContent(random);
+            assertEquals(content, LC_TRIM_WS_PUNCT.apply(content), SimpleTokenNormalizers.LC_TRIM_WS_PUNCT.apply(content));
+            assertEquals(content, LC_TRIM_WS.apply(content), SimpleTokenNormalizers.LC_TRIM_WS.apply(content));
+            assertEquals(content, TOKEN_NORMALIZER.apply(content), SimpleWitness.TOKEN_NORMALIZER.apply(content));
+        }
+    }
+
+    @Test
+    public void returnsNormalizedContent() {
+        final String content = "normalized";
+        assertSame(content, SimpleTokenNormalizers.LC_TRIM_WS_PUNCT.apply(content));
+    }
+
+    @Test
+    public void foldUnicode() {
+        final Function<String, String> normalizer = SimpleTokenNormalizers.builder().lowerCase().foldUnicode().build();
+        assertEquals("ecole", normalizer.apply("École"));
+        assertEquals("ecole", normalizer.apply("ecole"));
+    }
+
+    @Test
+    public void internRanges() {
+        final NormalizedFormPool forms = new NormalizedFormPool();
+        final FusedTokenNormalizer normalizer = SimpleTokenNormalizers.builder().lowerCase().trimWhitespace().build();
+        final String text = "The the THE, cat";
+        final int the = normalizer.intern(text, 0, 4, forms);
+        assertEquals(the, normalizer.intern(text, 4, 8, forms));
+        assertEquals(the, normalizer.intern(text, 8, 11, forms));
+        assertEquals(the, forms.intern("the"));
+        assertEquals("the,", forms.form(normalizer.intern(text, 8, 13, forms)));
+        assertEquals(2, forms.size());
+    }
+
+    private static String randomContent(Random random) {
+        final String alphabet = "aBz .,;!?()'-\t\u001CéÉİ";
+        final char[] content = new char[random.nextInt(8)];
+        for (int c = 0; c < content.length; c++) {
+            content[c] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(content);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class SimplePatternTokenizerTest {
+
+    private static final Logger LOG = Logger.getLogger(SimplePatternTokenizerTest.class.getName());
+
+    private static final String PUNCT = Pattern.quote(".?!,;:");
+
+    @Test
+    public void tokenizeByWhitespaceOrPunctuation() {
+        assertEquals(Arrays.asList("Hello", ", ", ",", "world", "!? ", "again"),
+                SimplePatternTokenizer.BY_WS_OR_PUNCT.apply("  Hello, ,world!? again").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void tokenizeByWhitespace() {
+        assertEquals(Arrays.asList("  Hello, ", ",world!? ", "again"),
+                SimplePatternTokenizer.BY_WHITESPACE.apply("  Hello, ,world!? again").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void tokenizeByWhitespaceAndPunctuation() {
+        assertEquals(Arrays.asList("  Hello, ,", "world!? ", "again"),
+                SimplePatternTokenizer.BY_WS_AND_PUNCT.apply("  Hello, ,world!? again").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void scannersMatchPatterns() {
+        final Pattern byWsOrPunct = Pattern.compile("[" + PUNCT + "]+[\\s]*|[^" + PUNCT + "\\s]+[\\s]*");
+        final Pattern byWsAndPunct = Pattern.compile("[\\s" + PUNCT + "]*?[^\\s" + PUNCT + "]+[\\s" + PUNCT + "]*");
+        final Pattern byWs = Pattern.compile("\\s*?\\S+\\s*");
+        final Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            final String input = randomText(random);
+            assertEquals(input, offsets(byWsOrPunct, input), offsets(SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT, input));
+            assertEquals(input, offsets(byWsAndPunct, input), offsets(SimplePatternTokenizer.OFFSETS_BY_WS_AND_PUNCT, input));
+            assertEquals(input, offsets(byWs, input), offsets(SimplePatternTokenizer.OFFSETS_BY_WHITESPACE, input));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void tokenizeLargeText() {
+        final String[] words = { "Lorem", "ipsum", "dolor", "sit", "amet,", "consectetur", "adipiscing", "elit.", "Sed?", "do" };
+        final Random random = new Random(0);
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < (5 << 20)) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(8) == 0 ? "\n" : " ");
+        }
+        final String input = text.toString();
+
+        final Pattern byWsOrPunct = Pattern.compile("[" + PUNCT + "]+[\\s]*|[^" + PUNCT + "\\s]+[\\s]*");
+        List<Integer> expected = null;
+        long patternTime = Long.MAX_VALUE;
+        long scannerTime = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            expected = offsets(byWsOrPunct, input);
+            patternTime = Math.min(patternTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            final int[] offsets = SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT.apply(input);
+            scannerTime = Math.min(scannerTime, System.nanoTime() - start);
+            assertEquals(expected.size(), offsets.length);
+        }
+        assertEquals(expected, offsets(SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT, input));
+        LOG.info(String.format("Tokenized %d MB (%d tokens): pattern %d ms, scanner %d ms",
+                input.length() >> 20, expected.size() / 2, patternTime / 1000000, scannerTime / 1000000));
+    }
+
+    private static List<Integer> offsets(Pattern pattern, String input) {
+        final List<Integer> offsets = new ArrayList<>();
+        final Matcher matcher = pattern.matcher(input);
+        while (matcher.find()) {
+            offsets.add(matcher.start());
+            offsets.add(matcher.end());
+        }
+        return offsets;
+    }
+
+    private static List<Integer> offsets(Function<String, int[]> tokenizer, String input) {
+        return Arrays.stream(tokenizer.apply(input)).boxed().collect(Collectors.toList());
+    }
+
+    private static String randomText(Random random) {
+        final String alphabet = "ab .,?!;: \t\nä-";
+        final char[] text = new char[random.nextInt(20)];
+        for (int c = 0; c < text.length; c++) {
+            text[c] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(text);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
+import eu.interedition.collatex.dekker.InspectableCollationAlgorithm;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class SimpleVariantGraphSerializerTest extends AbstractTest {
+
+    private static final String SVG_NS = "http://www.w3.org/2000/svg";
+
+    @Test
+    public void svg() throws Exception {
+        final VariantGraph graph = collate(createWitnesses("the black cat", "the white cat", "the cat"));
+        final Document svg = parse(toSVG(graph));
+
+        assertEquals("svg", svg.getDocumentElement().getLocalName());
+        assertEquals(SVG_NS, svg.getDocumentElement().getNamespaceURI());
+
+        int vertexCount = 0;
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            vertexCount++;
+        }
+        // start and end vertices are drawn as circles
+        assertEquals(vertexCount - 2, svg.getElementsByTagNameNS(SVG_NS, "rect").getLength());
+        assertEquals(2, svg.getElementsByTagNameNS(SVG_NS, "circle").getLength());
+        // one group for the graph, one per vertex and one per edge
+        assertEquals(1 + vertexCount + edgeCount(graph), svg.getElementsByTagNameNS(SVG_NS, "g").getLength());
+    }
+
+    @Test
+    public void svgOfTranspositions() throws Exception {
+        ((InspectableCollationAlgorithm) collationAlgorithm).setMergeTranspositions(true);
+        final VariantGraph graph = collate("the black and white cat", "the white and black cat");
+        final Document svg = parse(toSVG(graph));
+        final int transposedTuples = new SimpleVariantGraphSerializer(graph).transposedTuples().size();
+        assertTrue(transposedTuples > 0);
+        assertEquals(transposedTuples, svg.getElementsByTagNameNS(SVG_NS, "line").getLength());
+    }
+
+    @Test(timeout = 30000)
+    public void largeGraphs() throws Exception {
+        final VariantGraph graph = largeGraph(100000);
+        final SimpleVariantGraphSerializer serializer = new SimpleVariantGraphSerializer(graph);
+        final int vertexCount = serializer.ranked().vertexCount();
+        final int edgeCount = serializer.ranked().edgeCount();
+        assertTrue(vertexCount > 200000);
+
+        final LineCounter dot = new LineCounter();
+        serializer.toDot(dot);
+        // header, vertices, edges, the invisible edge between start and end, footer
+        assertEquals(1 + vertexCount + edgeCount + 1 + 1, dot.lines);
+
+        final LineCounter graphML = new LineCounter();
+        final XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(graphML);
+        xml.writeStartDocument();
+        serializer.toGraphML(xml);
+        xml.writeEndDocument();
+        xml.close();
+        assertTrue(graphML.chars > 100L * (vertexCount + edgeCount));
+    }
+
+    /**
+     * Builds a graph of two witnesses reading the same token at even positions and different tokens at odd ones.
+     */
+    private static VariantGraph largeGraph(int length) {
+        final VariantGraph graph = new VariantGraph();
+        final SimpleWitness a = new SimpleWitness("A");
+        final SimpleWitness b = new SimpleWitness("B");
+        final Set<Witness> both = new HashSet<>(Arrays.asList(a, b));
+        VariantGraph.Vertex last = graph.getStart();
+        for (int pos = 0; pos < length; pos += 2) {
+            final String content = Integer.toString(pos);
+            final VariantGraph.Vertex shared = graph.add(new SimpleToken(a, content, content));
+            shared.add(Collections.singleton(new SimpleToken(b, content, content)));
+            graph.connect(last, shared, both);
+
+            final String variant = Integer.toString(pos + 1);
+            final VariantGraph.Vertex readingA = graph.add(new SimpleToken(a, variant, variant));
+            final VariantGraph.Vertex readingB = graph.add(new SimpleToken(b, variant + "'", variant));
+            graph.connect(shared, readingA, Collections.singleton(a));
+            graph.connect(shared, readingB, Collections.singleton(b));
+            last = graph.add(new SimpleToken(a, "|", "|"));
+            last.add(Collections.singleton(new SimpleToken(b, "|", "|")));
+            graph.connect(readingA, last, Collections.singleton(a));
+            graph.connect(readingB, last, Collections.singleton(b));
+        }
+        graph.connect(last, graph.getEnd(), both);
+        return graph;
+    }
+
+    private static class LineCounter extends Writer {
+        int lines;
+        long chars;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            chars += len;
+            for (int cc = off; cc < off + len; cc++) {
+                if (cbuf[cc] == '\n') {
+                    lines++;
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            chars += len;
+            for (int cc = off; cc < off + len; cc++) {
+                if (str.charAt(cc) == '\n') {
+                    lines++;
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static int edgeCount(VariantGraph graph) {
+        int edges = 0;
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            edges += vertex.outgoingEdges().size();
+        }
+        return edges;
+    }
+
+    private static String toSVG(VariantGraph graph) throws XMLStreamException {
+        final StringWriter out = new StringWriter();
+        final XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+        xml.writeStartDocument();
+        new SimpleVariantGraphSerializer(graph).toSVG(xml);
+        xml.writeEndDocument();
+        xml.close();
+        return out.toString();
+    }
+
+    private static Document parse(String xml) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
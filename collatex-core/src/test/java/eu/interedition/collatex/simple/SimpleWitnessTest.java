@@ -20,9 +20,30 @@
 package eu.interedition.collatex.simple;
 
 import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
 import org.junit.Test;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class SimpleWitnessTest extends AbstractTest {
 
@@ -35,6 +56,116 @@ public class SimpleWitnessTest extends AbstractTest {
         assertNormalized("&", "&");
     }
 
+    @Test
+    public void internNormalizedForms() {
+        final NormalizedFormPool forms = new NormalizedFormPool();
+        final SimpleWitness a = new SimpleWitness("A", forms);
+        final SimpleWitness b = new SimpleWitness("B", forms);
+        a.setTokenContents(SimplePatternTokenizer.BY_WS_OR_PUNCT.apply("The cat"), SimpleTokenNormalizers.LC_TRIM_WS);
+        b.setTokenContents(SimplePatternTokenizer.BY_WS_OR_PUNCT.apply("the dog"), SimpleTokenNormalizers.LC_TRIM_WS);
+
+        final SimpleToken aThe = (SimpleToken) a.getTokens().get(0);
+        final SimpleToken bThe = (SimpleToken) b.getTokens().get(0);
+        assertSame(aThe.getNormalized(), bThe.getNormalized());
+        assertEquals(aThe.getNormalizedId(), bThe.getNormalizedId());
+        assertNotEquals(aThe.getNormalizedId(), ((SimpleToken) b.getTokens().get(1)).getNormalizedId());
+    }
+
+    @Test
+    public void defaultPoolsPerWitness() {
+        final SimpleWitness a = new SimpleWitness("A", "The cat");
+        final SimpleWitness b = new SimpleWitness("B", "The cat");
+        assertNotSame(a.getForms(), b.getForms());
+
+        // contents are kept as given, only normalized forms are interned
+        final String content = new String("The");
+        final SimpleToken token = new SimpleToken(a, content, "the");
+        assertSame(content, token.getContent());
+        assertSame(a.getForms().form(token.getNormalizedId()), token.getNormalized());
+    }
+
+    @Test(timeout = 30000)
+    public void internConcurrently() throws Exception {
+        final NormalizedFormPool forms = new NormalizedFormPool();
+        final int formCount = 20000;
+        final ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int tc = 0; tc < 4; tc++) {
+                final int offset = tc * 1000;
+                results.add(threads.submit(() -> {
+                    final int[] ids = new int[formCount];
+                    for (int fc = 0; fc < formCount; fc++) {
+                        final int form = (fc + offset) % formCount;
+                        ids[form] = (fc % 2 == 0 ? forms.intern(Integer.toString(form)) : forms.intern(Integer.toString(form).toCharArray(), 0, Integer.toString(form).length()));
+                        assertEquals(Integer.toString(form), forms.form(ids[form]));
+                    }
+                    return ids;
+                }));
+            }
+            final int[] ids = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(ids, result.get());
+            }
+            assertEquals(formCount, forms.size());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void positionsAssignedOnce() {
+        final SimpleWitness a = new SimpleWitness("A", "the black cat");
+        final SimpleWitness b = new SimpleWitness("B", "the black cat");
+        final List<Token> tokens = new ArrayList<>(a.getTokens());
+
+        // tokens can be set again at their positions
+        a.setTokens(tokens);
+        assertEquals(2, ((SimpleToken) a.getTokens().get(2)).getPosition());
+
+        // but neither be moved nor be added to another witness
+        final List<Token> reversed = new ArrayList<>(tokens);
+        Collections.reverse(reversed);
+        try {
+            a.setTokens(reversed);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(tokens, a.getTokens());
+        }
+        try {
+            b.setTokens(tokens);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, ((SimpleToken) b.getTokens().get(0)).getPosition());
+            assertNotSame(tokens.get(0), b.getTokens().get(0));
+        }
+        assertTrue(a.compare((SimpleToken) tokens.get(0), (SimpleToken) tokens.get(2)) < 0);
+    }
+
+    @Test(timeout = 30000)
+    public void serializeLongWitness() throws XMLStreamException {
+        final int tokenCount = 100000;
+        final SimpleWitness witness = new SimpleWitness("A", IntStream.range(0, tokenCount).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+
+        // ordering tokens by their witness looks up their positions in constant time
+        final List<SimpleToken> tokens = witness.getTokens().stream().map(t -> (SimpleToken) t).collect(Collectors.toList());
+        Collections.shuffle(tokens, new Random(0));
+        long start = System.nanoTime();
+        Collections.sort(tokens);
+        LOG.info(String.format("Ordered %d tokens in %d ms", tokenCount, (System.nanoTime() - start) / 1000000));
+        assertEquals(witness.getTokens(), tokens);
+
+        final VariantGraph graph = collate(witness);
+        final StringWriter tei = new StringWriter();
+        start = System.nanoTime();
+        new SimpleVariantGraphSerializer(graph).toTEI(XMLOutputFactory.newInstance().createXMLStreamWriter(tei));
+        LOG.info(String.format("Serialized a witness of %d tokens as TEI in %d ms", tokenCount, (System.nanoTime() - start) / 1000000));
+
+        assertEquals(99999, ((SimpleToken) witness.getTokens().get(99999)).getPosition());
+        assertEquals("A:99999:'99999'", witness.getTokens().get(99999).toString());
+        assertTrue(tei.toString().endsWith("9999899999</cx:apparatus>"));
+    }
+
     private static void assertNormalized(String content, String expected) {
         assertEquals(expected, SimpleWitness.TOKEN_NORMALIZER.apply(content));
     }
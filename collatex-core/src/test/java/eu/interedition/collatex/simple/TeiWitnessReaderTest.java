@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.simple;
+
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class TeiWitnessReaderTest {
+
+    private static final String TEI = "<TEI xmlns=\"http://www.tei-c.org/ns/1.0\"><text><body>" +
+            "<p><w>The</w> <w>black</w>\n<seg>cat <w>sat</w></seg> ignored <w> on\n the </w><w>mat<pc>.</pc></w></p>" +
+            "</body></text></TEI>";
+
+    @Test
+    public void readTokens() throws XMLStreamException {
+        final ColumnarWitness witness = new TeiWitnessReader().read("A", stream(TEI));
+        assertEquals("A", witness.getSigil());
+        assertEquals("The |black |cat sat |on the |mat. ", contents(witness));
+        assertEquals("the|black|cat sat|on the|mat", witness.getTokens().stream()
+                .map(t -> ((SimpleToken) t).getNormalized())
+                .collect(Collectors.joining("|")));
+    }
+
+    @Test
+    public void readConfiguredElements() throws XMLStreamException {
+        final TeiWitnessReader reader = new TeiWitnessReader(new NormalizedFormPool(), SimpleTokenNormalizers.LC_TRIM_WS,
+                new QName(TeiWitnessReader.TEI_NS, "w"));
+        assertEquals("The |black |sat |on the |mat. ", contents(reader.read("B", stream(TEI))));
+    }
+
+    @Test
+    public void skipEmptyNormalizedForms() throws XMLStreamException {
+        final String tei = "<TEI xmlns=\"http://www.tei-c.org/ns/1.0\"><text><body>" +
+                "<p><w>The</w><w>.</w> <w>cat</w><w> , </w><w>\u00BF</w></p>" +
+                "</body></text></TEI>";
+        final NormalizedFormPool forms = new NormalizedFormPool();
+        final ColumnarWitness witness = new TeiWitnessReader(forms, SimpleTokenNormalizers.LC_TRIM_WS_PUNCT,
+                new QName(TeiWitnessReader.TEI_NS, "w")).read("A", stream(tei));
+        assertEquals("The |cat ", contents(witness));
+        assertEquals(2, forms.size());
+
+        final Function<String, String> normalizer = content -> content.replaceAll("[\\s\\p{Punct}\u00BF]", "");
+        assertEquals("The |cat ", contents(new TeiWitnessReader(new NormalizedFormPool(), normalizer,
+                new QName(TeiWitnessReader.TEI_NS, "w")).read("B", stream(tei))));
+    }
+
+    @Test(timeout = 30000)
+    public void readLargeDocument() throws XMLStreamException {
+        final String[] words = { "in", "principio", "erat", "verbum", "et", "verbum", "erat", "apud", "deum" };
+        final Random random = new Random(0);
+        final StringBuilder tei = new StringBuilder("<TEI xmlns=\"http://www.tei-c.org/ns/1.0\"><text><body>");
+        int tokens = 0;
+        while (tei.length() < 10000000) {
+            tei.append("<p>");
+            for (int wc = 0; wc < 100; wc++, tokens++) {
+                tei.append("<w n=\"").append(tokens).append("\">").append(words[random.nextInt(words.length)]).append("</w> ");
+            }
+            tei.append("</p>\n");
+        }
+        tei.append("</body></text></TEI>");
+
+        final ColumnarWitness witness = new TeiWitnessReader().read("A", stream(tei.toString()));
+        assertEquals(tokens, witness.size());
+    }
+
+    private static String contents(ColumnarWitness witness) {
+        return witness.getTokens().stream().map(t -> ((SimpleToken) t).getContent()).collect(Collectors.joining("|"));
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
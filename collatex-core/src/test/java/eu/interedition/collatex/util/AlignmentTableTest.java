@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.Token;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.Witness;
+import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class AlignmentTableTest extends AbstractTest {
+
+    @Test
+    public void emptyGraph() {
+        final AlignmentTable table = AlignmentTable.of(VariantGraphRanking.of(collate(createWitnesses())));
+        assertEquals(0, table.columns());
+        assertEquals(0, table.getWitnesses().size());
+    }
+
+    @Test
+    public void variant() {
+        final SimpleWitness[] w = createWitnesses("the black cat", "the white cat", "the cat");
+        final AlignmentTable table = AlignmentTable.of(VariantGraphRanking.of(collate(w)));
+        assertEquals(3, table.columns());
+        assertEquals("the |black |cat", row(table, 0));
+        assertEquals("the |white |cat", row(table, 1));
+        assertEquals("the ||cat", row(table, 2));
+        assertEquals(1, table.rank(0));
+        assertEquals(3, table.rank(2));
+    }
+
+    @Test
+    public void joinedVertices() {
+        final SimpleWitness[] w = createWitnesses("the black cat sat", "the white cat sat");
+        final VariantGraph graph = collate(w);
+        VariantGraph.JOIN.apply(graph);
+        final AlignmentTable table = AlignmentTable.of(VariantGraphRanking.of(graph));
+        assertEquals(3, table.columns());
+        assertEquals(2, table.cell(2, 0).size());
+        assertEquals("the |black |cat sat", row(table, 0));
+        assertEquals("the |white |cat sat", row(table, 1));
+    }
+
+    @Test
+    public void columnsMatchCells() {
+        final SimpleWitness[] w = createWitnesses("a b c d e f", "c d e f a b", "f e d c b a", "a c e b d f");
+        final AlignmentTable table = AlignmentTable.of(VariantGraphRanking.of(collate(w)));
+        for (int column = 0; column < table.columns(); column++) {
+            final SortedMap<Witness, Iterable<Token>> contents = table.column(column);
+            assertEquals(table.getWitnesses(), new ArrayList<>(contents.keySet()));
+            for (int wc = 0; wc < w.length; wc++) {
+                assertEquals(table.cell(column, wc), contents.get(table.getWitnesses().get(wc)));
+            }
+        }
+        // every token is aligned exactly once
+        for (int wc = 0; wc < w.length; wc++) {
+            final List<Token> tokens = new ArrayList<>();
+            for (int column = 0; column < table.columns(); column++) {
+                tokens.addAll(table.cell(column, wc));
+            }
+            assertEquals(w[wc].getTokens().size(), tokens.size());
+            assertEquals(w[wc].getTokens().stream().collect(Collectors.toSet()), tokens.stream().collect(Collectors.toSet()));
+        }
+    }
+
+    private static String row(AlignmentTable table, int witness) {
+        final List<String> cells = new ArrayList<>();
+        for (int column = 0; column < table.columns(); column++) {
+            cells.add(table.cell(column, witness).stream()
+                    .map(t -> (SimpleToken) t)
+                    .sorted()
+                    .map(SimpleToken::getContent)
+                    .collect(Collectors.joining()));
+        }
+        return String.join("|", cells);
+    }
+}
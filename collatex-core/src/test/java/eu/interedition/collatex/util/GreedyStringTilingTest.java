@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.CollationAlgorithmFactory;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.matching.EqualityTokenComparator;
+import eu.interedition.collatex.simple.SimpleToken;
+import eu.interedition.collatex.simple.SimpleWitness;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class GreedyStringTilingTest extends AbstractTest {
+
+    @Test
+    public void tilesIdentifiers() {
+        final SortedSet<GreedyStringTilingAlgorithm.Match> tiles = GreedyStringTilingAlgorithm.match(
+                new int[] { 1, 2, 3, 4, 5, -1, 6 }, new int[] { 4, 5, 1, 2, 3, 6 }, 2
+        );
+        assertEquals("[0+2:3, 3+0:2]", toString(tiles));
+    }
+
+    @Test
+    public void tilesAsNaiveMatching() {
+        final Random random = new Random(0);
+        for (int run = 0; run < 1000; run++) {
+            final int[] left = random.ints(random.nextInt(40), 0, 1 + random.nextInt(5)).toArray();
+            final int[] right = random.ints(random.nextInt(40), 0, 1 + random.nextInt(5)).toArray();
+            final int minimumTileLength = 1 + random.nextInt(3);
+
+            assertEquals(
+                    toString(GreedyStringTilingAlgorithm.match(
+                            Arrays.stream(left).boxed().toArray(Integer[]::new),
+                            Arrays.stream(right).boxed().toArray(Integer[]::new),
+                            Integer::equals,
+                            minimumTileLength
+                    )),
+                    toString(GreedyStringTilingAlgorithm.match(left, right, minimumTileLength))
+            );
+        }
+    }
+
+    @Test
+    public void tilesIdentifierSetsAsNaiveMatching() {
+        final Random random = new Random(0);
+        for (int run = 0; run < 1000; run++) {
+            final int alphabet = 1 + random.nextInt(6);
+            final int[][] left = new int[random.nextInt(40)][];
+            for (int lc = 0; lc < left.length; lc++) {
+                left[lc] = random.ints(random.nextInt(3), 0, alphabet).distinct().sorted().toArray();
+            }
+            final int[] right = random.ints(random.nextInt(40), 0, alphabet).toArray();
+            final int minimumTileLength = 1 + random.nextInt(3);
+
+            assertEquals(
+                    toString(GreedyStringTilingAlgorithm.match(
+                            left,
+                            Arrays.stream(right).boxed().toArray(Integer[]::new),
+                            (set, id) -> Arrays.binarySearch(set, id) >= 0,
+                            minimumTileLength
+                    )),
+                    toString(GreedyStringTilingAlgorithm.match(left, right, minimumTileLength))
+            );
+        }
+    }
+
+    @Test
+    public void tilesThroughAnyVertexOfRank() {
+        final SimpleWitness[] w = createWitnesses("a b c", "a x c", "x a b c", "b a x c");
+        setCollationAlgorithm(CollationAlgorithmFactory.greedyStringTiling(new EqualityTokenComparator(), 1));
+        final VariantGraph graph = collate(w[0], w[1]);
+
+        // "b" and "x" share a rank; the other witnesses tile through either reading
+        setCollationAlgorithm(CollationAlgorithmFactory.greedyStringTiling(new EqualityTokenComparator(), 3));
+        collate(graph, w[2], w[3]);
+        assertEquals(2, vertexWith(graph, "b", w[2]).tokens().size());
+        assertEquals(2, vertexWith(graph, "x", w[3]).tokens().size());
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            assertEquals(Math.min(1, vertex.tokens().size()), vertex.tokens().stream().map(t -> ((SimpleToken) t).getNormalized()).distinct().count());
+        }
+        assertGraphVertices(graph, 8);
+    }
+
+    @Test
+    public void mergesIntoMatchingVertex() {
+        setCollationAlgorithm(CollationAlgorithmFactory.greedyStringTiling(new EqualityTokenComparator(), 1));
+        final VariantGraph graph = collate("the black cat", "the red cat", "the red dog");
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            assertEquals(Math.min(1, vertex.tokens().size()), vertex.tokens().stream().map(t -> ((SimpleToken) t).getNormalized()).distinct().count());
+        }
+        assertGraphVertices(graph, 7);
+    }
+
+    private static String toString(SortedSet<GreedyStringTilingAlgorithm.Match> tiles) {
+        return tiles.stream().map(t -> t.left + "+" + t.right + ":" + t.length).collect(Collectors.joining(", ", "[", "]"));
+    }
+}
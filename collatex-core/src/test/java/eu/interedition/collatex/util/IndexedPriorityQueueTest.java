@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedPriorityQueueTest {
+
+    @Test
+    public void decreaseKey() {
+        final int[] priorities = { 5, 3, 8, 1 };
+        final IndexedPriorityQueue queue = new IndexedPriorityQueue(2, (a, b) -> Integer.compare(priorities[a], priorities[b]));
+        for (int element = 0; element < priorities.length; element++) {
+            queue.offer(element);
+        }
+        assertEquals(4, queue.size());
+        assertEquals(3, queue.peek());
+
+        priorities[2] = 0;
+        queue.update(2);
+        assertEquals(2, queue.poll());
+        assertFalse(queue.contains(2));
+
+        assertTrue(queue.remove(3));
+        assertEquals(1, queue.poll());
+        assertEquals(0, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void ordersElements() {
+        final Random random = new Random(0);
+        final int[] priorities = new int[1000];
+        final IndexedPriorityQueue queue = new IndexedPriorityQueue(0, (a, b) -> Integer.compare(priorities[a], priorities[b]));
+        for (int element = 0; element < priorities.length; element++) {
+            priorities[element] = random.nextInt(100);
+            queue.offer(element);
+        }
+        for (int element = 0; element < priorities.length; element += 3) {
+            priorities[element] = random.nextInt(100);
+            queue.update(element);
+        }
+
+        final List<Integer> polled = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            polled.add(priorities[queue.poll()]);
+        }
+        assertEquals(priorities.length, polled.size());
+        for (int pc = 1; pc < polled.size(); pc++) {
+            assertTrue(polled.get(pc - 1) <= polled.get(pc));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntervalIndexTest {
+
+    @Test
+    public void removesOverlappingIntervals() {
+        final IntervalIndex index = new IntervalIndex(new int[] { 0, 2, 5, 7, 3 }, new int[] { 1, 4, 6, 9, 3 });
+        final BitSet removed = new BitSet();
+        index.removeOverlapping(4, 5, removed::set);
+        assertEquals(BitSet.valueOf(new long[] { 0b00110 }), removed);
+        assertEquals(3, index.size());
+
+        assertTrue(index.remove(0));
+        assertFalse(index.remove(0));
+        assertFalse(index.contains(1));
+        assertTrue(index.contains(3));
+        assertTrue(index.contains(4));
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        final Random random = new Random(0);
+        final int n = 500;
+        final int[] starts = new int[n];
+        final int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = random.nextInt(1000);
+            ends[i] = starts[i] + random.nextInt(20);
+        }
+        final IntervalIndex index = new IntervalIndex(starts, ends);
+        final IntervalIndex copy = new IntervalIndex(index);
+        final BitSet retained = new BitSet();
+        retained.set(0, n);
+        while (!index.isEmpty()) {
+            final int from = random.nextInt(1000);
+            final int to = from + random.nextInt(10);
+
+            final BitSet expected = new BitSet();
+            for (int i = retained.nextSetBit(0); i >= 0; i = retained.nextSetBit(i + 1)) {
+                if (starts[i] <= to && ends[i] >= from) {
+                    expected.set(i);
+                }
+            }
+            final BitSet removed = new BitSet();
+            index.removeOverlapping(from, to, removed::set);
+            assertEquals(expected, removed);
+            retained.andNot(removed);
+            assertEquals(retained.cardinality(), index.size());
+        }
+        assertEquals(n, copy.size());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.simple.SimpleWitness;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RankedVariantGraphTest extends AbstractTest {
+
+    @Test
+    public void verticesOrderedByRank() {
+        final VariantGraph graph = collate(createWitnesses("the black cat", "the white cat", "the cat"));
+        final VariantGraphRanking ranking = VariantGraphRanking.of(graph);
+        final RankedVariantGraph ranked = RankedVariantGraph.of(ranking);
+
+        int vertexCount = 0;
+        for (VariantGraph.Vertex vertex : graph.vertices()) {
+            final int id = ranked.id(vertex);
+            assertSame(vertex, ranked.vertex(id));
+            assertEquals((int) ranking.apply(vertex), ranked.rank(id));
+            vertexCount++;
+        }
+        assertEquals(vertexCount, ranked.vertexCount());
+        assertEquals(0, ranked.id(graph.getStart()));
+        assertEquals(vertexCount - 1, ranked.id(graph.getEnd()));
+        for (int vc = 1; vc < ranked.vertexCount(); vc++) {
+            assertTrue(ranked.rank(vc - 1) <= ranked.rank(vc));
+        }
+        assertEquals(-1, ranked.id(new VariantGraph().getStart()));
+    }
+
+    @Test
+    public void edgesWithSigla() {
+        final SimpleWitness[] w = createWitnesses("the black cat", "the white cat", "the cat");
+        final VariantGraph graph = collate(w);
+        final RankedVariantGraph ranked = RankedVariantGraph.of(graph);
+
+        int edgeCount = 0;
+        for (int vc = 0; vc < ranked.vertexCount(); vc++) {
+            final VariantGraph.Vertex vertex = ranked.vertex(vc);
+            assertEquals(vertex.outgoingEdges().size(), ranked.edges(vc + 1) - ranked.edges(vc));
+            for (int ec = ranked.edges(vc); ec < ranked.edges(vc + 1); ec++) {
+                if (ec > ranked.edges(vc)) {
+                    assertTrue(ranked.target(ec - 1) < ranked.target(ec));
+                }
+                final VariantGraph.Edge edge = vertex.outgoingEdges().get(ranked.vertex(ranked.target(ec)));
+                final Set<String> sigla = new HashSet<>();
+                edge.sigla.forEach(witness -> sigla.add(witness.getSigil()));
+                assertEquals(sigla.size(), ranked.sigla(ec).split(", ").length);
+                assertEquals(ranked.label(ranked.siglaId(ec)), ranked.sigla(ec));
+                edgeCount++;
+            }
+        }
+        assertEquals(edgeCount, ranked.edgeCount());
+        assertEquals(edgeCount, ranked.edges(ranked.vertexCount()));
+
+        final VariantGraph.Vertex the = vertexWith(graph, "the", w[0]);
+        final int theId = ranked.id(the);
+        final Set<String> labels = new HashSet<>();
+        for (int ec = ranked.edges(theId); ec < ranked.edges(theId + 1); ec++) {
+            labels.add(ranked.sigla(ec));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), labels);
+        // "A, B, C" into and out of the shared vertices, plus one label per variant
+        assertEquals(4, ranked.labelCount());
+    }
+}
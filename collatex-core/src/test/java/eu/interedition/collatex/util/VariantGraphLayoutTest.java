@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.util;
+
+import eu.interedition.collatex.AbstractTest;
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.simple.SimpleWitness;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VariantGraphLayoutTest extends AbstractTest {
+
+    @Test
+    public void layersFollowRanking() {
+        final VariantGraph graph = collate(createWitnesses("the black cat", "the white cat", "the cat"));
+        final VariantGraphRanking ranking = VariantGraphRanking.of(graph);
+        final VariantGraphLayout layout = VariantGraphLayout.of(graph, ranking);
+
+        assertEquals(ranking.getByRank().size(), layout.layers());
+        for (VariantGraph.Vertex vertex : layout.vertices()) {
+            assertEquals((int) ranking.apply(vertex), layout.layer(vertex));
+        }
+        assertSlotsArePermutations(layout);
+    }
+
+    @Test
+    public void routesSpanRanks() {
+        final VariantGraph graph = collate(createWitnesses("a b c d e", "a e", "a c e"));
+        final VariantGraphLayout layout = VariantGraphLayout.of(graph);
+        for (int ec = 0; ec < layout.edges().size(); ec++) {
+            final VariantGraphLayout.Edge edge = layout.edges().get(ec);
+            final int[] route = layout.route(ec);
+            assertEquals(layout.layer(edge.to) - layout.layer(edge.from) + 1, route.length);
+            assertEquals(layout.slot(edge.from), route[0]);
+            assertEquals(layout.slot(edge.to), route[route.length - 1]);
+        }
+        assertSlotsArePermutations(layout);
+    }
+
+    @Test
+    public void noCrossingsInSimpleVariation() {
+        final VariantGraph graph = collate(createWitnesses("the black cat", "the white cat", "the cat"));
+        assertEquals(0, VariantGraphLayout.of(graph).crossings());
+    }
+
+    @Test
+    public void countsCrossings() {
+        final SimpleWitness[] w = createWitnesses("a b c d e f", "c d e f a b", "f e d c b a", "a c e b d f");
+        final VariantGraphLayout layout = VariantGraphLayout.of(collate(w));
+        assertSlotsArePermutations(layout);
+
+        // count crossings of route segments between neighbouring layers pairwise
+        int crossings = 0;
+        for (int e1 = 0; e1 < layout.edges().size(); e1++) {
+            for (int e2 = e1 + 1; e2 < layout.edges().size(); e2++) {
+                final int[] r1 = layout.route(e1);
+                final int[] r2 = layout.route(e2);
+                final int l1 = layout.layer(layout.edges().get(e1).from);
+                final int l2 = layout.layer(layout.edges().get(e2).from);
+                for (int s1 = 0; s1 < r1.length - 1; s1++) {
+                    final int s2 = l1 + s1 - l2;
+                    if (s2 >= 0 && s2 < r2.length - 1 && Integer.signum(r1[s1] - r2[s2]) * Integer.signum(r1[s1 + 1] - r2[s2 + 1]) < 0) {
+                        crossings++;
+                    }
+                }
+            }
+        }
+        assertEquals(crossings, layout.crossings());
+    }
+
+    private static void assertSlotsArePermutations(VariantGraphLayout layout) {
+        final BitSet[] slots = new BitSet[layout.layers()];
+        for (int lc = 0; lc < slots.length; lc++) {
+            slots[lc] = new BitSet();
+        }
+        for (VariantGraph.Vertex vertex : layout.vertices()) {
+            final int slot = layout.slot(vertex);
+            assertTrue(slot >= 0 && slot < layout.layerSize(layout.layer(vertex)));
+            assertTrue(!slots[layout.layer(vertex)].get(slot));
+            slots[layout.layer(vertex)].set(slot);
+        }
+        for (int ec = 0; ec < layout.edges().size(); ec++) {
+            final int[] route = layout.route(ec);
+            final int fromLayer = layout.layer(layout.edges().get(ec).from);
+            for (int rc = 1; rc < route.length - 1; rc++) {
+                assertTrue(route[rc] >= 0 && route[rc] < layout.layerSize(fromLayer + rc));
+                assertTrue(!slots[fromLayer + rc].get(route[rc]));
+                slots[fromLayer + rc].set(route[rc]);
+            }
+        }
+        for (int lc = 0; lc < slots.length; lc++) {
+            assertEquals(layout.layerSize(lc), slots[lc].cardinality());
+        }
+    }
+}
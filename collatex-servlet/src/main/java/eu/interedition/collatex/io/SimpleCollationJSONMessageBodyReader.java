@@ -4,6 +4,7 @@ import eu.interedition.collatex.CollationAlgorithm;
 import eu.interedition.collatex.CollationAlgorithmFactory;
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.dekker.InspectableCollationAlgorithm;
+import eu.interedition.collatex.matching.CachingTokenComparator;
 import eu.interedition.collatex.matching.EditDistanceTokenComparator;
 import eu.interedition.collatex.matching.EqualityTokenComparator;
 import eu.interedition.collatex.simple.*;
@@ -53,6 +54,7 @@ public class SimpleCollationJSONMessageBodyReader implements MessageBodyReader<S
             }
 
             final List<SimpleWitness> witnesses = new ArrayList<>(witnessesNode.size());
+            final NormalizedFormPool forms = new NormalizedFormPool();
 
             for (JsonValue witnessNode : witnessesNode) {
                 if (witnessNode.getValueType() != JsonValue.ValueType.OBJECT) {
@@ -70,7 +72,7 @@ public class SimpleCollationJSONMessageBodyReader implements MessageBodyReader<S
                     throw new IOException("Empty witness 'id' encountered");
                 }
 
-                final SimpleWitness witness = new SimpleWitness(witnessId);
+                final SimpleWitness witness = new SimpleWitness(witnessId, forms);
                 if (witnesses.contains(witness)) {
                     throw new IOException(String.format("Duplicate sigil for witness '%s", witness));
                 }
@@ -121,8 +123,10 @@ public class SimpleCollationJSONMessageBodyReader implements MessageBodyReader<S
                     if (contentNode.getValueType() != JsonValue.ValueType.STRING) {
                         throw new IOException(String.format("Expected 'content' text field in witness \"%s\"", witness));
                     }
-                    witness.setTokenContents(
-                        SimplePatternTokenizer.BY_WS_OR_PUNCT.apply(((JsonString) contentNode).getString()),
+                    final String content = ((JsonString) contentNode).getString();
+                    witness.setTokenOffsets(
+                        content,
+                        SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT.apply(content),
                         SimpleTokenNormalizers.LC_TRIM_WS
                     );
                 }
@@ -149,6 +153,7 @@ public class SimpleCollationJSONMessageBodyReader implements MessageBodyReader<S
             if (tokenComparator == null) {
                 tokenComparator = new EqualityTokenComparator();
             }
+            tokenComparator = CachingTokenComparator.of(tokenComparator);
 
             CollationAlgorithm collationAlgorithm = null;
             final JsonValue collationAlgorithmNode = collationObject.get("algorithm");
@@ -0,0 +1,42 @@
+package eu.interedition.collatex.io;
+
+import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.simple.BinaryVariantGraph;
+import eu.interedition.collatex.simple.SimpleVariantGraphSerializer;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes variant graphs in their {@link BinaryVariantGraph binary format}.
+ */
+@Provider
+@Produces(BinaryVariantGraph.MEDIA_TYPE)
+public class VariantGraphBinaryMessageBodyWriter implements MessageBodyWriter<VariantGraph> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return VariantGraph.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(VariantGraph variantGraph, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return 0;
+    }
+
+    @Override
+    public void writeTo(VariantGraph graph, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        httpHeaders.add(HttpHeaders.CONTENT_TYPE, BinaryVariantGraph.MEDIA_TYPE);
+        try (OutputStream responseStream = entityStream) {
+            new SimpleVariantGraphSerializer(graph).toBinary(responseStream);
+        }
+    }
+}
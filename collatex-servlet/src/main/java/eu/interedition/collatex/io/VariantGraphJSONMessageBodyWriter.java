@@ -4,7 +4,7 @@ import eu.interedition.collatex.VariantGraph;
 import eu.interedition.collatex.Witness;
 import eu.interedition.collatex.simple.SimpleToken;
 import eu.interedition.collatex.simple.SimpleWitness;
-import eu.interedition.collatex.util.ParallelSegmentationApparatus;
+import eu.interedition.collatex.util.AlignmentTable;
 import eu.interedition.collatex.util.VariantGraphRanking;
 
 import javax.json.Json;
@@ -20,10 +20,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
-import java.util.SortedMap;
-import java.util.Spliterator;
-import java.util.Spliterators;
-import java.util.stream.StreamSupport;
+import java.util.List;
 
 /**
  * Created by ronald on 5/5/15.
@@ -51,45 +48,38 @@ public class VariantGraphJSONMessageBodyWriter implements MessageBodyWriter<Vari
     }
 
     private static void write(final VariantGraph graph, final JsonGenerator jgen) {
-        ParallelSegmentationApparatus.generate(VariantGraphRanking.of(graph), new ParallelSegmentationApparatus.GeneratorCallback() {
-            @Override
-            public void start() {
-                jgen.writeStartObject();
+        final AlignmentTable table = AlignmentTable.of(VariantGraphRanking.of(graph));
+        final List<Witness> witnesses = table.getWitnesses();
 
-                jgen.writeStartArray("witnesses");
-                graph.witnesses().stream().sorted(Witness.SIGIL_COMPARATOR).map(Witness::getSigil).forEach(jgen::write);
-                jgen.writeEnd();
+        jgen.writeStartObject();
 
-                jgen.writeStartArray("table");
-            }
+        jgen.writeStartArray("witnesses");
+        witnesses.stream().map(Witness::getSigil).forEach(jgen::write);
+        jgen.writeEnd();
 
-            @Override
-            public void segment(SortedMap<Witness, Iterable<eu.interedition.collatex.Token>> contents) {
+        jgen.writeStartArray("table");
+        for (int column = 0; column < table.columns(); column++) {
+            jgen.writeStartArray();
+            for (int wc = 0; wc < witnesses.size(); wc++) {
                 jgen.writeStartArray();
-                contents.values().forEach(tokens -> {
-                    jgen.writeStartArray();
-                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(tokens.iterator(), Spliterator.NONNULL | Spliterator.IMMUTABLE), false)
-                        .filter(t -> t instanceof SimpleToken)
-                        .map(t -> (SimpleToken) t)
-                        .sorted()
-                        .forEach(t -> {
-                            if (t instanceof Token) {
-                                jgen.write(((Token) t).getJsonNode());
-                            } else {
-                                jgen.write(t.getContent());
-                            }
-                        });
-                    jgen.writeEnd();
-                });
+                table.cell(column, wc).stream()
+                    .filter(t -> t instanceof SimpleToken)
+                    .map(t -> (SimpleToken) t)
+                    .sorted()
+                    .forEach(t -> {
+                        if (t instanceof Token) {
+                            jgen.write(((Token) t).getJsonNode());
+                        } else {
+                            jgen.write(t.getContent());
+                        }
+                    });
                 jgen.writeEnd();
             }
+            jgen.writeEnd();
+        }
+        jgen.writeEnd();
 
-            @Override
-            public void end() {
-                jgen.writeEnd();
-                jgen.writeEnd();
-            }
-        });
+        jgen.writeEnd();
     }
 
     public static class Token extends SimpleToken {
@@ -26,6 +26,10 @@ import javax.script.ScriptException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
@@ -34,9 +38,18 @@ public class CollateX {
 
     public static final PrintWriter ERROR_LOG = new PrintWriter(System.err);
 
+    // the loggers of this package, held on to so that their configuration is not garbage-collected
+    private static final Logger LOG = Logger.getLogger(CollateX.class.getPackage().getName());
+
     public static void main(String... args) {
         try {
             final CommandLine commandLine = new GnuParser().parse(OPTIONS, args);
+            if (commandLine.hasOption("v")) {
+                verbose();
+            }
+            if (commandLine.hasOption("lt")) {
+                WitnessIngestion.setThreads(Integer.parseInt(commandLine.getOptionValue("lt")));
+            }
             if (commandLine.hasOption("h")) {
                 help();
             } else if (commandLine.hasOption("S")) {
@@ -60,6 +73,7 @@ public class CollateX {
             error("Unexpected error", t);
             t.printStackTrace(ERROR_LOG);
         } finally {
+            WitnessIngestion.shutdown();
             ERROR_LOG.flush();
         }
     }
@@ -68,6 +82,17 @@ public class CollateX {
         new HelpFormatter().printHelp(ERROR_LOG, 78, "collatex [<options>]\n (<json_input> | <witness_1> <witness_2> [[<witness_3>] ...])", "", OPTIONS, 2, 4, "");
     }
 
+    /**
+     * Reports the timings and statistics logged by this package with level {@link Level#FINE} on standard error.
+     */
+    private static void verbose() {
+        final Handler handler = new ConsoleHandler();
+        handler.setLevel(Level.FINE);
+        LOG.addHandler(handler);
+        LOG.setLevel(Level.FINE);
+        LOG.setUseParentHandlers(false);
+    }
+
     public static void error(String str, Throwable t) {
         ERROR_LOG.println(str);
         ERROR_LOG.println(t.getMessage());
@@ -85,12 +110,13 @@ public class CollateX {
         OPTIONS.addOption("xp", "xpath", true, "XPath 1.0 expression evaluating to tokens of XML witnesses; default: '//text()'");
         OPTIONS.addOption("a", "algorithm", true, "progressive alignment algorithm to use 'dekker' (default), 'medite', 'needleman-wunsch'");
         OPTIONS.addOption("t", "tokenized", false, "consecutive matches of tokens will *not* be joined to segments");
-        OPTIONS.addOption("f", "format", true, "result/output format: 'json', 'csv', 'dot', 'graphml', 'tei'");
+        OPTIONS.addOption("f", "format", true, "result/output format: 'json', 'csv', 'dot', 'graphml', 'tei', 'svg', 'binary'");
         OPTIONS.addOption("s", "script", true, "ECMA/JavaScript resource with functions to be plugged into the alignment algorithm");
+        OPTIONS.addOption("lt", "loading-threads", true, "number of threads loading witnesses in parallel, default: number of processors, at most " + WitnessIngestion.MAX_DEFAULT_THREADS);
+        OPTIONS.addOption("v", "verbose", false, "report timings of witness loading and token comparison statistics on standard error; both are only logged at level FINE otherwise");
 
         OPTIONS.addOption("S", "http", false, "start RESTful HTTP server");
         OPTIONS.addOption("cp", "context-path", true, "URL base/context path of the service, default: '/'");
-        OPTIONS.addOption("dot", "dot-path", true, "path to Graphviz 'dot', auto-detected by default");
         OPTIONS.addOption("p", "port", true, "HTTP port to bind server to, default: 7369");
         OPTIONS.addOption("mpc", "max-parallel-collations", true, "maximum number of collations to perform in parallel, default: 2");
         OPTIONS.addOption("mcs", "max-collation-size", true, "maximum number of characters (counted over all witnesses) to perform collations on, default: unlimited");
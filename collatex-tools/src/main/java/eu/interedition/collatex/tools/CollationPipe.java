@@ -23,6 +23,7 @@ import eu.interedition.collatex.CollationAlgorithm;
 import eu.interedition.collatex.CollationAlgorithmFactory;
 import eu.interedition.collatex.Token;
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.matching.CachingTokenComparator;
 import eu.interedition.collatex.matching.EqualityTokenComparator;
 import eu.interedition.collatex.simple.*;
 import org.apache.commons.cli.CommandLine;
@@ -44,11 +45,15 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 /**
@@ -56,6 +61,8 @@ import java.util.stream.Stream;
  */
 public class CollationPipe {
 
+    private static final Logger LOG = Logger.getLogger(CollationPipe.class.getName());
+
     public static void start(CommandLine commandLine) throws Exception {
         List<SimpleWitness> witnesses = null;
         Function<String, Stream<String>> tokenizer = SimplePatternTokenizer.BY_WS_OR_PUNCT;
@@ -81,6 +88,7 @@ public class CollationPipe {
                 final SimpleCollation collation = JsonProcessor.read(inputStream);
                 witnesses = collation.getWitnesses();
                 collationAlgorithm = collation.getAlgorithm();
+                comparator = Optional.ofNullable(collation.getComparator()).orElse(comparator);
                 joined = collation.isJoined();
             }
         }
@@ -93,7 +101,7 @@ public class CollationPipe {
 
             tokenizer = Optional.ofNullable(pluginScript.tokenizer()).orElse(tokenizer);
             normalizer = Optional.ofNullable(pluginScript.normalizer()).orElse(normalizer);
-            comparator = Optional.ofNullable(pluginScript.comparator()).orElse(comparator);
+            comparator = Optional.ofNullable(pluginScript.comparator()).map(CachingTokenComparator::of).orElse(comparator);
         } catch (IOException e) {
             throw new ParseException("Failed to read script '" + script + "' - " + e.getMessage());
         }
@@ -116,42 +124,55 @@ public class CollationPipe {
         if (witnesses == null) {
             final Charset inputCharset = Charset.forName(commandLine.getOptionValue("ie", StandardCharsets.UTF_8.name()));
             final boolean xmlMode = commandLine.hasOption("xml");
-            final XPathExpression tokenXPath = XPathFactory.newInstance().newXPath().compile(commandLine.getOptionValue("xp", "//text()"));
+            final String tokenXPath = commandLine.getOptionValue("xp", "//text()");
+            // fail early on invalid expressions; compiled expressions cannot be shared between loading threads though
+            XPathFactory.newInstance().newXPath().compile(tokenXPath);
 
-            witnesses = new ArrayList<>(inputStreams.length);
+            final NormalizedFormPool forms = new NormalizedFormPool();
+            final Function<String, Stream<String>> witnessTokenizer = tokenizer;
+            final Function<String, String> witnessNormalizer = normalizer;
+            final List<Callable<SimpleWitness>> loaders = new ArrayList<>(inputStreams.length);
             for (int wc = 0, wl = inputStreams.length; wc < wl; wc++) {
-                try (InputStream stream = inputStreams[wc]) {
-                    final String sigil = "w" + (wc + 1);
-                    if (!xmlMode) {
-                        final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, inputCharset));
-                        final StringWriter writer = new StringWriter();
-                        final char[] buf = new char[1024];
-                        while (reader.read(buf) != -1) {
-                            writer.write(buf);
-                        }
-                        witnesses.add(new SimpleWitness(sigil, writer.toString(), tokenizer, normalizer));
-                    } else {
-                        final DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                        final Document document = documentBuilder.parse(stream);
-                        document.normalizeDocument();
-
-                        final SimpleWitness witness = new SimpleWitness(sigil);
-                        final NodeList tokenNodes = (NodeList) tokenXPath.evaluate(document, XPathConstants.NODESET);
-                        final List<Token> tokens = new ArrayList<>(tokenNodes.getLength());
-                        for (int nc = 0; nc < tokenNodes.getLength(); nc++) {
-                            final String tokenText = tokenNodes.item(nc).getTextContent();
-                            tokens.add(new SimpleToken(witness, tokenText, normalizer.apply(tokenText)));
+                final InputStream stream = inputStreams[wc];
+                final String sigil = "w" + (wc + 1);
+                loaders.add(() -> {
+                    try (InputStream in = stream) {
+                        final SimpleWitness witness = new SimpleWitness(sigil, forms);
+                        if (!xmlMode) {
+                            witness.setTokenContents(witnessTokenizer.apply(WitnessText.read(in, inputCharset)), witnessNormalizer);
+                        } else {
+                            final DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+                            final Document document = documentBuilder.parse(in);
+                            document.normalizeDocument();
+
+                            final XPathExpression tokenExpression = XPathFactory.newInstance().newXPath().compile(tokenXPath);
+                            final NodeList tokenNodes = (NodeList) tokenExpression.evaluate(document, XPathConstants.NODESET);
+                            final List<Token> tokens = new ArrayList<>(tokenNodes.getLength());
+                            for (int nc = 0; nc < tokenNodes.getLength(); nc++) {
+                                final String tokenText = tokenNodes.item(nc).getTextContent();
+                                tokens.add(new SimpleToken(witness, tokenText, witnessNormalizer.apply(tokenText)));
+                            }
+                            witness.setTokens(tokens);
                         }
-                        witness.setTokens(tokens);
-                        witnesses.add(witness);
+                        return witness;
                     }
-                }
+                });
             }
+            witnesses = WitnessIngestion.load(loaders);
         }
 
         final VariantGraph variantGraph = new VariantGraph();
         collationAlgorithm.collate(variantGraph, witnesses);
 
+        if (comparator instanceof CachingTokenComparator && LOG.isLoggable(Level.FINE)) {
+            final CachingTokenComparator cache = (CachingTokenComparator) comparator;
+            final long comparisons = cache.getHits() + cache.getMisses();
+            if (comparisons > 0) {
+                LOG.fine(String.format("Answered %d of %d token comparisons from the cache (hit rate: %.1f%%)",
+                        cache.getHits(), comparisons, cache.getHitRate() * 100));
+            }
+        }
+
         if (joined && !commandLine.hasOption("t")) {
             VariantGraph.JOIN.apply(variantGraph);
         }
@@ -160,19 +181,28 @@ public class CollationPipe {
         final Charset outputCharset = Charset.forName(commandLine.getOptionValue("oe", StandardCharsets.UTF_8.name()));
         final String outputFormat = commandLine.getOptionValue("f", "json").toLowerCase();
 
+        if ("binary".equals(outputFormat)) {
+            try (OutputStream out = argumentToOutputStream(output)) {
+                new SimpleVariantGraphSerializer(variantGraph).toBinary(out);
+            }
+            return;
+        }
+
         try (PrintWriter out = argumentToOutput(output, outputCharset)) {
             final SimpleVariantGraphSerializer serializer = new SimpleVariantGraphSerializer(variantGraph);
             if ("csv".equals(outputFormat)) {
                 serializer.toCsv(out);
             } else if ("dot".equals(outputFormat)) {
                 serializer.toDot(out);
-            } else if ("graphml".equals(outputFormat) || "tei".equals(outputFormat)) {
+            } else if ("graphml".equals(outputFormat) || "tei".equals(outputFormat) || "svg".equals(outputFormat)) {
                 XMLStreamWriter xml = null;
                 try {
                     xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
                     xml.writeStartDocument(outputCharset.name(), "1.0");
                     if ("graphml".equals(outputFormat)) {
                         serializer.toGraphML(xml);
+                    } else if ("svg".equals(outputFormat)) {
+                        serializer.toSVG(xml);
                     } else {
                         serializer.toTEI(xml);
                     }
@@ -209,12 +239,26 @@ public class CollationPipe {
         }
         final File witnessFile = new File(arg);
         if (witnessFile.exists()) {
-            return witnessFile.toURI().normalize().toURL().openStream();
+            // file streams give access to their channel for bulk reading
+            return new FileInputStream(witnessFile);
         } else {
             return new URL(arg).openStream();
         }
     }
 
+    private static OutputStream argumentToOutputStream(String arg) throws ParseException, IOException {
+        if ("-".equals(arg)) {
+            return System.out;
+        }
+
+        final File outFile = new File(arg);
+        try {
+            return Files.newOutputStream(outFile.toPath());
+        } catch (NoSuchFileException e) {
+            throw new ParseException("Output file '" + outFile + "' not found");
+        }
+    }
+
     private static PrintWriter argumentToOutput(String arg, Charset outputCharset) throws ParseException, IOException {
         if ("-".equals(arg)) {
             return new PrintWriter(new OutputStreamWriter(System.out, outputCharset));
@@ -20,6 +20,7 @@
 package eu.interedition.collatex.tools;
 
 import eu.interedition.collatex.VariantGraph;
+import eu.interedition.collatex.simple.BinaryVariantGraph;
 import eu.interedition.collatex.simple.SimpleCollation;
 import eu.interedition.collatex.simple.SimpleToken;
 import eu.interedition.collatex.simple.SimpleVariantGraphSerializer;
@@ -37,7 +38,6 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.*;
-import java.nio.charset.Charset;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Optional;
@@ -55,11 +55,9 @@ public class CollationServer {
     private static final Logger LOG = Logger.getLogger(CollationServer.class.getName());
 
     private final int maxCollationSize;
-    private final String dotPath;
     private final ExecutorService collationThreads;
-    private final ExecutorService processThreads = Executors.newCachedThreadPool();
 
-    public CollationServer(int maxParallelCollations, int maxCollationSize, String dotPath) {
+    public CollationServer(int maxParallelCollations, int maxCollationSize) {
         this.collationThreads = Executors.newFixedThreadPool(maxParallelCollations, new ThreadFactory() {
             private final AtomicLong counter = new AtomicLong();
 
@@ -73,14 +71,12 @@ public class CollationServer {
         });
 
         this.maxCollationSize = maxCollationSize;
-        this.dotPath = dotPath;
     }
 
     public static void start(CommandLine commandLine) {
         final CollationServer collator = new CollationServer(
             Integer.parseInt(commandLine.getOptionValue("mpc", "2")),
-            Integer.parseInt(commandLine.getOptionValue("mcs", "0")),
-            Optional.ofNullable(commandLine.getOptionValue("dot")).orElse(detectDotPath())
+            Integer.parseInt(commandLine.getOptionValue("mcs", "0"))
         );
         final String staticPath = System.getProperty("collatex.static.path", "");
         final HttpHandler httpHandler = staticPath.isEmpty() ? new CLStaticHttpHandler(CollationPipe.class.getClassLoader(), "/static/") {
@@ -200,63 +196,29 @@ public class CollationServer {
                     } catch (XMLStreamException e) {
                         e.printStackTrace();
                     }
+                } else if (clientAccepts.contains(BinaryVariantGraph.MEDIA_TYPE)) {
+                    response.setContentType(BinaryVariantGraph.MEDIA_TYPE);
+                    try (final OutputStream responseStream = response.getOutputStream()) {
+                        new SimpleVariantGraphSerializer(graph).toBinary(responseStream);
+                    }
+                    response.resume();
                 } else if (clientAccepts.contains("image/svg+xml")) {
-                    if (dotPath == null) {
-                        response.sendError(204);
+                    XMLStreamWriter xml = null;
+                    try {
+                        response.setContentType("image/svg+xml");
+                        try (OutputStream responseStream = response.getOutputStream()) {
+                            xml = XMLOutputFactory.newInstance().createXMLStreamWriter(responseStream);
+                            xml.writeStartDocument();
+                            new SimpleVariantGraphSerializer(graph).toSVG(xml);
+                            xml.writeEndDocument();
+                        } finally {
+                            if (xml != null) {
+                                xml.close();
+                            }
+                        }
                         response.resume();
-                    } else {
-                        final StringWriter dot = new StringWriter();
-                        new SimpleVariantGraphSerializer(graph).toDot(dot);
-
-                        final Process dotProc = new ProcessBuilder(dotPath, "-Grankdir=LR", "-Gid=VariantGraph", "-Tsvg").start();
-                        final StringWriter errors = new StringWriter();
-                        CompletableFuture.allOf(
-                            CompletableFuture.runAsync(() -> {
-                                final char[] buf = new char[8192];
-                                try (final Reader errorStream = new InputStreamReader(dotProc.getErrorStream())) {
-                                    int len;
-                                    while ((len = errorStream.read(buf)) >= 0) {
-                                        errors.write(buf, 0, len);
-                                    }
-                                } catch (IOException e) {
-                                    throw new CompletionException(e);
-                                }
-                            }, processThreads),
-                            CompletableFuture.runAsync(() -> {
-                                try (final Writer dotProcStream = new OutputStreamWriter(dotProc.getOutputStream(), "UTF-8")) {
-                                    dotProcStream.write(dot.toString());
-                                } catch (IOException e) {
-                                    throw new CompletionException(e);
-                                }
-                            }, processThreads),
-                            CompletableFuture.runAsync(() -> {
-                                response.setContentType("image/svg+xml");
-                                final byte[] buf = new byte[8192];
-                                try (final InputStream in = dotProc.getInputStream(); final OutputStream out = response.getOutputStream()) {
-                                    int len;
-                                    while ((len = in.read(buf)) >= 0) {
-                                        out.write(buf, 0, len);
-                                    }
-                                } catch (IOException e) {
-                                    throw new CompletionException(e);
-                                }
-                            }, processThreads),
-                            CompletableFuture.runAsync(() -> {
-                                try {
-                                    if (!dotProc.waitFor(60,TimeUnit.SECONDS)) {
-                                        throw new CompletionException(new RuntimeException("dot processing took longer than 60 seconds, process was timed out."));
-                                    }
-                                    if (dotProc.exitValue() != 0) {
-                                        throw new CompletionException(new IllegalStateException(errors.toString()));
-                                    }
-                                } catch (InterruptedException e) {
-                                    throw new CompletionException(e);
-                                }
-                            }, processThreads)
-                        ).exceptionally(t -> {
-                            t.printStackTrace();
-                            return null;
-                        }).thenRunAsync(response::resume, processThreads);
+                    } catch (XMLStreamException e) {
+                        e.printStackTrace();
                     }
                 } else {
                     response.setContentType("application/json");
@@ -277,29 +239,6 @@ public class CollationServer {
             .collect(Collectors.toCollection(ArrayDeque::new));
     }
 
-    private static String detectDotPath() {
-        for (String detectionCommand : new String[] { "which dot", "where dot.exe" }) {
-            try {
-
-                final Process process = Runtime.getRuntime().exec(detectionCommand);
-                try (BufferedReader processReader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
-                    final CompletableFuture<Optional<String>> path = CompletableFuture.supplyAsync(() -> processReader.lines()
-                        .map(String::trim)
-                        .filter(l -> l.toLowerCase().contains("dot"))
-                        .findFirst());
-                    process.waitFor();
-                    final String dotPath = path.get().get();
-                    LOG.info(() -> "Detected GraphViz' dot at '" + dotPath + "'");
-                    return dotPath;
-                }
-            } catch (Throwable t) {
-                LOG.log(Level.FINE, detectionCommand, t);
-            }
-        }
-        return null;
-    }
-
-
     private static class StandardOutAccessLogAppender implements AccessLogAppender {
 
 
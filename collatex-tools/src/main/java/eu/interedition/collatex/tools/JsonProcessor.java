@@ -24,14 +24,17 @@ import eu.interedition.collatex.CollationAlgorithmFactory;
 import eu.interedition.collatex.VariantGraph;
 import eu.interedition.collatex.Witness;
 import eu.interedition.collatex.dekker.InspectableCollationAlgorithm;
+import eu.interedition.collatex.matching.CachingTokenComparator;
 import eu.interedition.collatex.matching.EditDistanceTokenComparator;
 import eu.interedition.collatex.matching.EqualityTokenComparator;
+import eu.interedition.collatex.simple.NormalizedFormPool;
 import eu.interedition.collatex.simple.SimpleCollation;
 import eu.interedition.collatex.simple.SimplePatternTokenizer;
 import eu.interedition.collatex.simple.SimpleToken;
 import eu.interedition.collatex.simple.SimpleTokenNormalizers;
+import eu.interedition.collatex.simple.SimpleVariantGraphSerializer;
 import eu.interedition.collatex.simple.SimpleWitness;
-import eu.interedition.collatex.util.ParallelSegmentationApparatus;
+import eu.interedition.collatex.util.AlignmentTable;
 import eu.interedition.collatex.util.VariantGraphRanking;
 
 import javax.json.Json;
@@ -49,10 +52,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.Spliterator;
-import java.util.Spliterators;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.Callable;
 
 /**
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
@@ -75,6 +75,8 @@ public class JsonProcessor {
             }
 
             final List<SimpleWitness> witnesses = new ArrayList<>(witnessesNode.size());
+            final NormalizedFormPool forms = new NormalizedFormPool();
+            final List<Callable<SimpleWitness>> loaders = new ArrayList<>(witnessesNode.size());
 
             for (JsonValue witnessNode : witnessesNode) {
                 if (witnessNode.getValueType() != JsonValue.ValueType.OBJECT) {
@@ -92,7 +94,7 @@ public class JsonProcessor {
                     throw new IOException("Empty witness 'id' encountered");
                 }
 
-                final SimpleWitness witness = new SimpleWitness(witnessId);
+                final SimpleWitness witness = new SimpleWitness(witnessId, forms);
                 if (witnesses.contains(witness)) {
                     throw new IOException(String.format("Duplicate sigil for witness '%s", witness));
                 }
@@ -108,45 +110,23 @@ public class JsonProcessor {
                         throw new IOException(String.format("Expected 'tokens' array in witness \"%s\"", witness));
                     }
                     final JsonArray tokensArray = (JsonArray) tokensNode;
-                    final List<eu.interedition.collatex.Token> tokens = new ArrayList<>(tokensArray.size());
-                    for (JsonValue tokenNode : tokensArray) {
-                        if (tokenNode.getValueType() != JsonValue.ValueType.OBJECT) {
-                            throw new IOException(String.format("Expected token object in 'tokens' field in witness \"%s\"", witness));
-                        }
-                        final JsonObject tokenObject = (JsonObject) tokenNode;
-                        String tokenContent;
-                        try {
-                            tokenContent = tokenObject.getString("t");
-                        } catch (ClassCastException | NullPointerException e) {
-                            throw new IOException(String.format("Expected textual token content field 't' in witness \"%s\"", witness));
-                        }
-
-                        String normalizedTokenContent;
-                        if (tokenObject.containsKey("n")) {
-                            try {
-                                normalizedTokenContent = tokenObject.getString("n");
-                            } catch (ClassCastException e) {
-                                throw new IOException(String.format("Expected textual normalized token content in witness \"%s\"", witness));
-                            }
-                        } else {
-                            normalizedTokenContent = SimpleWitness.TOKEN_NORMALIZER.apply(tokenContent);
-                        }
-
-                        if (normalizedTokenContent == null || normalizedTokenContent.length() == 0) {
-                            throw new IOException(String.format("Empty token encountered in witness \"%s\"", witness));
-                        }
-
-                        tokens.add(new Token(witness, tokenContent, normalizedTokenContent, tokenObject));
-                    }
-                    witness.setTokens(tokens);
+                    loaders.add(() -> {
+                        witness.setTokens(readTokens(witness, tokensArray));
+                        return witness;
+                    });
                 } else {
                     if (contentNode.getValueType() != JsonValue.ValueType.STRING) {
                         throw new IOException(String.format("Expected 'content' text field in witness \"%s\"", witness));
                     }
-                    witness.setTokenContents(
-                        SimplePatternTokenizer.BY_WS_OR_PUNCT.apply(((JsonString) contentNode).getString()),
-                        SimpleTokenNormalizers.LC_TRIM_WS
-                    );
+                    final String content = ((JsonString) contentNode).getString();
+                    loaders.add(() -> {
+                        witness.setTokenOffsets(
+                            content,
+                            SimplePatternTokenizer.OFFSETS_BY_WS_OR_PUNCT.apply(content),
+                            SimpleTokenNormalizers.LC_TRIM_WS
+                        );
+                        return witness;
+                    });
                 }
                 witnesses.add(witness);
             }
@@ -155,6 +135,9 @@ public class JsonProcessor {
                 throw new IOException("No witnesses in collation");
             }
 
+            // tokenize witnesses in parallel
+            WitnessIngestion.load(loaders);
+
             Comparator<eu.interedition.collatex.Token> tokenComparator = null;
             final JsonValue tokenComparatorNode = collationObject.get("tokenComparator");
             if (tokenComparatorNode != null && tokenComparatorNode.getValueType() == JsonValue.ValueType.OBJECT) {
@@ -171,6 +154,7 @@ public class JsonProcessor {
             if (tokenComparator == null) {
                 tokenComparator = new EqualityTokenComparator();
             }
+            tokenComparator = CachingTokenComparator.of(tokenComparator);
 
             CollationAlgorithm collationAlgorithm = null;
             final JsonValue collationAlgorithmNode = collationObject.get("algorithm");
@@ -204,7 +188,7 @@ public class JsonProcessor {
                 }
                 ((InspectableCollationAlgorithm) collationAlgorithm).setMergeTranspositions(mergeTranspositions);
             }
-            return new SimpleCollation(witnesses, collationAlgorithm, joined);
+            return new SimpleCollation(witnesses, collationAlgorithm, joined, tokenComparator);
         }
     }
 
@@ -220,47 +204,86 @@ public class JsonProcessor {
         }
     }
 
-    protected static void write(JsonGenerator jgen, VariantGraph graph) {
-        ParallelSegmentationApparatus.generate(VariantGraphRanking.of(graph), new ParallelSegmentationApparatus.GeneratorCallback() {
-            @Override
-            public void start() {
-                jgen.writeStartObject();
+    /**
+     * Writes a prebuilt alignment table, e.g. the one {@link SimpleVariantGraphSerializer#getAlignmentTable() cached}
+     * by a serializer of the collated graph.
+     */
+    public static void write(AlignmentTable table, OutputStream outputStream) throws IOException {
+        try (final JsonGenerator jgen = Json.createGenerator(outputStream)) {
+            write(jgen, table);
+        }
+    }
 
-                jgen.writeStartArray("witnesses");
-                graph.witnesses().stream().sorted(Witness.SIGIL_COMPARATOR).map(Witness::getSigil).forEach(jgen::write);
-                jgen.writeEnd();
+    private static List<eu.interedition.collatex.Token> readTokens(SimpleWitness witness, JsonArray tokensArray) throws IOException {
+        final List<eu.interedition.collatex.Token> tokens = new ArrayList<>(tokensArray.size());
+        for (JsonValue tokenNode : tokensArray) {
+            if (tokenNode.getValueType() != JsonValue.ValueType.OBJECT) {
+                throw new IOException(String.format("Expected token object in 'tokens' field in witness \"%s\"", witness));
+            }
+            final JsonObject tokenObject = (JsonObject) tokenNode;
+            String tokenContent;
+            try {
+                tokenContent = tokenObject.getString("t");
+            } catch (ClassCastException | NullPointerException e) {
+                throw new IOException(String.format("Expected textual token content field 't' in witness \"%s\"", witness));
+            }
 
+            String normalizedTokenContent;
+            if (tokenObject.containsKey("n")) {
+                try {
+                    normalizedTokenContent = tokenObject.getString("n");
+                } catch (ClassCastException e) {
+                    throw new IOException(String.format("Expected textual normalized token content in witness \"%s\"", witness));
+                }
+            } else {
+                normalizedTokenContent = SimpleWitness.TOKEN_NORMALIZER.apply(tokenContent);
+            }
 
-                jgen.writeStartArray("table");
+            if (normalizedTokenContent == null || normalizedTokenContent.length() == 0) {
+                throw new IOException(String.format("Empty token encountered in witness \"%s\"", witness));
             }
 
-            @Override
-            public void segment(SortedMap<Witness, Iterable<eu.interedition.collatex.Token>> contents) {
+            tokens.add(new Token(witness, tokenContent, normalizedTokenContent, tokenObject));
+        }
+        return tokens;
+    }
+
+    protected static void write(JsonGenerator jgen, VariantGraph graph) {
+        write(jgen, AlignmentTable.of(VariantGraphRanking.of(graph)));
+    }
+
+    protected static void write(JsonGenerator jgen, AlignmentTable table) {
+        final List<Witness> witnesses = table.getWitnesses();
+
+        jgen.writeStartObject();
+
+        jgen.writeStartArray("witnesses");
+        witnesses.stream().map(Witness::getSigil).forEach(jgen::write);
+        jgen.writeEnd();
+
+        jgen.writeStartArray("table");
+        for (int column = 0; column < table.columns(); column++) {
+            jgen.writeStartArray();
+            for (int wc = 0; wc < witnesses.size(); wc++) {
                 jgen.writeStartArray();
-                contents.values().forEach(tokens -> {
-                    jgen.writeStartArray();
-                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(tokens.iterator(), Spliterator.NONNULL | Spliterator.IMMUTABLE), false)
-                        .filter(t -> t instanceof SimpleToken)
-                        .map(t -> (SimpleToken) t)
-                        .sorted()
-                        .forEach(t -> {
-                            if (t instanceof Token) {
-                                jgen.write(((Token) t).getJsonNode());
-                            } else {
-                                jgen.write(t.getContent());
-                            }
-                        });
-                    jgen.writeEnd();
-                });
+                table.cell(column, wc).stream()
+                    .filter(t -> t instanceof SimpleToken)
+                    .map(t -> (SimpleToken) t)
+                    .sorted()
+                    .forEach(t -> {
+                        if (t instanceof Token) {
+                            jgen.write(((Token) t).getJsonNode());
+                        } else {
+                            jgen.write(t.getContent());
+                        }
+                    });
                 jgen.writeEnd();
             }
+            jgen.writeEnd();
+        }
+        jgen.writeEnd();
 
-            @Override
-            public void end() {
-                jgen.writeEnd();
-                jgen.writeEnd();
-            }
-        });
+        jgen.writeEnd();
     }
 
     public static class Token extends SimpleToken {
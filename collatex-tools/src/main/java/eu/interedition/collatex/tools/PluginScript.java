@@ -32,6 +32,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringWriter;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Comparator;
@@ -42,6 +43,9 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
+ * Script engines are not necessarily thread-safe, while witnesses are tokenized and normalized in parallel. Each thread
+ * invoking plugin functions therefore evaluates the script in an engine of its own.
+ *
  * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
  */
 public class PluginScript {
@@ -52,7 +56,9 @@ public class PluginScript {
     static final String NORMALIZER_FUNCTION = "normalize";
     static final String COMPARATOR_FUNCTION = "compare";
 
-    final Invocable script;
+    final String filename;
+    final String source;
+    final ThreadLocal<Invocable> scripts;
     final boolean tokenizer;
     final boolean normalizer;
     final boolean comparator;
@@ -64,20 +70,40 @@ public class PluginScript {
     }
 
     public static PluginScript read(String filename, Reader source) throws ScriptException, IOException {
+        final StringWriter sourceBuffer = new StringWriter();
+        final char[] buf = new char[8192];
+        for (int read = source.read(buf); read >= 0; read = source.read(buf)) {
+            sourceBuffer.write(buf, 0, read);
+        }
+        return new PluginScript(filename, sourceBuffer.toString());
+    }
+
+    PluginScript(String filename, String source) throws ScriptException {
+        this.filename = filename;
+        this.source = source;
+        this.scripts = ThreadLocal.withInitial(() -> {
+            try {
+                return eval(filename, source);
+            } catch (ScriptException e) {
+                throw new PluginScriptExecutionException(e);
+            }
+        });
+
+        final Invocable script = eval(filename, source);
+        scripts.set(script);
+        tokenizer = hasFunction(script, TOKENIZER_FUNCTION, "");
+        normalizer = hasFunction(script, NORMALIZER_FUNCTION, "");
+        comparator = hasFunction(script, COMPARATOR_FUNCTION, "", "");
+    }
+
+    static Invocable eval(String filename, String source) throws ScriptException {
         final ScriptEngine scriptEngine = Objects.requireNonNull(new ScriptEngineManager().getEngineByExtension("js"));
         scriptEngine.put(ScriptEngine.FILENAME, filename);
 
         final CompiledScript script = ((Compilable) scriptEngine).compile(source);
         script.eval();
 
-        return new PluginScript((Invocable) script.getEngine());
-    }
-
-    PluginScript(Invocable script) throws ScriptException {
-        this.script = script;
-        tokenizer = hasFunction(TOKENIZER_FUNCTION, "");
-        normalizer = hasFunction(NORMALIZER_FUNCTION, "");
-        comparator = hasFunction(COMPARATOR_FUNCTION, "", "");
+        return (Invocable) script.getEngine();
     }
 
     Function<String, Stream<String>> tokenizer() {
@@ -140,7 +166,7 @@ public class PluginScript {
         } : null);
     }
 
-    boolean hasFunction(String name, Object... testArgs) throws ScriptException {
+    static boolean hasFunction(Invocable script, String name, Object... testArgs) throws ScriptException {
         try {
             script.invokeFunction(name, testArgs);
             return true;
@@ -151,7 +177,7 @@ public class PluginScript {
 
     Object invoke(String function, Object... args) throws PluginScriptExecutionException {
         try {
-            Object result = script.invokeFunction(function, args);
+            Object result = scripts.get().invokeFunction(function, args);
             if (result == null) {
                 throw new PluginScriptExecutionException(function + "() returned null");
             }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.tools;
+
+import eu.interedition.collatex.simple.SimpleWitness;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads witnesses, i.e. reads, tokenizes and normalizes them, as parallel tasks on a pool of threads shared by all
+ * collations of this process. The pool is created on first use, with {@link #DEFAULT_THREADS} threads unless
+ * {@link #setThreads(int) configured} otherwise, and can be {@link #shutdown() shut down} once no more witnesses are
+ * to be loaded.
+ * <p>
+ * The time taken to load each witness as well as a summary over all witnesses is logged with level {@link Level#FINE}.
+ * Command line users can have these timings reported on standard error via the <code>-v</code> switch.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+class WitnessIngestion {
+
+    private static final Logger LOG = Logger.getLogger(WitnessIngestion.class.getName());
+
+    /**
+     * Bounds the default number of threads, as loading witnesses in parallel soon becomes bound by I/O and memory
+     * bandwidth.
+     */
+    static final int MAX_DEFAULT_THREADS = 8;
+
+    /**
+     * The number of available processors, but no more than {@link #MAX_DEFAULT_THREADS}.
+     */
+    static final int DEFAULT_THREADS = Math.min(MAX_DEFAULT_THREADS, Runtime.getRuntime().availableProcessors());
+
+    private static final AtomicLong THREAD_COUNTER = new AtomicLong();
+
+    private static int threadCount = DEFAULT_THREADS;
+    private static ExecutorService threads;
+
+    /**
+     * Sets the number of threads loading witnesses, replacing the current pool if there is one.
+     */
+    static synchronized void setThreads(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threadCount);
+        }
+        shutdown();
+        WitnessIngestion.threadCount = threadCount;
+    }
+
+    /**
+     * Shuts the pool down after the witnesses being loaded; a new one is created if witnesses are loaded afterwards.
+     */
+    static synchronized void shutdown() {
+        if (threads != null) {
+            threads.shutdown();
+            threads = null;
+        }
+    }
+
+    private static synchronized ExecutorService threads() {
+        if (threads == null) {
+            threads = Executors.newFixedThreadPool(threadCount, r -> {
+                final Thread t = new Thread(r, "witness-ingestion-" + THREAD_COUNTER.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return threads;
+    }
+
+    /**
+     * @param loaders the tasks loading one witness each
+     * @return the loaded witnesses, in the order of their loaders
+     * @throws IOException if any witness cannot be loaded
+     */
+    static <W extends SimpleWitness> List<W> load(List<Callable<W>> loaders) throws IOException {
+        final long start = System.nanoTime();
+        final List<W> witnesses = loadAll(loaders);
+        if (LOG.isLoggable(Level.FINE)) {
+            long tokens = 0;
+            for (W witness : witnesses) {
+                tokens += witness.getTokens().size();
+            }
+            LOG.fine(String.format("Loaded %d witness(es) (%d tokens) in %d ms",
+                    witnesses.size(), tokens, (System.nanoTime() - start) / 1000000));
+        }
+        return witnesses;
+    }
+
+    private static <W extends SimpleWitness> List<W> loadAll(List<Callable<W>> loaders) throws IOException {
+        final List<W> witnesses = new ArrayList<>(loaders.size());
+        if (loaders.size() < 2) {
+            for (Callable<W> loader : loaders) {
+                witnesses.add(get(timed(loader)));
+            }
+            return witnesses;
+        }
+
+        final List<Future<W>> results = new ArrayList<>(loaders.size());
+        try {
+            final ExecutorService threads = threads();
+            for (Callable<W> loader : loaders) {
+                results.add(threads.submit(timed(loader)));
+            }
+            for (Future<W> result : results) {
+                witnesses.add(get(result::get));
+            }
+            return witnesses;
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+    }
+
+    private static <W extends SimpleWitness> Callable<W> timed(Callable<W> loader) {
+        return () -> {
+            final long start = System.nanoTime();
+            final W witness = loader.call();
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine(String.format("Loaded witness %s (%d tokens) in %d ms",
+                        witness.getSigil(), witness.getTokens().size(), (System.nanoTime() - start) / 1000000));
+            }
+            return witness;
+        };
+    }
+
+    private static <W> W get(Callable<W> result) throws IOException {
+        try {
+            return result.call();
+        } catch (ExecutionException e) {
+            return rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (Exception e) {
+            return rethrow(e);
+        }
+    }
+
+    private static <W> W rethrow(Throwable t) throws IOException {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IOException(t);
+    }
+
+    private WitnessIngestion() {
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.tools;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Reads the text of plain-text witnesses in one go.
+ * <p>
+ * Files are read via their channel, directly into a buffer of their size or &ndash; beyond
+ * {@link #MAP_THRESHOLD} &ndash; by mapping them into memory; all other streams are drained into a growing buffer.
+ * Either way the bytes are decoded once, replacing malformed input like a {@link java.io.InputStreamReader} would.
+ *
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+class WitnessText {
+
+    /**
+     * Size in bytes from which on files are mapped into memory instead of being read into a buffer.
+     */
+    static final long MAP_THRESHOLD = 1 << 20;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Reads the given stream to its end, without closing it.
+     */
+    static String read(InputStream in, Charset charset) throws IOException {
+        if (in instanceof FileInputStream) {
+            return read(((FileInputStream) in).getChannel(), charset);
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        int length = 0;
+        int read;
+        while ((read = in.read(buf, length, buf.length - length)) != -1) {
+            length += read;
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, grow(buf.length));
+            }
+        }
+        return new String(buf, 0, length, charset);
+    }
+
+    /**
+     * Reads the given channel from its current position to its end, without closing it.
+     */
+    static String read(FileChannel channel, Charset charset) throws IOException {
+        final long position = channel.position();
+        final long size = Math.max(0, channel.size() - position);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Witness too large: " + size + " bytes");
+        }
+        if (size >= MAP_THRESHOLD) {
+            final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            channel.position(position + size);
+            return charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(mapped)
+                    .toString();
+        }
+
+        // the size is a hint only; the file might change while being read
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(BUFFER_SIZE, (int) size + 1));
+        while (channel.read(buf) != -1) {
+            if (!buf.hasRemaining()) {
+                final ByteBuffer grown = ByteBuffer.allocate(grow(buf.capacity()));
+                buf.flip();
+                buf = grown.put(buf);
+            }
+        }
+        return new String(buf.array(), 0, buf.position(), charset);
+    }
+
+    private static int grow(int length) throws IOException {
+        if (length == Integer.MAX_VALUE - 8) {
+            throw new IOException("Witness too large");
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, 2L * length);
+    }
+
+    private WitnessText() {
+    }
+}
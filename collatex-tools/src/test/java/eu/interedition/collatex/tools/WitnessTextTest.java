@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015 The Interedition Development Group.
+ *
+ * This file is part of CollateX.
+ *
+ * CollateX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CollateX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CollateX.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.interedition.collatex.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author <a href="http://gregor.middell.net/">Gregor Middell</a>
+ */
+public class WitnessTextTest {
+
+    private static final Logger LOG = Logger.getLogger(WitnessTextTest.class.getName());
+
+    private static final String TEXT = "Über die Grenzen — the black cat\n";
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void partialReads() throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            expected.append(TEXT);
+        }
+        // hand out one byte at a time, splitting multi-byte characters between reads
+        final InputStream in = new FilterInputStream(new ByteArrayInputStream(expected.toString().getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(1, len));
+            }
+        };
+        assertEquals(expected.toString(), WitnessText.read(in, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        final File file = tmp.newFile();
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals("", WitnessText.read(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void bufferedFile() throws IOException {
+        final File file = tmp.newFile();
+        Files.write(file.toPath(), TEXT.getBytes(StandardCharsets.UTF_8));
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals(TEXT, WitnessText.read(in, StandardCharsets.UTF_8));
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals(new String(TEXT.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1), WitnessText.read(in, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    @Test
+    public void mappedFile() throws IOException {
+        final File file = tmp.newFile();
+        final StringBuilder expected = new StringBuilder();
+        while (expected.length() < WitnessText.MAP_THRESHOLD) {
+            expected.append(TEXT);
+        }
+        Files.write(file.toPath(), expected.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals(expected.toString(), WitnessText.read(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void readLargeFiles() throws IOException {
+        final File file = tmp.newFile();
+        final byte[] line = TEXT.getBytes(StandardCharsets.UTF_8);
+        final long size = 100L << 20;
+        long written = 0;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            for (; written + line.length <= size; written += line.length) {
+                out.write(line);
+            }
+        }
+
+        final long start = System.nanoTime();
+        final String text;
+        try (FileInputStream in = new FileInputStream(file)) {
+            text = WitnessText.read(in, StandardCharsets.UTF_8);
+        }
+        final long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+        LOG.info(String.format("Read %d MB in %d ms (%d MB/s)", written >> 20, elapsed, (written >> 20) * 1000 / elapsed));
+
+        assertEquals(written / line.length * TEXT.length(), text.length());
+        assertEquals(TEXT, text.substring(text.length() - TEXT.length()));
+    }
+}